@@ -0,0 +1,70 @@
+package io.openepcis.snippets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openepcis.snippets.config.JacksonConfig;
+import io.openepcis.snippets.util.JsonSchemaValidator;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Fixtures shared by the benchmarks, so that all of them measure the same documents with the same components.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @return An ObjectMapper configured like the one of the application
+     */
+    public static ObjectMapper objectMapper() {
+        return new JacksonConfig().objectMapper();
+    }
+
+    /**
+     * @param objectMapper The ObjectMapper the validator parses JSON strings with
+     * @return A validator with the snippet schema compiled
+     */
+    public static JsonSchemaValidator jsonSchemaValidator(ObjectMapper objectMapper) throws Exception {
+        JsonSchemaValidator jsonSchemaValidator = new JsonSchemaValidator();
+        Field objectMapperField = JsonSchemaValidator.class.getDeclaredField("objectMapper");
+        objectMapperField.setAccessible(true);
+        objectMapperField.set(jsonSchemaValidator, objectMapper);
+        Field schemaResourcesField = JsonSchemaValidator.class.getDeclaredField("schemaResources");
+        schemaResourcesField.setAccessible(true);
+        schemaResourcesField.set(jsonSchemaValidator, List.of(JsonSchemaValidator.SNIPPET_SCHEMA));
+        jsonSchemaValidator.init();
+        return jsonSchemaValidator;
+    }
+
+    /**
+     * Build a valid snippet document with the given number of {@code $defs} entries. 10,000 entries produce a
+     * document of several MB.
+     *
+     * @param defsCount Number of entries in the {@code $defs} block, 0 for a snippet without one
+     * @return The snippet as JSON string
+     */
+    public static String snippetJson(int defsCount) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode snippet = mapper.createObjectNode()
+                .put("$schema", "http://json-schema.org/draft-07/schema#")
+                .put("$id", "https://example.com/snippets/benchmark-" + defsCount)
+                .put("title", "Benchmark snippet with " + defsCount + " definitions")
+                .put("description", "Sensor element of an EPCIS event with quantity and unit of measure");
+        if (defsCount > 0) {
+            ObjectNode defs = snippet.putObject("$defs");
+            for (int i = 0; i < defsCount; i++) {
+                ObjectNode def = defs.putObject("definition" + i);
+                def.put("type", "object");
+                def.put("description", "Generated definition number " + i);
+                ObjectNode properties = def.putObject("properties");
+                properties.putObject("value").put("type", "number");
+                properties.putObject("uom").put("type", "string").put("pattern", "^[A-Z0-9]{2,3}$");
+                def.putArray("required").add("value").add("uom");
+            }
+        }
+        return mapper.writeValueAsString(snippet);
+    }
+}
@@ -0,0 +1,80 @@
+package io.openepcis.snippets.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openepcis.snippets.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson (de)serialization of {@link Snippet}, as done when documents are read from and written to
+ * the store, and serialization of a page of search results projected to the summary fields.
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="SnippetSerializationBenchmark -prof gc"}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetSerializationBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = BenchmarkFixtures.objectMapper();
+
+    @State(Scope.Benchmark)
+    public static class Document {
+
+        /**
+         * Number of entries in the {@code $defs} block of the snippet, from a plain snippet to one of several MB.
+         */
+        @Param({"0", "100", "10000"})
+        int defsCount;
+
+        byte[] bytes;
+        Snippet snippet;
+
+        @Setup
+        public void setup() throws Exception {
+            bytes = BenchmarkFixtures.snippetJson(defsCount).getBytes(StandardCharsets.UTF_8);
+            snippet = OBJECT_MAPPER.readValue(bytes, Snippet.class);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Page {
+
+        @Param({"10", "100"})
+        int pageSize;
+
+        List<Snippet> snippets;
+
+        @Setup
+        public void setup() {
+            snippets = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                Snippet snippet = new Snippet();
+                snippet.setId("https://example.com/snippets/sensor-" + i);
+                snippet.setTitle("Sensor element " + i);
+                snippet.setDescription("Sensor element of an EPCIS event with quantity and unit of measure");
+                snippets.add(snippet);
+            }
+        }
+    }
+
+    @Benchmark
+    public Snippet deserialize(Document state) throws Exception {
+        return OBJECT_MAPPER.readValue(state.bytes, Snippet.class);
+    }
+
+    @Benchmark
+    public byte[] serialize(Document state) throws Exception {
+        return OBJECT_MAPPER.writeValueAsBytes(state.snippet);
+    }
+
+    @Benchmark
+    public byte[] serializeSearchPage(Page state) throws Exception {
+        return OBJECT_MAPPER.writeValueAsBytes(state.snippets);
+    }
+}
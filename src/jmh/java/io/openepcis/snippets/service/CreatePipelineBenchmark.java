@@ -0,0 +1,71 @@
+package io.openepcis.snippets.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.openepcis.snippets.BenchmarkFixtures;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.util.JsonSchemaValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-parse create pipeline of {@link SnippetService#parseSnippet(String)} with the previous
+ * pipeline, which parsed the request body once for the empty/JSON check, once more for schema validation and
+ * walked the tree a third time to convert it to a Snippet.
+ * Run with the gc profiler to compare allocation per operation:
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="CreatePipelineBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreatePipelineBenchmark {
+
+    /**
+     * Number of entries in the {@code $defs} block of the snippet, from a plain snippet to one of several MB.
+     */
+    @Param({"0", "100", "10000"})
+    int defsCount;
+
+    private ObjectMapper objectMapper;
+    private JsonSchemaValidator jsonSchemaValidator;
+    private SnippetService snippetService;
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        jsonSchemaValidator = BenchmarkFixtures.jsonSchemaValidator(objectMapper);
+
+        snippetService = new SnippetService();
+        snippetService.objectMapper = objectMapper;
+        snippetService.jsonSchemaValidator = jsonSchemaValidator;
+        snippetService.maxDocumentSize = Long.MAX_VALUE;
+        snippetService.maxNestingDepth = 100;
+        snippetService.meterRegistry = new SimpleMeterRegistry();
+        snippetService.init();
+
+        json = BenchmarkFixtures.snippetJson(defsCount);
+    }
+
+    @Benchmark
+    public Snippet singleParse() {
+        return snippetService.parseSnippet(json);
+    }
+
+    @Benchmark
+    public Snippet tripleParse() throws Exception {
+        ObjectNode jsonNode = objectMapper.readValue(json, ObjectNode.class);
+        String validationError = jsonSchemaValidator.validateSnippetWithErrorMessage(json);
+        if (validationError != null) {
+            throw new IllegalArgumentException(validationError);
+        }
+        return objectMapper.convertValue(jsonNode, Snippet.class);
+    }
+}
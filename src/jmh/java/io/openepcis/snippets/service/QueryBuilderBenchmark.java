@@ -0,0 +1,46 @@
+package io.openepcis.snippets.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the search query of {@link QueryBuilderService#buildSearchQuery(String)}, which runs for
+ * every search that is not served from the cache. The search texts cover a term without synonyms, a term with
+ * a large synonym group and a phrase.
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="QueryBuilderBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBuilderBenchmark {
+
+    @Param({"sensor", "pharma", "uniform resource identifier"})
+    String searchText;
+
+    @Param({"QUERY", "INDEX"})
+    SynonymMode synonymMode;
+
+    private QueryBuilderService queryBuilderService;
+
+    @Setup
+    public void setup() {
+        SynonymService synonymService = new SynonymService();
+        synonymService.meterRegistry = new SimpleMeterRegistry();
+        synonymService.init();
+
+        queryBuilderService = new QueryBuilderService();
+        queryBuilderService.synonymService = synonymService;
+        queryBuilderService.synonymMode = synonymMode;
+    }
+
+    @Benchmark
+    public Query buildSearchQuery() {
+        return queryBuilderService.buildSearchQuery(searchText);
+    }
+}
@@ -0,0 +1,106 @@
+package io.openepcis.snippets.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures synonym expansion with the bundled dictionary through {@link SynonymService#getSynonyms(String)},
+ * and lookups and index builds of {@link SynonymIndex} for generated dictionaries of growing size, to show that
+ * the lookup cost does not depend on the size of the dictionary.
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="SynonymBenchmark -prof gc"}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SynonymBenchmark {
+
+    private static final int SYNONYMS_PER_TERM = 5;
+
+    @State(Scope.Benchmark)
+    public static class Bundled {
+
+        @Param({"pharma", "sensor"})
+        String searchText;
+
+        SynonymService synonymService;
+
+        @Setup
+        public void setup() {
+            synonymService = new SynonymService();
+            synonymService.meterRegistry = new SimpleMeterRegistry();
+            synonymService.init();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Generated {
+
+        /**
+         * Number of dictionary entries, each with five synonyms.
+         */
+        @Param({"50", "5000", "500000"})
+        int dictionarySize;
+
+        Map<String, List<String>> dictionary;
+        SynonymIndex synonymIndex;
+        String hit;
+
+        @Setup
+        public void setup() {
+            dictionary = dictionary(dictionarySize);
+            synonymIndex = SynonymIndex.of(dictionary);
+            hit = "term " + dictionarySize / 2;
+        }
+    }
+
+    @Benchmark
+    public Set<String> bundledGetSynonyms(Bundled state) {
+        return state.synonymService.getSynonyms(state.searchText);
+    }
+
+    @Benchmark
+    public Set<String> generatedLookupHit(Generated state) {
+        Set<String> result = new HashSet<>();
+        state.synonymIndex.addSynonyms(state.hit, result);
+        return result;
+    }
+
+    @Benchmark
+    public Set<String> generatedLookupMiss(Generated state) {
+        Set<String> result = new HashSet<>();
+        state.synonymIndex.addSynonyms("unknown term", result);
+        return result;
+    }
+
+    @Benchmark
+    public SynonymIndex generatedBuild(Generated state) {
+        return SynonymIndex.of(state.dictionary);
+    }
+
+    /**
+     * Build a dictionary whose neighbouring entries share a synonym, so that terms belong to several groups
+     * like in the bundled dictionary.
+     */
+    private static Map<String, List<String>> dictionary(int size) {
+        Map<String, List<String>> dictionary = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            List<String> synonyms = new ArrayList<>(SYNONYMS_PER_TERM);
+            synonyms.add("shared " + (i / 2));
+            for (int j = 1; j < SYNONYMS_PER_TERM; j++) {
+                synonyms.add("synonym " + i + "-" + j);
+            }
+            dictionary.put("term " + i, synonyms);
+        }
+        return dictionary;
+    }
+}
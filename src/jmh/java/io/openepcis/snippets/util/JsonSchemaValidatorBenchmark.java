@@ -0,0 +1,56 @@
+package io.openepcis.snippets.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.ValidationMessage;
+import io.openepcis.snippets.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validation against the snippet schema, for an already parsed document as on the create path and
+ * for a JSON string that is parsed first.
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="JsonSchemaValidatorBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSchemaValidatorBenchmark {
+
+    /**
+     * Number of entries in the {@code $defs} block of the snippet, from a plain snippet to one of several MB.
+     */
+    @Param({"0", "100", "10000"})
+    int defsCount;
+
+    private JsonSchemaValidator jsonSchemaValidator;
+    private String json;
+    private JsonNode jsonNode;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        jsonSchemaValidator = BenchmarkFixtures.jsonSchemaValidator(objectMapper);
+        json = BenchmarkFixtures.snippetJson(defsCount);
+        jsonNode = objectMapper.readTree(json);
+
+        if (!jsonSchemaValidator.validateSnippet(jsonNode).isEmpty()) {
+            throw new IllegalStateException("Benchmark snippet is not valid");
+        }
+    }
+
+    @Benchmark
+    public Set<ValidationMessage> validateParsed() {
+        return jsonSchemaValidator.validateSnippet(jsonNode);
+    }
+
+    @Benchmark
+    public Set<ValidationMessage> validateString() {
+        return jsonSchemaValidator.validateSnippet(json);
+    }
+}
@@ -0,0 +1,73 @@
+package io.openepcis.snippets.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records the latencies of one operation of a load test and reports throughput and percentiles.
+ * All latencies are kept, so percentiles are exact.
+ */
+final class LatencyRecorder {
+
+    static final String HEADER = String.format(Locale.ROOT, "%-8s %8s %7s %10s %9s %9s %9s %9s",
+            "request", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+    private final String operation;
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    LatencyRecorder(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * @param nanos The latency of a request
+     * @param ok    false if the request failed or returned an unexpected status
+     */
+    synchronized void record(long nanos, boolean ok) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (!ok) {
+            errors++;
+        }
+    }
+
+    synchronized int errors() {
+        return errors;
+    }
+
+    /**
+     * @param elapsed The duration of the measured run
+     * @return One line with count, errors, throughput and latency percentiles, aligned with {@link #HEADER}
+     */
+    synchronized String report(Duration elapsed) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsed.toNanos() / 1e9;
+        return String.format(Locale.ROOT, "%-8s %8d %7d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                operation, count, errors, count / seconds,
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 95)),
+                millis(percentile(sorted, 99)), millis(count > 0 ? sorted[count - 1] : 0));
+    }
+
+    /**
+     * @param sorted     The sorted latencies
+     * @param percentile The percentile, from 0 to 100
+     * @return The latency at the percentile by nearest rank, 0 if nothing was recorded
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,491 @@
+package io.openepcis.snippets.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.quarkus.runtime.configuration.DurationConverter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for OpenSearch, speaking enough of the REST API for the snippet service: index existence,
+ * creation, mapping and UUID, and index, create, get, delete, mget, bulk and search of documents. Documents are kept in
+ * memory and are visible to searches immediately.
+ * <p>
+ * Every document request waits for the configured latency plus a random jitter and fails with the configured
+ * probability, so that the service can be load-tested against a slow or flaky cluster without one. Searches do
+ * not evaluate the query: they return the newest documents of the index, honouring {@code size},
+ * {@code search_after} and {@code _source} includes. Points in time and suggesters are not supported.
+ */
+@Slf4j
+public class OpenSearchStandIn implements AutoCloseable {
+
+    static final String LATENCY_PROPERTY = "loadtest.opensearch.latency";
+    static final String JITTER_PROPERTY = "loadtest.opensearch.jitter";
+    static final String ERROR_RATE_PROPERTY = "loadtest.opensearch.error-rate";
+
+    private static final String DEFAULT_LATENCY = "2ms";
+    private static final String DEFAULT_JITTER = "1ms";
+    private static final int DEFAULT_SEARCH_SIZE = 10;
+    private static final int BACKLOG = 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Index> indices = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param latency   The time every document request waits before it is answered
+     * @param jitter    The maximum random time added to the latency
+     * @param errorRate The probability of a document request failing with 503, from 0 to 1
+     */
+    public OpenSearchStandIn(Duration latency, Duration jitter, double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1, was " + errorRate);
+        }
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @return A stand-in configured with the {@code loadtest.opensearch.*} system properties
+     */
+    public static OpenSearchStandIn fromSystemProperties() {
+        return new OpenSearchStandIn(
+                DurationConverter.parseDuration(System.getProperty(LATENCY_PROPERTY, DEFAULT_LATENCY)),
+                DurationConverter.parseDuration(System.getProperty(JITTER_PROPERTY, DEFAULT_JITTER)),
+                errorRate());
+    }
+
+    /**
+     * @return The error rate configured with the {@code loadtest.opensearch.error-rate} system property
+     */
+    static double errorRate() {
+        return Double.parseDouble(System.getProperty(ERROR_RATE_PROPERTY, "0"));
+    }
+
+    /**
+     * Start listening on a free port of the loopback interface.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("OpenSearch stand-in listening on port {} with latency {}, jitter {} and error rate {}",
+                port(), latency, jitter, errorRate);
+    }
+
+    /**
+     * @return The port the stand-in listens on
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return The number of requests received so far
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return The number of requests failed on purpose so far
+     */
+    public long injectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            List<String> path = segments(exchange.getRequestURI().getRawPath());
+            String method = exchange.getRequestMethod();
+            if (isDocumentRequest(path) && injectFailure()) {
+                respond(exchange, 503, error("unavailable_shards_exception", "Injected failure", 503));
+                return;
+            }
+            route(exchange, method, path);
+        } catch (RuntimeException e) {
+            log.error("OpenSearch stand-in failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            respond(exchange, 500, error("exception", String.valueOf(e.getMessage()), 500));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, List<String> path) throws IOException {
+        if (path.size() == 1 && path.getFirst().equals("_bulk")) {
+            bulk(exchange, null);
+        } else if (path.size() == 1 && path.getFirst().equals("_mget")) {
+            mget(exchange, null);
+        } else if (path.size() == 1 && method.equals("HEAD")) {
+            respond(exchange, indices.containsKey(path.getFirst()) ? 200 : 404, null);
+        } else if (path.size() == 1 && method.equals("PUT")) {
+            createIndex(exchange, path.getFirst());
+        } else if (path.size() == 2 && path.get(1).equals("_mapping")) {
+            mapping(exchange, path.getFirst());
+        } else if (path.size() >= 2 && path.size() <= 3 && path.get(1).equals("_settings") && method.equals("GET")) {
+            settings(exchange, path.getFirst());
+        } else if (path.size() == 2 && path.get(1).equals("_bulk")) {
+            bulk(exchange, path.getFirst());
+        } else if (path.size() == 2 && path.get(1).equals("_mget")) {
+            mget(exchange, path.getFirst());
+        } else if (path.size() == 2 && path.get(1).equals("_search")) {
+            search(exchange, path.getFirst());
+        } else if (path.size() == 3 && path.get(1).equals("_create")) {
+            write(exchange, path.getFirst(), path.get(2), readJson(exchange), true);
+        } else if (path.size() == 3 && path.get(1).equals("_doc")) {
+            switch (method) {
+                case "PUT", "POST" -> write(exchange, path.getFirst(), path.get(2), readJson(exchange), false);
+                case "GET" -> get(exchange, path.getFirst(), path.get(2));
+                case "DELETE" -> delete(exchange, path.getFirst(), path.get(2));
+                default -> unsupported(exchange, method, path);
+            }
+        } else {
+            unsupported(exchange, method, path);
+        }
+    }
+
+    private static boolean isDocumentRequest(List<String> path) {
+        return path.size() > 1
+                ? !path.get(1).equals("_mapping") && !path.get(1).equals("_settings")
+                : path.size() == 1 && path.getFirst().startsWith("_");
+    }
+
+    /**
+     * Wait for the configured latency and decide whether the request fails.
+     */
+    private boolean injectFailure() {
+        long delay = latency.toNanos();
+        if (jitter.toNanos() > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(delay));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void createIndex(HttpExchange exchange, String name) throws IOException {
+        JsonNode body = readJson(exchange);
+        JsonNode meta = body != null ? body.path("mappings").path("_meta") : null;
+        Index index = new Index(meta != null && meta.isObject() ? meta : objectMapper.createObjectNode());
+        if (indices.putIfAbsent(name, index) != null) {
+            respond(exchange, 400, error("resource_already_exists_exception", "index [" + name + "] already exists", 400));
+            return;
+        }
+        respond(exchange, 200, objectMapper.createObjectNode()
+                .put("acknowledged", true)
+                .put("shards_acknowledged", true)
+                .put("index", name));
+    }
+
+    private void mapping(HttpExchange exchange, String name) throws IOException {
+        Index index = indices.get(name);
+        if (index == null) {
+            respond(exchange, 404, error("index_not_found_exception", "no such index [" + name + "]", 404));
+            return;
+        }
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject(name).putObject("mappings").set("_meta", index.meta);
+        respond(exchange, 200, response);
+    }
+
+    /**
+     * Answer the settings of an index with its UUID only, whatever settings were asked for.
+     */
+    private void settings(HttpExchange exchange, String name) throws IOException {
+        Index index = indices.get(name);
+        if (index == null) {
+            respond(exchange, 404, error("index_not_found_exception", "no such index [" + name + "]", 404));
+            return;
+        }
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject(name).putObject("settings").putObject("index").put("uuid", index.uuid);
+        respond(exchange, 200, response);
+    }
+
+    private void write(HttpExchange exchange, String indexName, String id, JsonNode source, boolean create) throws IOException {
+        ObjectNode result = write(indexName, id, source, create);
+        respond(exchange, result.path("status").asInt(), result);
+    }
+
+    /**
+     * Store a document, creating the index on first use like OpenSearch does.
+     *
+     * @return The write response, or a conflict error if the document exists and create is set
+     */
+    private ObjectNode write(String indexName, String id, JsonNode source, boolean create) {
+        Index index = indices.computeIfAbsent(indexName, name -> new Index(objectMapper.createObjectNode()));
+        Document[] written = new Document[1];
+        index.documents.compute(id, (key, existing) -> {
+            if (create && existing != null) {
+                return existing;
+            }
+            written[0] = new Document(source, existing != null ? existing.version + 1 : 1, sequence.incrementAndGet());
+            return written[0];
+        });
+        if (written[0] == null) {
+            ObjectNode conflict = error("version_conflict_engine_exception",
+                    "[" + id + "]: version conflict, document already exists", 409);
+            return conflict.put("_index", indexName).put("_id", id);
+        }
+        boolean created = written[0].version == 1;
+        return writeResponse(indexName, id, written[0], created ? "created" : "updated", created ? 201 : 200);
+    }
+
+    private void get(HttpExchange exchange, String indexName, String id) throws IOException {
+        ObjectNode result = getDocument(indexName, id);
+        respond(exchange, result.path("found").asBoolean() ? 200 : 404, result);
+    }
+
+    private ObjectNode getDocument(String indexName, String id) {
+        Index index = indices.get(indexName);
+        Document document = index != null ? index.documents.get(id) : null;
+        if (document == null) {
+            // Readable both as a get response and as an error response
+            return error("document_missing_exception", "[" + id + "]: document missing", 404)
+                    .put("_index", indexName).put("_id", id).put("found", false);
+        }
+        ObjectNode result = objectMapper.createObjectNode()
+                .put("_index", indexName)
+                .put("_id", id)
+                .put("_version", document.version)
+                .put("_seq_no", document.sequence)
+                .put("_primary_term", 1)
+                .put("found", true);
+        result.set("_source", document.source);
+        return result;
+    }
+
+    private void delete(HttpExchange exchange, String indexName, String id) throws IOException {
+        ObjectNode result = delete(indexName, id);
+        respond(exchange, result.path("status").asInt(), result);
+    }
+
+    private ObjectNode delete(String indexName, String id) {
+        Index index = indices.get(indexName);
+        Document removed = index != null ? index.documents.remove(id) : null;
+        if (removed == null) {
+            // Readable both as a delete response and as an error response
+            return error("document_missing_exception", "[" + id + "]: document missing", 404)
+                    .setAll(writeResponse(indexName, id, new Document(null, 1, sequence.incrementAndGet()), "not_found", 404));
+        }
+        return writeResponse(indexName, id, new Document(null, removed.version + 1, sequence.incrementAndGet()), "deleted", 200);
+    }
+
+    private ObjectNode writeResponse(String indexName, String id, Document document, String result, int status) {
+        ObjectNode response = objectMapper.createObjectNode()
+                .put("_index", indexName)
+                .put("_id", id)
+                .put("_version", document.version)
+                .put("result", result)
+                .put("_seq_no", document.sequence)
+                .put("_primary_term", 1)
+                .put("status", status);
+        response.putObject("_shards").put("total", 1).put("successful", 1).put("failed", 0);
+        return response;
+    }
+
+    private void bulk(HttpExchange exchange, String defaultIndex) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode items = response.putArray("items");
+        boolean errors = false;
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map.Entry<String, JsonNode> action = objectMapper.readTree(line).properties().iterator().next();
+                String indexName = action.getValue().path("_index").asText(defaultIndex);
+                String id = action.getValue().path("_id").asText();
+                ObjectNode result = switch (action.getKey()) {
+                    case "create" -> write(indexName, id, objectMapper.readTree(reader.readLine()), true);
+                    case "index" -> write(indexName, id, objectMapper.readTree(reader.readLine()), false);
+                    case "delete" -> delete(indexName, id);
+                    default -> throw new IllegalArgumentException("Unsupported bulk action " + action.getKey());
+                };
+                errors |= result.has("error");
+                items.addObject().set(action.getKey(), result);
+            }
+        }
+        response.put("took", Duration.ofNanos(System.nanoTime() - start).toMillis()).put("errors", errors);
+        respond(exchange, 200, response);
+    }
+
+    private void mget(HttpExchange exchange, String defaultIndex) throws IOException {
+        JsonNode body = readJson(exchange);
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode docs = response.putArray("docs");
+        for (JsonNode doc : body.path("docs")) {
+            docs.add(getDocument(doc.path("_index").asText(defaultIndex), doc.path("_id").asText()));
+        }
+        for (JsonNode id : body.path("ids")) {
+            docs.add(getDocument(defaultIndex, id.asText()));
+        }
+        respond(exchange, 200, response);
+    }
+
+    private void search(HttpExchange exchange, String indexName) throws IOException {
+        JsonNode body = readJson(exchange);
+        if (body == null) {
+            body = objectMapper.createObjectNode();
+        }
+        int size = body.path("size").asInt(DEFAULT_SEARCH_SIZE);
+        long after = body.path("search_after").isArray() ? body.path("search_after").path(0).asLong(Long.MAX_VALUE) : Long.MAX_VALUE;
+        List<String> includes = includes(body.path("_source"));
+
+        Index index = indices.get(indexName);
+        List<Map.Entry<String, Document>> matches = index == null ? List.of() : index.documents.entrySet().stream()
+                .filter(entry -> entry.getValue().sequence < after)
+                .sorted(Comparator.comparingLong((Map.Entry<String, Document> entry) -> entry.getValue().sequence).reversed())
+                .toList();
+
+        ObjectNode response = objectMapper.createObjectNode().put("took", 1).put("timed_out", false);
+        response.putObject("_shards").put("total", 1).put("successful", 1).put("skipped", 0).put("failed", 0);
+        ObjectNode hits = response.putObject("hits");
+        hits.putObject("total").put("value", matches.size()).put("relation", "eq");
+        hits.putNull("max_score");
+        ArrayNode hitList = hits.putArray("hits");
+        for (Map.Entry<String, Document> match : matches.subList(0, Math.min(size, matches.size()))) {
+            ObjectNode hit = hitList.addObject()
+                    .put("_index", indexName)
+                    .put("_id", match.getKey())
+                    .putNull("_score");
+            hit.set("_source", project(match.getValue().source, includes));
+            hit.putArray("sort").add(String.valueOf(match.getValue().sequence)).add(match.getKey());
+        }
+        respond(exchange, 200, response);
+    }
+
+    private static List<String> includes(JsonNode source) {
+        JsonNode includes = source.isArray() ? source : source.path("includes");
+        List<String> fields = new ArrayList<>();
+        includes.forEach(field -> fields.add(field.asText()));
+        return fields;
+    }
+
+    private JsonNode project(JsonNode source, List<String> includes) {
+        if (includes.isEmpty() || !source.isObject()) {
+            return source;
+        }
+        ObjectNode projected = objectMapper.createObjectNode();
+        for (String field : includes) {
+            if (source.has(field)) {
+                projected.set(field, source.get(field));
+            }
+        }
+        return projected;
+    }
+
+    private void unsupported(HttpExchange exchange, String method, List<String> path) throws IOException {
+        respond(exchange, 400, error("illegal_argument_exception",
+                "Not supported by the OpenSearch stand-in: " + method + " /" + String.join("/", path), 400));
+    }
+
+    private JsonNode readJson(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readAllBytes();
+            return bytes.length > 0 ? objectMapper.readTree(bytes) : null;
+        }
+    }
+
+    private ObjectNode error(String type, String reason, int status) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject("error").put("type", type).put("reason", reason);
+        return response.put("status", status);
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        if (body == null || exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static List<String> segments(String rawPath) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static final class Index {
+
+        final JsonNode meta;
+        final Map<String, Document> documents = new ConcurrentHashMap<>();
+        // Fixed for the lifetime of the index, like the UUID OpenSearch assigns on creation
+        final String uuid = UUID.randomUUID().toString();
+
+        Index(JsonNode meta) {
+            this.meta = meta;
+        }
+    }
+
+    private record Document(JsonNode source, long version, long sequence) {
+    }
+}
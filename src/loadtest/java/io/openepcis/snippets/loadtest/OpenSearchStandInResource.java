@@ -0,0 +1,41 @@
+package io.openepcis.snippets.loadtest;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Starts the {@link OpenSearchStandIn} before the application and points the OpenSearch client at it.
+ */
+public class OpenSearchStandInResource implements QuarkusTestResourceLifecycleManager {
+
+    private OpenSearchStandIn standIn;
+
+    @Override
+    public Map<String, String> start() {
+        standIn = OpenSearchStandIn.fromSystemProperties();
+        try {
+            standIn.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start the OpenSearch stand-in", e);
+        }
+        return Map.of(
+                "quarkus.opensearch.hosts", "localhost:" + standIn.port(),
+                "quarkus.opensearch.protocol", "http",
+                "quarkus.opensearch.devservices.enabled", "false");
+    }
+
+    @Override
+    public void inject(TestInjector testInjector) {
+        testInjector.injectIntoFields(standIn, new TestInjector.MatchesType(OpenSearchStandIn.class));
+    }
+
+    @Override
+    public void stop() {
+        if (standIn != null) {
+            standIn.close();
+        }
+    }
+}
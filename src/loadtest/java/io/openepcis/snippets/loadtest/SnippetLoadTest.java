@@ -0,0 +1,178 @@
+package io.openepcis.snippets.loadtest;
+
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Drives {@code POST /snippet}, {@code GET /snippet} and {@code DELETE /snippet/{id}} over HTTP against the
+ * application backed by the {@link OpenSearchStandIn}, and reports throughput and latency percentiles per request.
+ * Every iteration creates a snippet, runs a search and deletes the snippet again. Configured with system properties:
+ * <ul>
+ *     <li>{@code loadtest.concurrency}: number of concurrent clients, default 16</li>
+ *     <li>{@code loadtest.iterations}: number of measured iterations, default 2000</li>
+ *     <li>{@code loadtest.warmup-iterations}: number of iterations run before measuring, default 200</li>
+ *     <li>{@code loadtest.opensearch.latency}, {@code loadtest.opensearch.jitter} and
+ *     {@code loadtest.opensearch.error-rate}: behaviour of the stand-in</li>
+ * </ul>
+ * {@code mvn -Ploadtest test -Dloadtest.concurrency=64}
+ */
+@QuarkusTest
+@WithTestResource(OpenSearchStandInResource.class)
+public class SnippetLoadTest {
+
+    private static final String[] SEARCH_TEXTS = {"sensor", "pharma", "temperature", ""};
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(60);
+
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+    private final int iterations = Integer.getInteger("loadtest.iterations", 2000);
+    private final int warmupIterations = Integer.getInteger("loadtest.warmup-iterations", 200);
+
+    // Unique across warmup and measured iterations, so that every create adds a new snippet
+    private final AtomicLong snippetNumber = new AtomicLong();
+
+    @TestHTTPResource("/snippet")
+    URL snippetUrl;
+
+    @TestHTTPResource("/q/health/ready")
+    URL readyUrl;
+
+    OpenSearchStandIn standIn;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    @TestSecurity(user = "loadtest")
+    public void testCreateSearchDelete() throws Exception {
+        awaitReady();
+        run(warmupIterations, recorders());
+
+        Map<String, LatencyRecorder> recorders = recorders();
+        long requestsBefore = standIn.requestCount();
+        long start = System.nanoTime();
+        run(iterations, recorders);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        StringBuilder report = new StringBuilder()
+                .append(String.format("%nLoad test: %d iterations, %d concurrent clients, %.1f s, %.1f iterations/s, %d OpenSearch requests, %d injected errors%n",
+                        iterations, concurrency, elapsed.toNanos() / 1e9, iterations / (elapsed.toNanos() / 1e9),
+                        standIn.requestCount() - requestsBefore, standIn.injectedErrorCount()))
+                .append(LatencyRecorder.HEADER).append(System.lineSeparator());
+        recorders.values().forEach(recorder -> report.append(recorder.report(elapsed)).append(System.lineSeparator()));
+        System.out.println(report);
+
+        // Without injected failures every request has to succeed
+        if (OpenSearchStandIn.errorRate() == 0) {
+            for (Map.Entry<String, LatencyRecorder> recorder : recorders.entrySet()) {
+                assertEquals(0, recorder.getValue().errors(), "Failed " + recorder.getKey() + " requests");
+            }
+        }
+    }
+
+    /**
+     * Wait until the index bootstrap has finished, snippet requests are rejected with 503 before.
+     */
+    private void awaitReady() throws Exception {
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(readyUrl.toURI()).GET().build();
+        while (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+            if (System.nanoTime() > deadline) {
+                fail("Application not ready within " + READY_TIMEOUT);
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static Map<String, LatencyRecorder> recorders() {
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (String operation : new String[]{"POST", "GET", "DELETE"}) {
+            recorders.put(operation, new LatencyRecorder(operation));
+        }
+        return recorders;
+    }
+
+    private void run(int iterations, Map<String, LatencyRecorder> recorders) {
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                executor.submit(() -> {
+                    while (next.getAndIncrement() < iterations) {
+                        iteration(recorders);
+                    }
+                });
+            }
+        }
+    }
+
+    private void iteration(Map<String, LatencyRecorder> recorders) {
+        long number = snippetNumber.incrementAndGet();
+        String id = "urn:openepcis:loadtest:" + ProcessHandle.current().pid() + ":" + number;
+        String base = snippetUrl.toString();
+
+        send(recorders.get("POST"), 201, HttpRequest.newBuilder(URI.create(base))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(snippetJson(id, number))));
+
+        String searchText = SEARCH_TEXTS[(int) (number % SEARCH_TEXTS.length)];
+        send(recorders.get("GET"), 200, HttpRequest.newBuilder(URI.create(base + "?searchText="
+                + URLEncoder.encode(searchText, StandardCharsets.UTF_8))).GET());
+
+        send(recorders.get("DELETE"), 204, HttpRequest.newBuilder(URI.create(base + "/"
+                + URLEncoder.encode(id, StandardCharsets.UTF_8))).DELETE());
+    }
+
+    private void send(LatencyRecorder recorder, int expectedStatus, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding())
+                    .statusCode() == expectedStatus;
+        } catch (Exception e) {
+            ok = false;
+        }
+        recorder.record(System.nanoTime() - start, ok);
+    }
+
+    private static String snippetJson(String id, long number) {
+        return """
+                {
+                  "$schema": "http://json-schema.org/draft-07/schema#",
+                  "$id": "%s",
+                  "title": "Load test sensor element %d",
+                  "description": "Sensor element of an EPCIS event with temperature and unit of measure",
+                  "$defs": {
+                    "reading": {
+                      "type": "object",
+                      "properties": {
+                        "value": {"type": "number"},
+                        "uom": {"type": "string", "pattern": "^[A-Z0-9]{2,3}$"}
+                      },
+                      "required": ["value", "uom"]
+                    }
+                  }
+                }
+                """.formatted(id, number);
+    }
+}
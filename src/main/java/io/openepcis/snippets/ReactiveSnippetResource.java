@@ -0,0 +1,100 @@
+package io.openepcis.snippets;
+
+import io.openepcis.snippets.model.CatalogVersion;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.repository.StoreBusyException;
+import io.openepcis.snippets.service.CatalogVersionService;
+import io.openepcis.snippets.service.ReactiveSnippetService;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.security.PermitAll;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.headers.Header;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import static io.openepcis.snippets.SnippetResource.NEXT_CURSOR_HEADER;
+import static io.openepcis.snippets.SnippetResource.busy;
+import static io.openepcis.snippets.SnippetResource.notModified;
+import static io.openepcis.snippets.SnippetResource.withValidators;
+
+/**
+ * Non-blocking variant of the search endpoint of the {@link SnippetResource}.
+ * The method returns a Uni, so it runs on the event loop and no thread is held while OpenSearch answers.
+ */
+@Path("/reactive/snippet")
+@RequiresSnippetStore
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "snippets", description = "Snippet operations")
+@Slf4j
+public class ReactiveSnippetResource {
+
+    @Inject
+    ReactiveSnippetService reactiveSnippetService;
+
+    @Inject
+    CatalogVersionService catalogVersionService;
+
+    @GET
+    @PermitAll
+    @Operation(summary = "Search for snippets without blocking", description = "Same as GET /snippet, served on the event loop through the asynchronous OpenSearch client.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(type = SchemaType.ARRAY, implementation = Snippet.class)),
+                    headers = @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page")),
+            @APIResponse(responseCode = "304", description = "The catalog has not changed since the response with the ETag given in If-None-Match"),
+            @APIResponse(responseCode = "400", description = "Unknown field requested, invalid page size or invalid or expired cursor"),
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent OpenSearch requests or open search cursors")
+    })
+    public Uni<Response> getSnippets(
+            @Parameter(description = "Text to search for in snippets") @QueryParam("searchText") String searchText,
+            @Parameter(description = "Comma-separated fields to return, defaults to $id,title,description,createdAt; * returns all fields including definitions and $defs") @QueryParam("fields") String fields,
+            @Parameter(description = "Number of results per page, defaults to 10 and is capped by snippet.search.max-page-size") @QueryParam("size") Integer size,
+            @Parameter(description = "Cursor from the X-Next-Cursor header of the previous page, with the same searchText") @QueryParam("cursor") String cursor,
+            @Parameter(description = "ETag of a previous response, answered with 304 if the catalog has not changed since") @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        CatalogVersion version = catalogVersionService.current();
+        if (version != null && version.matches(ifNoneMatch)) {
+            return Uni.createFrom().item(notModified(version));
+        }
+        return Uni.createFrom().deferred(() -> reactiveSnippetService.searchSnippetsJson(searchText, size, SnippetField.parse(fields), cursor))
+                .map(result -> {
+                    Response.ResponseBuilder response = withValidators(Response.ok(result.json()), version);
+                    if (result.nextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, result.nextCursor());
+                    }
+                    return response.build();
+                })
+                .onFailure(IllegalArgumentException.class).recoverWithItem(e -> {
+                    log.debug("Invalid search request: {}", e.getMessage());
+                    return Response.status(Status.BAD_REQUEST)
+                            .entity(e.getMessage())
+                            .build();
+                })
+                .onFailure(StoreBusyException.class).recoverWithItem(e -> {
+                    log.warn("Rejected searching snippets: {}", e.getMessage());
+                    return busy((StoreBusyException) e);
+                })
+                .onFailure().recoverWithItem(e -> {
+                    log.error("Error retrieving snippets", e);
+                    return Response.status(Status.INTERNAL_SERVER_ERROR)
+                            .entity("Error retrieving snippets: " + e.getMessage())
+                            .build();
+                });
+    }
+}
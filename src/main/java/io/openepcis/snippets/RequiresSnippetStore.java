@@ -0,0 +1,18 @@
+package io.openepcis.snippets;
+
+import jakarta.ws.rs.NameBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds the {@link StoreReadinessFilter} to the annotated resources, so that only endpoints served by the snippet
+ * store are rejected while its index is not ready. Health, metrics and OpenAPI endpoints stay reachable.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RequiresSnippetStore {
+}
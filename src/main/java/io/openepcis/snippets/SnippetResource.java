@@ -1,20 +1,34 @@
 package io.openepcis.snippets;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.JsonSchema;
 import io.openepcis.snippets.constants.Constants;
+import io.openepcis.snippets.model.BulkItemResult;
+import io.openepcis.snippets.model.CatalogVersion;
 import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.model.ValidationResult;
+import io.openepcis.snippets.repository.StoreBusyException;
+import io.openepcis.snippets.service.CatalogVersionService;
+import io.openepcis.snippets.service.PayloadTooLargeException;
+import io.openepcis.snippets.service.SearchResult;
+import io.openepcis.snippets.service.SnippetNotFoundException;
 import io.openepcis.snippets.service.SnippetService;
 import io.quarkus.security.Authenticated;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.PermitAll;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.enums.SecuritySchemeType;
+import org.eclipse.microprofile.openapi.annotations.headers.Header;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -25,9 +39,13 @@ import org.eclipse.microprofile.openapi.annotations.security.SecurityScheme;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
 
 @Path("/snippet")
+@RequiresSnippetStore
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "snippets", description = "Snippet operations")
@@ -35,34 +53,51 @@ import java.util.List;
 @Slf4j
 public class SnippetResource {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int RETRY_AFTER_SECONDS = 1;
+
     @Inject
     SnippetService snippetService;
 
+    @Inject
+    CatalogVersionService catalogVersionService;
+
     @Inject
     ObjectMapper objectMapper;
 
     @POST
+    @RunOnVirtualThread
     @Authenticated
     @SecurityRequirement(name = "bearer-auth")
     @Operation(summary = "Create a new snippet", description = "Creates a new code snippet from the provided JSON")
     @APIResponses(value = {
             @APIResponse(responseCode = "201", description = "Snippet created successfully", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Snippet.class))),
             @APIResponse(responseCode = "400", description = "Invalid request"),
-            @APIResponse(responseCode = "500", description = "Internal server error")
+            @APIResponse(responseCode = "413", description = "Snippet exceeds the maximum document size"),
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent requests to the snippet store")
     })
-    public Response createSnippet(String requestBody) {
+    public Response createSnippet(@HeaderParam(HttpHeaders.CONTENT_LENGTH) Long contentLength, InputStream requestBody) {
         try {
-            // Use the service to create the snippet
-            Snippet snippet = snippetService.createSnippet(requestBody);
+            // Use the service to create the snippet, the body is parsed as it is read
+            Snippet snippet = snippetService.createSnippet(requestBody, contentLength);
 
             // Return the snippet without the source field
             return Response.status(Status.CREATED).entity(snippet.withoutSource()).build();
+        } catch (PayloadTooLargeException e) {
+            log.debug("Rejected oversized snippet: {}", e.getMessage());
+            return Response.status(Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity(e.getMessage())
+                    .build();
         } catch (IllegalArgumentException e) {
             // Handle validation errors
             log.debug("Validation error creating snippet: {}", e.getMessage());
             return Response.status(Status.BAD_REQUEST)
                     .entity(e.getMessage())
                     .build();
+        } catch (StoreBusyException e) {
+            log.warn("Rejected creating snippet: {}", e.getMessage());
+            return busy(e);
         } catch (IOException e) {
             log.error("Error creating snippet", e);
             return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -76,7 +111,261 @@ public class SnippetResource {
         }
     }
 
+    @POST
+    @Path("/_bulk")
+    @RunOnVirtualThread
+    @Authenticated
+    @SecurityRequirement(name = "bearer-auth")
+    @Consumes(Constants.APPLICATION_NDJSON)
+    @Produces(Constants.APPLICATION_NDJSON)
+    @Operation(summary = "Create snippets in bulk", description = "Creates snippets from a newline-delimited JSON body with one snippet per line, and streams back one result per line")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "One result per snippet with its line number, $id, status (201, 400 or 500) and error", content = @Content(mediaType = Constants.APPLICATION_NDJSON, schema = @Schema(implementation = BulkItemResult.class)))
+    })
+    public Response createSnippets(InputStream requestBody) {
+        StreamingOutput output = out -> {
+            try {
+                snippetService.createSnippets(requestBody, result -> writeLine(out, result));
+            } catch (IOException | UncheckedIOException e) {
+                // The status line has already been sent, so report the failure in the stream
+                log.error("Error creating snippets in bulk", e);
+                writeLine(out, BulkItemResult.failed(null, "Error creating snippets: " + e.getMessage()));
+            }
+        };
+        return Response.ok(output).build();
+    }
+
+    @GET
+    @Path("/_export")
+    @RunOnVirtualThread
+    @PermitAll
+    @Produces(Constants.APPLICATION_NDJSON)
+    @Operation(summary = "Export all snippets", description = "Streams every snippet, including its original source, as newline-delimited JSON")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "One snippet per line, newest first. A failure after the first line aborts the response, so a truncated stream indicates an incomplete export", content = @Content(mediaType = Constants.APPLICATION_NDJSON, schema = @Schema(implementation = Snippet.class))),
+            @APIResponse(responseCode = "304", description = "The catalog has not changed since the export with the ETag given in If-None-Match")
+    })
+    public Response exportSnippets(
+            @Parameter(description = "ETag of a previous export, answered with 304 if the catalog has not changed since") @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        CatalogVersion version = catalogVersionService.current();
+        if (version != null && version.matches(ifNoneMatch)) {
+            return notModified(version);
+        }
+        StreamingOutput output = out -> {
+            try {
+                // Lines are not flushed one by one, the response stream sends them as its buffer fills
+                snippetService.exportSnippets(snippet -> writeLine(out, snippet, false));
+            } catch (UncheckedIOException e) {
+                // The status line has already been sent, so abort the response rather than end it normally
+                log.error("Error exporting snippets", e);
+                throw e.getCause();
+            } catch (IOException e) {
+                log.error("Error exporting snippets", e);
+                throw e;
+            }
+        };
+        return withValidators(Response.ok(output), version).build();
+    }
+
+    @GET
+    @Path("/_suggest")
+    @RunOnVirtualThread
+    @PermitAll
+    @Operation(summary = "Suggest snippets", description = "Typeahead suggestions of snippets whose title or $id starts with the given prefix, ignoring case")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Suggested snippets with $id and title only, empty for a blank prefix", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(type = SchemaType.ARRAY, implementation = Snippet.class))),
+            @APIResponse(responseCode = "400", description = "Invalid size"),
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent requests to the snippet store")
+    })
+    public Response suggestSnippets(
+            @Parameter(description = "Prefix of the title or $id typed so far") @QueryParam("prefix") String prefix,
+            @Parameter(description = "Maximum number of suggestions, defaults to 5 and is capped by snippet.suggest.max-size") @QueryParam("size") Integer size) {
+        try {
+            return Response.ok(snippetService.suggest(prefix, size)).build();
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid suggest request: {}", e.getMessage());
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (StoreBusyException e) {
+            log.warn("Rejected suggesting snippets: {}", e.getMessage());
+            return busy(e);
+        } catch (IOException e) {
+            log.error("Error suggesting snippets", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error suggesting snippets: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    @POST
+    @Path("/{id}/validate")
+    @RunOnVirtualThread
+    @Authenticated
+    @SecurityRequirement(name = "bearer-auth")
+    @Operation(summary = "Validate a document against a snippet", description = "Validates a JSON document against the stored snippet with the given $id, which is compiled once and then served from a cache")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Whether the document is valid, with the validation errors if not", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ValidationResult.class))),
+            @APIResponse(responseCode = "400", description = "Invalid JSON, or the snippet cannot be compiled into a schema"),
+            @APIResponse(responseCode = "404", description = "Snippet not found"),
+            @APIResponse(responseCode = "413", description = "Document exceeds the maximum document size"),
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent requests to the snippet store")
+    })
+    public Response validateDocument(@PathParam("id") String id,
+                                     @HeaderParam(HttpHeaders.CONTENT_LENGTH) Long contentLength, InputStream requestBody) {
+        try {
+            JsonSchema schema = snippetService.snippetSchema(id);
+            return Response.ok(snippetService.validateDocument(schema, requestBody, contentLength)).build();
+        } catch (PayloadTooLargeException e) {
+            log.debug("Rejected oversized document: {}", e.getMessage());
+            return Response.status(Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (SnippetNotFoundException e) {
+            return Response.status(Status.NOT_FOUND)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid validation request: {}", e.getMessage());
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (StoreBusyException e) {
+            log.warn("Rejected validating document: {}", e.getMessage());
+            return busy(e);
+        } catch (IOException e) {
+            log.error("Error validating document against snippet {}", id, e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error validating document: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    @POST
+    @Path("/{id}/validate")
+    @RunOnVirtualThread
+    @Authenticated
+    @SecurityRequirement(name = "bearer-auth")
+    @Consumes(Constants.APPLICATION_NDJSON)
+    @Produces(Constants.APPLICATION_NDJSON)
+    @Operation(summary = "Validate documents against a snippet", description = "Validates a newline-delimited JSON body with one document per line against the stored snippet with the given $id, in parallel, and streams back one result per line")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "One result per document with its line number, whether it is valid and the validation errors", content = @Content(mediaType = Constants.APPLICATION_NDJSON, schema = @Schema(implementation = ValidationResult.class))),
+            @APIResponse(responseCode = "400", description = "The snippet cannot be compiled into a schema"),
+            @APIResponse(responseCode = "404", description = "Snippet not found"),
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent requests to the snippet store")
+    })
+    public Response validateDocuments(@PathParam("id") String id, InputStream requestBody) {
+        // The snippet is resolved before streaming, so that a missing snippet is reported with its status
+        JsonSchema schema;
+        try {
+            schema = snippetService.snippetSchema(id);
+        } catch (SnippetNotFoundException e) {
+            return Response.status(Status.NOT_FOUND)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid validation request: {}", e.getMessage());
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (StoreBusyException e) {
+            log.warn("Rejected validating documents: {}", e.getMessage());
+            return busy(e);
+        } catch (IOException e) {
+            log.error("Error validating documents against snippet {}", id, e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error validating documents: " + e.getMessage())
+                    .build();
+        }
+
+        StreamingOutput output = out -> {
+            try {
+                // Lines are not flushed one by one, the response stream sends them as its buffer fills
+                snippetService.validateDocuments(schema, requestBody, result -> writeLine(out, result, false));
+            } catch (IOException | UncheckedIOException e) {
+                // The status line has already been sent, so report the failure in the stream
+                log.error("Error validating documents against snippet {}", id, e);
+                writeLine(out, ValidationResult.invalid("Error validating documents: " + e.getMessage()));
+            }
+        };
+        return Response.ok(output).build();
+    }
+
+    /**
+     * Add the ETag and Last-Modified validators of a catalog version to a response. Clients are asked to
+     * revalidate on every use, which is cheap as a matching ETag is answered from memory.
+     *
+     * @param response The response to add the validators to
+     * @param version The catalog version the response was read at, or null if it is unknown
+     * @return The response
+     */
+    static Response.ResponseBuilder withValidators(Response.ResponseBuilder response, CatalogVersion version) {
+        if (version == null) {
+            return response;
+        }
+        return response.header(HttpHeaders.ETAG, version.etag())
+                .lastModified(Date.from(version.lastModified()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache");
+    }
+
+    /**
+     * Build the response for a request whose ETag matches the current catalog version.
+     *
+     * @param version The current catalog version
+     * @return A 304 response with the validators of the version
+     */
+    static Response notModified(CatalogVersion version) {
+        return withValidators(Response.notModified(), version).build();
+    }
+
+    /**
+     * Build the response for a request rejected because the snippet store is saturated.
+     *
+     * @param e The rejection
+     * @return A 503 response asking the client to retry later
+     */
+    static Response busy(StoreBusyException e) {
+        return Response.status(Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .entity(e.getMessage())
+                .build();
+    }
+
+    /**
+     * Write one NDJSON line to a streamed response and flush it, so that it reaches the client immediately.
+     *
+     * @param out The response stream
+     * @param value The value to serialize
+     */
+    private void writeLine(OutputStream out, Object value) {
+        writeLine(out, value, true);
+    }
+
+    /**
+     * Write one NDJSON line to a streamed response.
+     *
+     * @param out The response stream
+     * @param value The value to serialize
+     * @param flush Whether to flush the stream after the line
+     */
+    private void writeLine(OutputStream out, Object value, boolean flush) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            if (flush) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @DELETE
+    @RunOnVirtualThread
     @Path("/{id}")
     @Authenticated
     @SecurityRequirement(name = "bearer-auth")
@@ -84,12 +373,16 @@ public class SnippetResource {
     @APIResponses(value = {
             @APIResponse(responseCode = "204", description = "Snippet deleted successfully"),
             @APIResponse(responseCode = "404", description = "Snippet not found"),
-            @APIResponse(responseCode = "500", description = "Internal server error")
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent requests to the snippet store")
     })
     public Response deleteSnippet(@PathParam("id") String id) {
         try {
             snippetService.delete(id);
             return Response.noContent().build();
+        } catch (StoreBusyException e) {
+            log.warn("Rejected deleting snippet: {}", e.getMessage());
+            return busy(e);
         } catch (IOException e) {
             log.error("Error deleting snippet", e);
             return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -99,18 +392,44 @@ public class SnippetResource {
     }
 
     @GET
+    @RunOnVirtualThread
     @PermitAll
-    @Operation(summary = "Search for snippets", description = "Search for snippets based on the provided search text")
+    @Operation(summary = "Search for snippets", description = "Search for snippets based on the provided search text. Results are paged: when more results exist, the response carries an X-Next-Cursor header whose value is passed as cursor to fetch the next page.")
     @APIResponses(value = {
-            @APIResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(type = SchemaType.ARRAY, implementation = Snippet.class))),
-            @APIResponse(responseCode = "500", description = "Internal server error")
+            @APIResponse(responseCode = "200", description = "Successful operation", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(type = SchemaType.ARRAY, implementation = Snippet.class)),
+                    headers = @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page")),
+            @APIResponse(responseCode = "304", description = "The catalog has not changed since the response with the ETag given in If-None-Match"),
+            @APIResponse(responseCode = "400", description = "Unknown field requested, invalid page size or invalid or expired cursor"),
+            @APIResponse(responseCode = "500", description = "Internal server error"),
+            @APIResponse(responseCode = "503", description = "Too many concurrent requests to the snippet store, or too many open search cursors to start paging")
     })
     public Response getSnippets(
-            @Parameter(description = "Text to search for in snippets") @QueryParam("searchText") String searchText) {
+            @Parameter(description = "Text to search for in snippets") @QueryParam("searchText") String searchText,
+            @Parameter(description = "Comma-separated fields to return, defaults to $id,title,description,createdAt; * returns all fields including definitions and $defs") @QueryParam("fields") String fields,
+            @Parameter(description = "Number of results per page, defaults to 10 and is capped by snippet.search.max-page-size") @QueryParam("size") Integer size,
+            @Parameter(description = "Cursor from the X-Next-Cursor header of the previous page, with the same searchText") @QueryParam("cursor") String cursor,
+            @Parameter(description = "ETag of a previous response, answered with 304 if the catalog has not changed since") @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        // The version is read before searching, so a change during the search yields an outdated rather than a too new tag
+        CatalogVersion version = catalogVersionService.current();
+        if (version != null && version.matches(ifNoneMatch)) {
+            return notModified(version);
+        }
         try {
-            // Use the service to search for snippets
-            List<Snippet> snippets = snippetService.searchSnippets(searchText, Constants.DEFAULT_LIMIT);
-            return Response.ok(snippets).build();
+            // Use the service to search for snippets, the response is already serialized
+            SearchResult result = snippetService.searchSnippetsJson(searchText, size, SnippetField.parse(fields), cursor);
+            Response.ResponseBuilder response = withValidators(Response.ok(result.json()), version);
+            if (result.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, result.nextCursor());
+            }
+            return response.build();
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid search request: {}", e.getMessage());
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (StoreBusyException e) {
+            log.warn("Rejected retrieving snippets: {}", e.getMessage());
+            return busy(e);
         } catch (IOException e) {
             log.error("Error retrieving snippets", e);
             return Response.status(Status.INTERNAL_SERVER_ERROR)
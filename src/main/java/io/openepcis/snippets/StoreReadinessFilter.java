@@ -0,0 +1,37 @@
+package io.openepcis.snippets;
+
+import io.openepcis.snippets.repository.IndexBootstrap;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import java.util.Optional;
+
+/**
+ * Rejects snippet requests with 503 until the OpenSearch index is ready, so that they fail fast instead of waiting
+ * for or failing against an index that does not exist yet. The filter is bound to the resources annotated with
+ * {@link RequiresSnippetStore}, so health, metrics and OpenAPI endpoints are not affected. With the embedded Lucene
+ * backend there is no bootstrap to wait for.
+ */
+public class StoreReadinessFilter {
+
+    static final String NOT_READY_MESSAGE = "The snippet store is starting up, retry later";
+
+    @Inject
+    Instance<IndexBootstrap> indexBootstrap;
+
+    @ServerRequestFilter
+    @RequiresSnippetStore
+    public Optional<Response> rejectUntilReady() {
+        if (indexBootstrap.isResolvable() && !indexBootstrap.get().isReady()) {
+            return Optional.of(Response.status(Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, SnippetResource.RETRY_AFTER_SECONDS)
+                    .entity(NOT_READY_MESSAGE)
+                    .build());
+        }
+        return Optional.empty();
+    }
+}
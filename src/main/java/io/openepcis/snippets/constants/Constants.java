@@ -8,10 +8,27 @@ public final class Constants {
 
     public static final String TEMPLATE_OPENEPCIS_SNIPPET_INDEX_TEMPLATE = "template/openepcis-snippet-index-template.json";
     public static final String INDEX_NAME = "snippets";
+    public static final String CATALOG_INDEX_NAME = "snippets-catalog";
+    public static final String CATALOG_DOCUMENT_ID = "catalog";
+    public static final String INDEX_UPGRADE_LOCK_ID = "index-upgrade-lock";
     public static final String TEMPLATE = "template";
     public static final String SETTINGS = "settings";
     public static final String MAPPINGS = "mappings";
+    public static final String VERSION = "version";
+    public static final String ANALYSIS = "analysis";
+    public static final String MAX_NGRAM_DIFF = "max_ngram_diff";
+    public static final String PROPERTIES = "properties";
+    public static final String META = "_meta";
+    public static final String META_TEMPLATE_VERSION = "template_version";
+    public static final String META_SYNONYMS_HASH = "synonyms_hash";
     public static final int DEFAULT_LIMIT = 10;
+    public static final int DEFAULT_SUGGEST_SIZE = 5;
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    // Storage backend related constants
+    public static final String STORE_BACKEND_PROPERTY = "snippet.store.backend";
+    public static final String STORE_BACKEND_LUCENE = "lucene";
+    public static final String LUCENE_SOURCE_FIELD = "_source";
 
     // Query related constants
     public static final String FUZZINESS_LEVEL = "2";
@@ -19,9 +36,19 @@ public final class Constants {
     public static final String MINIMUM_SHOULD_MATCH = "1";
     public static final String SYNONYM_FILE_PATH = "synonyms/synonym-map.json";
     public static final String ID = "$id";
-    public static final String ID_KEYWORD = "$id.keyword";
     public static final String TITLE = "title";
     public static final String DESCRIPTION = "description";
+    public static final String TITLE_NGRAM = "title.ngram";
+    public static final String DESCRIPTION_NGRAM = "description.ngram";
+    // Completion fields of the index template, populated from title and $id
+    public static final String TITLE_SUGGEST = "title.suggest";
+    public static final String ID_SUGGEST = "$id.suggest";
+    // Must match the substring_ngram filter of the index template
+    public static final int NGRAM_MIN_GRAM = 2;
+    public static final int NGRAM_MAX_GRAM = 20;
+    public static final String SCHEMA = "$schema";
+    public static final String DEFINITIONS = "definitions";
+    public static final String DEFS = "$defs";
     public static final String SOURCE = "source";
     public static final String CREATED_AT = "createdAt";
 }
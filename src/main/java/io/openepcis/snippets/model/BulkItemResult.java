@@ -0,0 +1,80 @@
+package io.openepcis.snippets.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result for one document of a bulk snippet request, streamed back as one NDJSON line per document.
+ * The status follows the single-document endpoint: 201 when created, 400 when invalid or duplicate,
+ * 500 when the document could not be written.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+
+    public static final int CREATED = 201;
+    public static final int BAD_REQUEST = 400;
+    public static final int FAILED = 500;
+
+    // 1-based line number of the document in the request body
+    private int line;
+
+    @JsonProperty("$id")
+    private String id;
+
+    private int status;
+
+    private String error;
+
+    public BulkItemResult() {
+    }
+
+    public BulkItemResult(String id, int status, String error) {
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BulkItemResult created(String id) {
+        return new BulkItemResult(id, CREATED, null);
+    }
+
+    public static BulkItemResult badRequest(String id, String error) {
+        return new BulkItemResult(id, BAD_REQUEST, error);
+    }
+
+    public static BulkItemResult failed(String id, String error) {
+        return new BulkItemResult(id, FAILED, error);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
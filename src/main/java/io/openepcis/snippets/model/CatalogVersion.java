@@ -0,0 +1,59 @@
+package io.openepcis.snippets.model;
+
+import java.time.Instant;
+
+/**
+ * Version of the snippet catalog as a whole.
+ * The generation increases with every create or delete and is persisted by the store, so that it keeps
+ * increasing across restarts. It is used as HTTP validator of read responses.
+ * <p>
+ * The generation starts over when the store holding it is recreated, so it is qualified by an epoch that
+ * identifies that instance of the store. Entity tags issued before the store was recreated never match again.
+ *
+ * @param epoch        Identifies the instance of the store, empty while the catalog has never been changed
+ * @param generation   The generation within the epoch, 0 for a catalog that has never been changed
+ * @param lastModified When the catalog was last changed
+ */
+public record CatalogVersion(String epoch, long generation, Instant lastModified) {
+
+    public static final CatalogVersion INITIAL = new CatalogVersion("", 0, Instant.EPOCH);
+
+    /**
+     * @return The strong entity tag of the catalog in its quoted header form
+     */
+    public String etag() {
+        return "\"" + (epoch.isEmpty() ? "" : epoch + "-") + generation + "\"";
+    }
+
+    /**
+     * @param other The version to compare with, or null if none is known
+     * @return true if this version follows the other one, either later in the same epoch or in another epoch
+     */
+    public boolean supersedes(CatalogVersion other) {
+        return other == null || !epoch.equals(other.epoch) || generation > other.generation;
+    }
+
+    /**
+     * Check an {@code If-None-Match} header against this version.
+     * Weak comparison is used, as for a GET request, so weak tags of the same version match too.
+     *
+     * @param ifNoneMatch The value of the If-None-Match header, or null
+     * @return true if the header lists the entity tag of this version or is {@code *}
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String etag = etag();
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,7 @@
 package io.openepcis.snippets.model;
 
 import java.time.Instant;
+import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -121,6 +122,25 @@ public class Snippet {
 
         return copy;
     }
+
+    /**
+     * Creates a copy of this snippet with only the requested fields, for search responses
+     *
+     * @param fields The fields to keep
+     * @return A new Snippet object with only the requested fields and without the source field
+     */
+    public Snippet project(Set<SnippetField> fields) {
+        Snippet copy = new Snippet();
+        copy.setId(fields.contains(SnippetField.ID) ? this.id : null);
+        copy.setSchema(fields.contains(SnippetField.SCHEMA) ? this.schema : null);
+        copy.setTitle(fields.contains(SnippetField.TITLE) ? this.title : null);
+        copy.setDescription(fields.contains(SnippetField.DESCRIPTION) ? this.description : null);
+        copy.setDefinitions(fields.contains(SnippetField.DEFINITIONS) ? this.definitions : null);
+        copy.setDefs(fields.contains(SnippetField.DEFS) ? this.defs : null);
+        copy.setCreatedAt(fields.contains(SnippetField.CREATED_AT) ? this.createdAt : null);
+
+        return copy;
+    }
     
     /**
      * Converter to handle the 'definitions' field which can be either a complex object or a string
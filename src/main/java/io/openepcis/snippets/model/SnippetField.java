@@ -0,0 +1,88 @@
+package io.openepcis.snippets.model;
+
+import io.openepcis.snippets.constants.Constants;
+
+import java.util.*;
+
+/**
+ * Fields of a snippet that can be requested from search, by their JSON name.
+ * The stored {@code source} is never part of a search response and cannot be requested.
+ */
+public enum SnippetField {
+
+    ID(Constants.ID),
+    SCHEMA(Constants.SCHEMA),
+    TITLE(Constants.TITLE),
+    DESCRIPTION(Constants.DESCRIPTION),
+    DEFINITIONS(Constants.DEFINITIONS),
+    DEFS(Constants.DEFS),
+    CREATED_AT(Constants.CREATED_AT);
+
+    /**
+     * Default projection of search results, without the potentially large definitions
+     */
+    public static final Set<SnippetField> SUMMARY = Collections.unmodifiableSet(EnumSet.of(ID, TITLE, DESCRIPTION, CREATED_AT));
+
+    /**
+     * Projection of typeahead suggestions
+     */
+    public static final Set<SnippetField> SUGGESTION = Collections.unmodifiableSet(EnumSet.of(ID, TITLE));
+
+    /**
+     * All fields except the stored source
+     */
+    public static final Set<SnippetField> ALL = Collections.unmodifiableSet(EnumSet.allOf(SnippetField.class));
+
+    private static final String ALL_FIELDS = "*";
+
+    private final String fieldName;
+
+    SnippetField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * @return The JSON name of the field
+     */
+    public String fieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Parse a comma-separated list of field names, as given in the {@code fields} query parameter.
+     *
+     * @param fields The field names, {@code *} for all fields, or null or blank for the summary projection
+     * @return The requested fields
+     * @throws IllegalArgumentException if a field name is unknown
+     */
+    public static Set<SnippetField> parse(String fields) throws IllegalArgumentException {
+        if (fields == null || fields.isBlank()) {
+            return SUMMARY;
+        }
+
+        EnumSet<SnippetField> parsed = EnumSet.noneOf(SnippetField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (ALL_FIELDS.equals(trimmed)) {
+                return ALL;
+            }
+            parsed.add(Arrays.stream(values())
+                    .filter(field -> field.fieldName.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown field '" + trimmed + "', expected one of "
+                            + Arrays.stream(values()).map(SnippetField::fieldName).toList() + " or " + ALL_FIELDS)));
+        }
+        return parsed.isEmpty() ? SUMMARY : Collections.unmodifiableSet(parsed);
+    }
+
+    /**
+     * @param fields The requested fields
+     * @return The JSON names of the fields, for use as {@code _source} includes
+     */
+    public static List<String> fieldNames(Set<SnippetField> fields) {
+        return fields.stream().map(SnippetField::fieldName).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package io.openepcis.snippets.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Result of validating one document against a snippet. For a stream of documents, one result is streamed back
+ * per document as an NDJSON line carrying its line number.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ValidationResult {
+
+    // 1-based line number of the document in a streamed request body, null for a single document
+    private Integer line;
+
+    private boolean valid;
+
+    private List<String> errors;
+
+    public ValidationResult() {
+    }
+
+    public ValidationResult(boolean valid, List<String> errors) {
+        this.valid = valid;
+        this.errors = errors;
+    }
+
+    /**
+     * @param errors The validation errors, empty if the document is valid
+     * @return The result of a document that was validated
+     */
+    public static ValidationResult of(List<String> errors) {
+        return new ValidationResult(errors.isEmpty(), errors);
+    }
+
+    /**
+     * @param error Why the document could not be validated, for example because it is not valid JSON
+     * @return The result of a document that could not be validated
+     */
+    public static ValidationResult invalid(String error) {
+        return new ValidationResult(false, List.of(error));
+    }
+
+    public Integer getLine() {
+        return line;
+    }
+
+    public void setLine(Integer line) {
+        this.line = line;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,26 @@
+package io.openepcis.snippets.repository;
+
+/**
+ * The single document of the catalog index. Its OpenSearch {@code _version}, which increases with every write
+ * of the document, is the catalog generation.
+ */
+public class CatalogDocument {
+
+    // Epoch milliseconds of the last change
+    private long lastModified;
+
+    public CatalogDocument() {
+    }
+
+    public CatalogDocument(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+}
@@ -0,0 +1,30 @@
+package io.openepcis.snippets.repository;
+
+/**
+ * Thrown when a snippet is created with a $id that is already stored.
+ * Extends {@link IllegalArgumentException} so that it is reported as a bad request like other invalid input.
+ */
+public class DuplicateSnippetException extends IllegalArgumentException {
+
+    private final String id;
+
+    public DuplicateSnippetException(String id) {
+        super(message(id));
+        this.id = id;
+    }
+
+    /**
+     * @param id The duplicate $id
+     * @return The error message reported for the duplicate $id
+     */
+    public static String message(String id) {
+        return "A snippet with $id '" + id + "' already exists";
+    }
+
+    /**
+     * @return The duplicate $id
+     */
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,169 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static io.openepcis.snippets.constants.Constants.STORE_BACKEND_LUCENE;
+import static io.openepcis.snippets.constants.Constants.STORE_BACKEND_PROPERTY;
+
+/**
+ * Creates or updates the OpenSearch snippet index in the background, so that the application starts without
+ * waiting for OpenSearch and a slow or unavailable cluster does not stall the first request.
+ * <p>
+ * A failed attempt is retried after a backoff that starts at {@code snippet.opensearch.bootstrap.initial-backoff}
+ * and doubles up to {@code snippet.opensearch.bootstrap.max-backoff}, until the index is ready or the application
+ * shuts down. Until then the readiness check reports the store as down and snippet requests are answered with 503.
+ * Not being ready within {@code snippet.opensearch.bootstrap.budget} is logged as an error once, retries go on.
+ * An attempt that finds another replica upgrading the index is retried the same way without counting as a failure.
+ * <p>
+ * The time from JVM start until the index is ready is published as {@value #TIME_TO_READY_METRIC}, so that cold
+ * starts can be watched where replicas are scaled automatically.
+ */
+@ApplicationScoped
+@Startup
+@UnlessBuildProperty(name = STORE_BACKEND_PROPERTY, stringValue = STORE_BACKEND_LUCENE, enableIfMissing = true)
+@Slf4j
+public class IndexBootstrap {
+
+    public static final String TIME_TO_READY_METRIC = "snippet.bootstrap.time.to.ready";
+    public static final String FAILURES_METRIC = "snippet.bootstrap.failures";
+
+    @Inject
+    SnippetRepository snippetRepository;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "snippet.opensearch.bootstrap.initial-backoff", defaultValue = "500ms")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "snippet.opensearch.bootstrap.max-backoff", defaultValue = "30s")
+    Duration maxBackoff;
+
+    @ConfigProperty(name = "snippet.opensearch.bootstrap.budget", defaultValue = "60s")
+    Duration budget;
+
+    private volatile boolean ready;
+    private volatile int attempts;
+    private volatile String lastError;
+
+    // Milliseconds from JVM start until the index was ready, NaN before
+    private volatile double timeToReady = Double.NaN;
+
+    private long startedAt;
+    private boolean budgetExceeded;
+    private Counter failures;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Register the metrics and start the first attempt.
+     */
+    @PostConstruct
+    void start() {
+        TimeGauge.builder(TIME_TO_READY_METRIC, this, TimeUnit.MILLISECONDS, bootstrap -> bootstrap.timeToReady)
+                .description("Time from JVM start until the snippet index was ready")
+                .register(meterRegistry);
+        failures = Counter.builder(FAILURES_METRIC)
+                .description("Failed attempts to create or update the snippet index")
+                .register(meterRegistry);
+
+        startedAt = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("index-bootstrap").daemon().factory());
+        executor.execute(this::attempt);
+    }
+
+    /**
+     * Stop retrying on shutdown.
+     */
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run one attempt and schedule the next one if it failed. Attempts run one at a time on the bootstrap thread.
+     */
+    private void attempt() {
+        attempts++;
+        try {
+            snippetRepository.bootstrapIndex();
+        } catch (Exception e) {
+            lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            Duration delay = backoff(attempts);
+            if (e instanceof IndexUpgradeInProgressException) {
+                // Not a failure, the index is ready once the other replica has upgraded it
+                log.info("Waiting for the OpenSearch index upgrade (attempt {}), checking again in {} ms: {}",
+                        attempts, delay.toMillis(), lastError);
+            } else {
+                failures.increment();
+                log.warn("Failed to initialize OpenSearch index (attempt {}), retrying in {} ms: {}", attempts,
+                        delay.toMillis(), lastError);
+            }
+            checkBudget();
+            if (!executor.isShutdown()) {
+                executor.schedule(this::attempt, delay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+
+        lastError = null;
+        timeToReady = ManagementFactory.getRuntimeMXBean().getUptime();
+        ready = true;
+        log.info("OpenSearch index ready after {} attempts, {} ms after JVM start", attempts, (long) timeToReady);
+    }
+
+    private void checkBudget() {
+        if (!budgetExceeded && System.nanoTime() - startedAt > budget.toNanos()) {
+            budgetExceeded = true;
+            log.error("OpenSearch index not ready within the startup budget of {}, requests are rejected until it is", budget);
+        }
+    }
+
+    /**
+     * @param attempt The number of the failed attempt, starting at 1
+     * @return The delay before the next attempt, doubling with each failed attempt up to the maximum backoff
+     */
+    Duration backoff(int attempt) {
+        // Capped shift, so that the doubling cannot overflow before the maximum is applied
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    /**
+     * @return true once the index has been created or brought up to date
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return The number of attempts made so far
+     */
+    public int attempts() {
+        return attempts;
+    }
+
+    /**
+     * @return The error of the last failed attempt, null once ready
+     */
+    public String lastError() {
+        return lastError;
+    }
+}
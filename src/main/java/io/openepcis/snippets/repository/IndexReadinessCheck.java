@@ -0,0 +1,40 @@
+package io.openepcis.snippets.repository;
+
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import static io.openepcis.snippets.constants.Constants.STORE_BACKEND_LUCENE;
+import static io.openepcis.snippets.constants.Constants.STORE_BACKEND_PROPERTY;
+
+/**
+ * Reports the replica as ready at {@code /q/health/ready} once the {@link IndexBootstrap} has created or updated
+ * the snippet index, so that no traffic is routed to it before. The embedded Lucene backend opens its index
+ * before the application starts and needs no check.
+ */
+@Readiness
+@ApplicationScoped
+@UnlessBuildProperty(name = STORE_BACKEND_PROPERTY, stringValue = STORE_BACKEND_LUCENE, enableIfMissing = true)
+public class IndexReadinessCheck implements HealthCheck {
+
+    static final String NAME = "snippet-index";
+
+    @Inject
+    IndexBootstrap indexBootstrap;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named(NAME)
+                .status(indexBootstrap.isReady())
+                .withData("attempts", indexBootstrap.attempts());
+        String lastError = indexBootstrap.lastError();
+        if (lastError != null) {
+            response.withData("lastError", lastError);
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,160 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.service.SynonymMode;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+import static io.openepcis.snippets.constants.Constants.*;
+
+/**
+ * The snippet index template with the configured synonym analysis applied.
+ * In {@link SynonymMode#INDEX} mode the synonym rules are compiled into a {@code synonym_graph} filter of a
+ * search analyzer for the text fields, and the template version and a hash of the rules are recorded in the
+ * mapping {@code _meta} so that an existing index can be brought up to date when either changes.
+ */
+final class IndexTemplate {
+
+    static final String SYNONYM_FILTER = "snippet_synonyms";
+    static final String SYNONYM_ANALYZER = "standard_stop_synonyms";
+    static final String SEARCH_ANALYZER = "search_analyzer";
+
+    private static final List<String> SYNONYM_FIELDS = List.of(TITLE, DESCRIPTION);
+
+    private final int version;
+    private final JsonObject settings;
+    private final JsonObject mappings;
+    private final String synonymsHash;
+
+    private IndexTemplate(int version, JsonObject settings, JsonObject mappings, String synonymsHash) {
+        this.version = version;
+        this.settings = settings;
+        this.mappings = mappings;
+        this.synonymsHash = synonymsHash;
+    }
+
+    /**
+     * Load the index template from the classpath and apply the synonym analysis for the given mode.
+     *
+     * @param synonymMode  Where synonyms are applied
+     * @param synonymRules The synonym rules, used in {@link SynonymMode#INDEX} mode only
+     * @return The index template
+     * @throws IOException if the template cannot be read
+     */
+    static IndexTemplate load(SynonymMode synonymMode, List<String> synonymRules) throws IOException {
+        final String templateContent;
+        try (InputStream templateStream = Objects.requireNonNull(
+                IndexTemplate.class.getClassLoader().getResourceAsStream(TEMPLATE_OPENEPCIS_SNIPPET_INDEX_TEMPLATE))) {
+            templateContent = new String(templateStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        try (JsonReader jsonReader = Json.createReader(new StringReader(templateContent))) {
+            final JsonObject templateFile = jsonReader.readObject();
+            final JsonObject templateObject = templateFile.getJsonObject(TEMPLATE);
+            final int version = templateFile.getInt(VERSION, 1);
+
+            if (synonymMode != SynonymMode.INDEX) {
+                return new IndexTemplate(version, templateObject.getJsonObject(SETTINGS),
+                        templateObject.getJsonObject(MAPPINGS), null);
+            }
+
+            final String synonymsHash = hash(synonymRules);
+            return new IndexTemplate(version,
+                    withSynonymAnalysis(templateObject.getJsonObject(SETTINGS), synonymRules),
+                    withSynonymSearchAnalyzer(templateObject.getJsonObject(MAPPINGS), synonymsHash),
+                    synonymsHash);
+        }
+    }
+
+    private static JsonObject withSynonymAnalysis(JsonObject settings, List<String> synonymRules) {
+        final JsonObject analysis = settings.getJsonObject(ANALYSIS);
+
+        final JsonObjectBuilder filters = Json.createObjectBuilder(analysis.getJsonObject("filter") != null
+                        ? analysis.getJsonObject("filter") : JsonValue.EMPTY_JSON_OBJECT)
+                .add(SYNONYM_FILTER, Json.createObjectBuilder()
+                        .add("type", "synonym_graph")
+                        .add("lenient", true)
+                        .add("synonyms", Json.createArrayBuilder(synonymRules)));
+
+        // Same chain as standard_stop, with synonyms expanded before stop words are removed
+        final JsonObjectBuilder analyzers = Json.createObjectBuilder(analysis.getJsonObject("analyzer"))
+                .add(SYNONYM_ANALYZER, Json.createObjectBuilder()
+                        .add("type", "custom")
+                        .add("tokenizer", "standard")
+                        .add("filter", Json.createArrayBuilder().add("lowercase").add(SYNONYM_FILTER).add("stop")));
+
+        return Json.createObjectBuilder(settings)
+                .add(ANALYSIS, Json.createObjectBuilder(analysis)
+                        .add("filter", filters)
+                        .add("analyzer", analyzers))
+                .build();
+    }
+
+    private static JsonObject withSynonymSearchAnalyzer(JsonObject mappings, String synonymsHash) {
+        final JsonObject properties = mappings.getJsonObject(PROPERTIES);
+        final JsonObjectBuilder updatedProperties = Json.createObjectBuilder(properties);
+        for (String field : SYNONYM_FIELDS) {
+            updatedProperties.add(field, Json.createObjectBuilder(properties.getJsonObject(field))
+                    .add(SEARCH_ANALYZER, SYNONYM_ANALYZER));
+        }
+
+        return Json.createObjectBuilder(mappings)
+                .add(META, Json.createObjectBuilder(mappings.getJsonObject(META))
+                        .add(META_SYNONYMS_HASH, synonymsHash))
+                .add(PROPERTIES, updatedProperties)
+                .build();
+    }
+
+    private static String hash(List<String> synonymRules) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String rule : synonymRules) {
+                digest.update(rule.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return The template version, bumped whenever mappings change in a way that requires a reindex
+     */
+    int version() {
+        return version;
+    }
+
+    /**
+     * @return The index settings, including analysis
+     */
+    JsonObject settings() {
+        return settings;
+    }
+
+    /**
+     * @return The index mappings, including {@code _meta}
+     */
+    JsonObject mappings() {
+        return mappings;
+    }
+
+    /**
+     * @return The hash of the compiled synonym rules, or null when synonyms are applied by the query builder
+     */
+    String synonymsHash() {
+        return synonymsHash;
+    }
+}
@@ -0,0 +1,14 @@
+package io.openepcis.snippets.repository;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the snippet index is outdated but another replica holds the upgrade lock.
+ * The bootstrap retries until the other replica has recorded the new template version.
+ */
+public class IndexUpgradeInProgressException extends IOException {
+
+    public IndexUpgradeInProgressException(String owner) {
+        super("Index upgrade in progress on " + owner);
+    }
+}
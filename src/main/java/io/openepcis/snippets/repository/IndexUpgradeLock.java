@@ -0,0 +1,38 @@
+package io.openepcis.snippets.repository;
+
+/**
+ * The lock document of an index upgrade, stored in the catalog index. It is created with {@code op_type=create},
+ * so only one replica at a time can hold it while the snippet index is closed and reopened.
+ */
+public class IndexUpgradeLock {
+
+    // The replica holding the lock, for logging only
+    private String owner;
+
+    // Epoch milliseconds when the lock was acquired
+    private long acquiredAt;
+
+    public IndexUpgradeLock() {
+    }
+
+    public IndexUpgradeLock(String owner, long acquiredAt) {
+        this.owner = owner;
+        this.acquiredAt = acquiredAt;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public long getAcquiredAt() {
+        return acquiredAt;
+    }
+
+    public void setAcquiredAt(long acquiredAt) {
+        this.acquiredAt = acquiredAt;
+    }
+}
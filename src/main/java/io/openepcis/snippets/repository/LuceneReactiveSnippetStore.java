@@ -0,0 +1,39 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.model.SnippetField;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static io.openepcis.snippets.constants.Constants.*;
+
+/**
+ * {@link ReactiveSnippetStore} of the embedded Lucene backend.
+ * Lucene searches are in-process and CPU-bound, so they are offloaded to the worker pool instead of
+ * blocking the event loop.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = STORE_BACKEND_PROPERTY, stringValue = STORE_BACKEND_LUCENE)
+public class LuceneReactiveSnippetStore implements ReactiveSnippetStore {
+
+    @Inject
+    SnippetStore snippetStore;
+
+    @Override
+    public Uni<SearchPage> search(String searchText, int size, Set<SnippetField> fields, String cursor) {
+        // Failed with the IOException itself, so that a busy store is still told apart from other failures
+        return Uni.createFrom().deferred(() -> {
+                    try {
+                        return Uni.createFrom().item(snippetStore.search(searchText, size, fields, cursor));
+                    } catch (IOException e) {
+                        return Uni.createFrom().<SearchPage>failure(e);
+                    }
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+}
@@ -0,0 +1,479 @@
+package io.openepcis.snippets.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openepcis.snippets.constants.Constants;
+import io.openepcis.snippets.model.BulkItemResult;
+import io.openepcis.snippets.model.CatalogVersion;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.service.SynonymService;
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static io.openepcis.snippets.constants.Constants.*;
+
+/**
+ * Embedded Lucene implementation of {@link SnippetStore} for single-node deployments.
+ * Uses the same analysis chain as the {@code standard_stop} analyzer of the OpenSearch index template
+ * (standard tokenizer, lowercase, English stop words) and mirrors the query built by the QueryBuilderService.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = STORE_BACKEND_PROPERTY, stringValue = STORE_BACKEND_LUCENE)
+@Slf4j
+public class LuceneSnippetStore implements SnippetStore {
+
+    private static final float TITLE_BOOST = 2.0f;
+    private static final int FUZZY_MAX_EXPANSIONS = 50;
+
+    // Keys of the catalog version in the commit user data of the index
+    private static final String CATALOG_GENERATION_KEY = "catalog.generation";
+    private static final String CATALOG_LAST_MODIFIED_KEY = "catalog.lastModified";
+    private static final String CATALOG_EPOCH_KEY = "catalog.epoch";
+
+    // Doc values of the $id live in their own field, so that indexes written without them keep a consistent schema
+    private static final String ID_SORT_FIELD = "$id.sort";
+
+    // Newest first, with the $id as tiebreaker so that search_after positions are unique
+    private static final Sort SEARCH_SORT = new Sort(
+            new SortField(Constants.CREATED_AT, SortField.Type.LONG, true),
+            new SortField(ID_SORT_FIELD, SortField.Type.STRING));
+
+    @ConfigProperty(name = "snippet.store.lucene.path", defaultValue = "data/snippets")
+    String indexPath;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    SynonymService synonymService;
+
+    private final Analyzer analyzer = new StandardAnalyzer(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+
+    // Writes are serialized with a lock instead of synchronized to avoid pinning virtual threads
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    /**
+     * Open the Lucene index at the configured path, creating it if it doesn't exist.
+     */
+    @PostConstruct
+    void initializeOnStartup() {
+        try {
+            open(FSDirectory.open(Path.of(indexPath)));
+            log.info("Opened Lucene snippet index at: {}", indexPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open Lucene snippet index at " + indexPath, e);
+        }
+    }
+
+    /**
+     * Open the store on the given directory.
+     *
+     * @param directory The Lucene directory holding the index
+     * @throws IOException if the index cannot be opened
+     */
+    void open(Directory directory) throws IOException {
+        this.directory = directory;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Release the searcher manager, writer and directory on shutdown.
+     */
+    @PreDestroy
+    void close() {
+        try {
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (IOException e) {
+            log.error("Error closing Lucene snippet index", e);
+        }
+    }
+
+    @Override
+    public String save(Snippet snippet, String sourceJson) throws IOException {
+        // Store the entire JSON in the source field
+        snippet.setSource(sourceJson);
+        Document document = toDocument(snippet);
+
+        // Check and add under the write lock, so that concurrent creates with the same $id cannot both succeed
+        writeLock.lock();
+        try {
+            if (snippet.getId() != null && existsById(snippet.getId())) {
+                throw new DuplicateSnippetException(snippet.getId());
+            }
+            writer.addDocument(document);
+            commit();
+            log.debug("Indexed snippet with $id: {}", snippet.getId());
+            return snippet.getId();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<BulkItemResult> saveAll(List<Snippet> snippets) throws IOException {
+        List<BulkItemResult> results = new ArrayList<>(snippets.size());
+        List<Document> documents = new ArrayList<>(snippets.size());
+
+        writeLock.lock();
+        try {
+            Set<String> batchIds = new HashSet<>();
+            for (Snippet snippet : snippets) {
+                String id = snippet.getId();
+                if (id != null && (existsById(id) || !batchIds.add(id))) {
+                    results.add(BulkItemResult.badRequest(id, DuplicateSnippetException.message(id)));
+                } else {
+                    documents.add(toDocument(snippet));
+                    results.add(BulkItemResult.created(id));
+                }
+            }
+            if (!documents.isEmpty()) {
+                writer.addDocuments(documents);
+                commit();
+            }
+            log.debug("Bulk indexed {} snippets", documents.size());
+        } finally {
+            writeLock.unlock();
+        }
+
+        return results;
+    }
+
+    @Override
+    public void delete(String id) throws IOException {
+        Term idTerm = new Term(Constants.ID, id);
+        writeLock.lock();
+        try {
+            if (count(new TermQuery(idTerm)) == 0) {
+                throw new IOException("Snippet with $id '" + id + "' not found");
+            }
+            writer.deleteDocuments(idTerm);
+            commit();
+            log.debug("Deleted snippet with $id: {}", id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(String id) throws IOException {
+        if (id == null || id.trim().isEmpty()) {
+            return false;
+        }
+        return count(new TermQuery(new Term(Constants.ID, id))) > 0;
+    }
+
+    @Override
+    public Optional<Snippet> findById(String id) throws IOException {
+        if (id == null || id.trim().isEmpty()) {
+            return Optional.empty();
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(new TermQuery(new Term(Constants.ID, id)), 1);
+            if (topDocs.scoreDocs.length == 0) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(readSnippet(searcher.storedFields(), topDocs.scoreDocs[0].doc));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public SearchPage search(String searchText, int size, Set<SnippetField> fields, String cursor) throws IOException {
+        FieldDoc after = cursor != null ? toFieldDoc(SearchCursor.decode(cursor)) : null;
+        int pageSize = size > 0 ? size : Constants.DEFAULT_LIMIT;
+        Query query = buildSearchQuery(searchText);
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = after == null
+                    ? searcher.search(query, pageSize, SEARCH_SORT)
+                    : searcher.searchAfter(after, query, pageSize, SEARCH_SORT);
+            StoredFields storedFields = searcher.storedFields();
+
+            List<Snippet> snippets = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Snippet snippet = readSnippet(storedFields, scoreDoc.doc);
+                if (snippet != null) {
+                    snippets.add(snippet.project(fields));
+                }
+            }
+
+            // A full page may be followed by another one
+            String nextCursor = null;
+            if (topDocs.scoreDocs.length == pageSize) {
+                nextCursor = toCursor((FieldDoc) topDocs.scoreDocs[pageSize - 1]).encode();
+            }
+            return new SearchPage(snippets, nextCursor);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public void export(int batchSize, Consumer<Snippet> sink) throws IOException {
+        Query query = new MatchAllDocsQuery();
+
+        // The searcher is held for the whole export, so all batches read the same point-in-time view
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            StoredFields storedFields = searcher.storedFields();
+            ScoreDoc after = null;
+            while (true) {
+                TopDocs topDocs = after == null
+                        ? searcher.search(query, batchSize, SEARCH_SORT)
+                        : searcher.searchAfter(after, query, batchSize, SEARCH_SORT);
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    Snippet snippet = readSnippet(storedFields, scoreDoc.doc);
+                    if (snippet != null) {
+                        sink.accept(snippet);
+                    }
+                }
+
+                // A partial batch is the last one
+                if (topDocs.scoreDocs.length < batchSize) {
+                    return;
+                }
+                after = topDocs.scoreDocs[batchSize - 1];
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Suggest snippets with a prefix query on the lowercased title and $id, which are indexed as single terms
+     * for this purpose. Snippets written before suggestions were introduced are not suggested.
+     */
+    @Override
+    public List<Snippet> suggest(String prefix, int size) throws IOException {
+        String lowercasePrefix = prefix.toLowerCase(Locale.ROOT);
+        Query query = new BooleanQuery.Builder()
+                .add(new PrefixQuery(new Term(TITLE_SUGGEST, lowercasePrefix)), BooleanClause.Occur.SHOULD)
+                .add(new PrefixQuery(new Term(ID_SUGGEST, lowercasePrefix)), BooleanClause.Occur.SHOULD)
+                .build();
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, size, SEARCH_SORT);
+            StoredFields storedFields = searcher.storedFields();
+            List<Snippet> suggestions = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Snippet snippet = readSnippet(storedFields, scoreDoc.doc);
+                if (snippet != null) {
+                    suggestions.add(snippet.project(SnippetField.SUGGESTION));
+                }
+            }
+            return suggestions;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Snippet readSnippet(StoredFields storedFields, int doc) throws IOException {
+        BytesRef source = storedFields.document(doc).getBinaryValue(LUCENE_SOURCE_FIELD);
+        return source != null ? objectMapper.readValue(source.bytes, source.offset, source.length, Snippet.class) : null;
+    }
+
+    /**
+     * Read the catalog version from the commit user data, which the writer loads from the last commit on open.
+     */
+    @Override
+    public CatalogVersion catalogVersion() {
+        Map<String, String> commitData = new HashMap<>();
+        Iterable<Map.Entry<String, String>> liveCommitData = writer.getLiveCommitData();
+        if (liveCommitData != null) {
+            liveCommitData.forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+        }
+        if (!commitData.containsKey(CATALOG_GENERATION_KEY)) {
+            return CatalogVersion.INITIAL;
+        }
+        // Written by versions without epochs, adopted as the empty epoch until the next bump assigns one
+        String epoch = commitData.getOrDefault(CATALOG_EPOCH_KEY, "");
+        return new CatalogVersion(epoch, Long.parseLong(commitData.get(CATALOG_GENERATION_KEY)),
+                Instant.ofEpochMilli(Long.parseLong(commitData.get(CATALOG_LAST_MODIFIED_KEY))));
+    }
+
+    /**
+     * Store the next catalog version in the commit user data and commit it. The first bump of an index
+     * directory starts a new epoch, so that the generation of a recreated directory cannot repeat a former one.
+     */
+    @Override
+    public CatalogVersion bumpCatalogVersion() throws IOException {
+        writeLock.lock();
+        try {
+            CatalogVersion previous = catalogVersion();
+            String epoch = previous.epoch().isEmpty() ? UUID.randomUUID().toString() : previous.epoch();
+            CatalogVersion next = new CatalogVersion(epoch, previous.generation() + 1, Instant.now());
+            writer.setLiveCommitData(Map.of(
+                    CATALOG_EPOCH_KEY, next.epoch(),
+                    CATALOG_GENERATION_KEY, String.valueOf(next.generation()),
+                    CATALOG_LAST_MODIFIED_KEY, String.valueOf(next.lastModified().toEpochMilli())).entrySet());
+            commit();
+            return next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static SearchCursor toCursor(FieldDoc last) {
+        BytesRef id = (BytesRef) last.fields[1];
+        return new SearchCursor(null, List.of(String.valueOf(last.fields[0]), id != null ? id.utf8ToString() : ""));
+    }
+
+    private static FieldDoc toFieldDoc(SearchCursor cursor) throws IllegalArgumentException {
+        try {
+            long createdAt = Long.parseLong(cursor.sortValues().get(0));
+            BytesRef id = new BytesRef(cursor.sortValues().get(1));
+            // The $id is unique, so the document number never decides the order
+            return new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[]{createdAt, id});
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private Document toDocument(Snippet snippet) throws IOException {
+        Document document = new Document();
+        if (snippet.getId() != null) {
+            document.add(new StringField(Constants.ID, snippet.getId(), Field.Store.NO));
+            document.add(new SortedDocValuesField(ID_SORT_FIELD, new BytesRef(snippet.getId())));
+            document.add(new StringField(ID_SUGGEST, snippet.getId().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (snippet.getTitle() != null) {
+            document.add(new TextField(Constants.TITLE, snippet.getTitle(), Field.Store.NO));
+            document.add(new StringField(TITLE_SUGGEST, snippet.getTitle().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (snippet.getDescription() != null) {
+            document.add(new TextField(Constants.DESCRIPTION, snippet.getDescription(), Field.Store.NO));
+        }
+        document.add(new NumericDocValuesField(Constants.CREATED_AT,
+                snippet.getCreatedAt() != null ? snippet.getCreatedAt().toEpochMilli() : 0L));
+        document.add(new StoredField(LUCENE_SOURCE_FIELD, new BytesRef(objectMapper.writeValueAsBytes(snippet))));
+        return document;
+    }
+
+    /**
+     * Build a Lucene query equivalent to the OpenSearch query of the QueryBuilderService:
+     * fuzzy term matches and substring wildcards on title and description, for the search text and its synonyms.
+     *
+     * @param searchText The text to search for
+     * @return The Lucene query
+     * @throws IOException if the search text cannot be analyzed
+     */
+    Query buildSearchQuery(String searchText) throws IOException {
+        if (searchText == null || searchText.trim().isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+
+        BooleanQuery.Builder boolQuery = new BooleanQuery.Builder();
+        addTextQueries(searchText, boolQuery);
+
+        String original = searchText.toLowerCase().trim();
+        Set<String> synonyms = synonymService.getSynonyms(searchText);
+        for (String synonym : synonyms) {
+            if (!synonym.equals(original)) {
+                addTextQueries(synonym, boolQuery);
+            }
+        }
+
+        boolQuery.setMinimumNumberShouldMatch(Integer.parseInt(Constants.MINIMUM_SHOULD_MATCH));
+        return boolQuery.build();
+    }
+
+    /**
+     * Add fuzzy and wildcard clauses for one text on both title and description.
+     *
+     * @param text      The text to search for
+     * @param boolQuery The bool query to add to
+     * @throws IOException if the text cannot be analyzed
+     */
+    private void addTextQueries(String text, BooleanQuery.Builder boolQuery) throws IOException {
+        String wildcardPattern = "*" + text.toLowerCase() + "*";
+        for (String field : List.of(Constants.TITLE, Constants.DESCRIPTION)) {
+            float boost = Constants.TITLE.equals(field) ? TITLE_BOOST : 1.0f;
+            for (String term : analyze(field, text)) {
+                Query fuzzy = new FuzzyQuery(new Term(field, term), Integer.parseInt(Constants.FUZZINESS_LEVEL),
+                        Constants.PREFIX_LENGTH, FUZZY_MAX_EXPANSIONS, true);
+                boolQuery.add(new BoostQuery(fuzzy, boost), BooleanClause.Occur.SHOULD);
+            }
+            Query wildcard = new WildcardQuery(new Term(field, wildcardPattern));
+            boolQuery.add(new BoostQuery(wildcard, boost), BooleanClause.Occur.SHOULD);
+        }
+    }
+
+    private List<String> analyze(String field, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                terms.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        }
+        return terms;
+    }
+
+    private int count(Query query) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(query);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private void commit() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+}
@@ -0,0 +1,82 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Records the round trip of OpenSearch client requests, tagged by operation and outcome, for both the blocking
+ * and the asynchronous client. Time spent waiting for a permit of the {@link OpenSearchRequestLimiter} is not
+ * part of the round trip.
+ */
+@ApplicationScoped
+public class OpenSearchMetrics {
+
+    public static final String REQUEST_METRIC = "snippet.opensearch.requests";
+
+    static final String SUCCESS = "success";
+    static final String NOT_FOUND = "not_found";
+    static final String CONFLICT = "conflict";
+    static final String ERROR = "error";
+
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_CONFLICT = 409;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    /**
+     * @return A sample to be stopped when the response or failure of the request arrives
+     */
+    Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Record the round trip of a request.
+     *
+     * @param sample    The sample started when the request was sent
+     * @param operation The client operation, e.g. {@code search} or {@code create}
+     * @param failure   The failure of the request, or null if it succeeded
+     */
+    void stop(Timer.Sample sample, String operation, Throwable failure) {
+        sample.stop(Timer.builder(REQUEST_METRIC)
+                .description("Round trip of OpenSearch client requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome(failure))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Classify the result of a request. Missing documents and version conflicts are expected answers of some
+     * operations and are kept apart from errors.
+     *
+     * @param failure The failure of the request, or null if it succeeded
+     * @return The outcome tag
+     */
+    static String outcome(Throwable failure) {
+        if (failure == null) {
+            return SUCCESS;
+        }
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || cause instanceof UncheckedIOException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof OpenSearchException e) {
+            return switch (e.status()) {
+                case HTTP_NOT_FOUND -> NOT_FOUND;
+                case HTTP_CONFLICT -> CONFLICT;
+                default -> ERROR;
+            };
+        }
+        return ERROR;
+    }
+}
@@ -0,0 +1,168 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of requests the service has in flight against OpenSearch.
+ * Without a bound, every waiting request handler adds a request, which is cheap with virtual threads but lets a
+ * surge of clients fill the search thread pool of the cluster. Requests beyond the limit wait for a permit for at
+ * most the acquire timeout and then fail with a {@link StoreBusyException}.
+ * <p>
+ * The blocking client waits for responses in a synchronized {@code Object.wait()} of the HTTP client, which pins
+ * the carrier of a virtual thread. The scheduler compensates with additional carriers, up to
+ * {@code jdk.virtualThreadScheduler.maxPoolSize} (256 by default), so the limit is kept below that value.
+ * <p>
+ * Requests of the asynchronous client share the same permits. They take a free permit on the calling thread
+ * without blocking it; when none is free, the wait is moved to a virtual thread so that the event loop is never
+ * blocked, and the permit is returned when the request completes, fails or is cancelled.
+ */
+@ApplicationScoped
+@Slf4j
+public class OpenSearchRequestLimiter {
+
+    public static final String IN_FLIGHT_METRIC = "snippet.opensearch.requests.in.flight";
+
+    @ConfigProperty(name = "snippet.opensearch.max-concurrent-requests", defaultValue = "64")
+    int maxConcurrentRequests;
+
+    @ConfigProperty(name = "snippet.opensearch.acquire-timeout", defaultValue = "5s")
+    Duration acquireTimeout;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    OpenSearchMetrics metrics;
+
+    private Semaphore permits;
+
+    // Waits for permits on behalf of asynchronous requests, off the event loop
+    private ExecutorService asyncWaiters;
+
+    /**
+     * A blocking request to OpenSearch.
+     */
+    @FunctionalInterface
+    public interface Request<T> {
+        T execute() throws IOException;
+    }
+
+    /**
+     * Create the permits and publish the number of requests in flight.
+     */
+    @PostConstruct
+    void init() {
+        // Fair, so that waiting requests are served in arrival order under sustained load
+        permits = new Semaphore(maxConcurrentRequests, true);
+        asyncWaiters = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("opensearch-permit-", 0).factory());
+        Gauge.builder(IN_FLIGHT_METRIC, permits, p -> maxConcurrentRequests - p.availablePermits())
+                .description("OpenSearch requests in flight")
+                .register(meterRegistry);
+        log.info("Limiting concurrent OpenSearch requests to {}", maxConcurrentRequests);
+    }
+
+    /**
+     * Execute a request once a permit is available and record its round trip.
+     *
+     * @param operation The client operation, used to tag the round trip
+     * @param request   The request to execute
+     * @return The response of the request
+     * @throws StoreBusyException if no permit became available within the acquire timeout
+     * @throws IOException if the request fails or the waiting thread is interrupted
+     */
+    public <T> T execute(String operation, Request<T> request) throws IOException {
+        acquire(acquireTimeout.toNanos());
+        Timer.Sample sample = metrics.start();
+        Throwable failure = null;
+        try {
+            return request.execute();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            permits.release();
+            metrics.stop(sample, operation, failure);
+        }
+    }
+
+    /**
+     * Execute an asynchronous request once a permit is available and record its round trip, without blocking
+     * the calling thread.
+     *
+     * @param operation The client operation, used to tag the round trip
+     * @param request   Creates the Uni sending the request, called once a permit has been taken
+     * @return A Uni completing with the response of the request, failing with a {@link StoreBusyException} if no
+     * permit became available within the acquire timeout
+     */
+    public <T> Uni<T> executeAsync(String operation, Supplier<Uni<T>> request) {
+        return Uni.createFrom().deferred(this::acquireAsync).chain(() -> {
+            Timer.Sample sample = metrics.start();
+            return Uni.createFrom().deferred(request)
+                    .onItemOrFailure().invoke((response, failure) -> metrics.stop(sample, operation, failure))
+                    .onTermination().invoke(permits::release);
+        });
+    }
+
+    /**
+     * @return A Uni completing once a permit has been taken, immediately if one is free
+     */
+    private Uni<Void> acquireAsync() {
+        try {
+            // Zero timeout rather than tryAcquire(), which would overtake requests already waiting
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return Uni.createFrom().voidItem();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Uni.createFrom().failure(new InterruptedIOException("Interrupted while taking an OpenSearch request permit"));
+        }
+        return Uni.createFrom().emitter(emitter -> asyncWaiters.execute(() -> {
+            try {
+                acquire(acquireTimeout.toNanos());
+            } catch (IOException e) {
+                emitter.fail(e);
+                return;
+            }
+            if (emitter.isCancelled()) {
+                permits.release();
+            } else {
+                emitter.complete(null);
+            }
+        }));
+    }
+
+    /**
+     * Wait for a permit.
+     *
+     * @param timeoutNanos How long to wait at most
+     * @throws StoreBusyException if no permit became available within the timeout
+     * @throws InterruptedIOException if the waiting thread is interrupted
+     */
+    private void acquire(long timeoutNanos) throws IOException {
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new StoreBusyException(maxConcurrentRequests);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an OpenSearch request permit");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.configuration.DurationConverter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the points in time this replica has opened for search cursors and exports, and caps their number.
+ * Every cursor chain opens one point-in-time when its second page is requested and reuses it for all following
+ * pages, and it is closed when the last page has been read. A client that stops paging leaves its point-in-time
+ * open until the keep-alive expires, so a crawler starting many cursor chains could otherwise exhaust
+ * {@code search.max_open_pit_context} of the cluster and break paged searches for everyone.
+ * <p>
+ * Opening a point-in-time beyond {@code snippet.search.max-open-cursors} fails with a {@link StoreBusyException}
+ * and so does a point-in-time rejected by the cluster for its own limit. Keep the cap of all replicas together
+ * below the cluster limit. Concurrent requests may exceed the cap by the number of requests opening a
+ * point-in-time at the same moment.
+ */
+@ApplicationScoped
+public class PointInTimeTracker {
+
+    public static final String OPEN_METRIC = "snippet.search.cursors.open";
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    @ConfigProperty(name = "snippet.search.max-open-cursors", defaultValue = "100")
+    int maxOpenCursors;
+
+    @ConfigProperty(name = "snippet.search.cursor-keep-alive", defaultValue = "1m")
+    String cursorKeepAlive;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    // Expiry in System.nanoTime() of each open point-in-time
+    private final Map<String, Long> open = new ConcurrentHashMap<>();
+    private long keepAliveNanos;
+
+    /**
+     * Publish the number of open points in time.
+     */
+    @PostConstruct
+    void init() {
+        keepAliveNanos = DurationConverter.parseDuration(cursorKeepAlive).toNanos();
+        Gauge.builder(OPEN_METRIC, open, Map::size)
+                .description("Points in time opened for search cursors and not yet closed or expired")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check that another point-in-time may be opened. Points in time whose keep-alive has passed are forgotten.
+     *
+     * @throws StoreBusyException if the cap of open points in time is reached
+     */
+    public void checkCapacity() throws StoreBusyException {
+        final long now = System.nanoTime();
+        open.values().removeIf(expiresAt -> expiresAt - now < 0);
+        if (open.size() >= maxOpenCursors) {
+            throw tooManyCursors();
+        }
+    }
+
+    /**
+     * @param pitId A point-in-time that was opened or read from, which extends its keep-alive
+     */
+    public void used(String pitId) {
+        open.put(pitId, System.nanoTime() + keepAliveNanos);
+    }
+
+    /**
+     * @param pitId A point-in-time that was closed
+     */
+    public void closed(String pitId) {
+        open.remove(pitId);
+    }
+
+    /**
+     * @param e The failure of opening a point-in-time
+     * @return true if the cluster rejected the point-in-time because its limit of open contexts is reached
+     */
+    public boolean isRejected(OpenSearchException e) {
+        return e.status() == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * @return The failure reported when no further point-in-time may be opened
+     */
+    public StoreBusyException tooManyCursors() {
+        return new StoreBusyException("Too many open search cursors, limit is " + maxOpenCursors);
+    }
+}
@@ -0,0 +1,148 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.constants.Constants;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.service.QueryBuilderService;
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch.core.pit.CreatePitResponse;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static io.openepcis.snippets.constants.Constants.*;
+
+/**
+ * Non-blocking search on the {@link OpenSearchAsyncClient}.
+ * Requests are built exactly like those of the {@link SnippetRepository}, so both paths return the same pages
+ * and accept each other's cursors, but no thread waits while OpenSearch answers. Requests share the permits of
+ * the {@link OpenSearchRequestLimiter} with the blocking client, so both paths together stay within its bound.
+ */
+@ApplicationScoped
+@UnlessBuildProperty(name = STORE_BACKEND_PROPERTY, stringValue = STORE_BACKEND_LUCENE, enableIfMissing = true)
+@Slf4j
+public class ReactiveSnippetRepository implements ReactiveSnippetStore {
+
+    @Inject
+    OpenSearchAsyncClient client;
+
+    @Inject
+    QueryBuilderService queryBuilder;
+
+    @Inject
+    OpenSearchRequestLimiter limiter;
+
+    @Inject
+    PointInTimeTracker pointsInTime;
+
+    @ConfigProperty(name = "snippet.search.cursor-keep-alive", defaultValue = "1m")
+    String cursorKeepAlive;
+
+    /**
+     * An asynchronous client call, which may fail to send its request.
+     */
+    @FunctionalInterface
+    interface AsyncCall<T> {
+        CompletableFuture<T> execute() throws IOException;
+    }
+
+    @Override
+    public Uni<SearchPage> search(String searchText, int size, Set<SnippetField> fields, String cursor) {
+        final SearchCursor after;
+        try {
+            after = cursor != null ? SearchCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
+        final int pageSize = size > 0 ? size : Constants.DEFAULT_LIMIT;
+        final Query query = queryBuilder.buildSearchQuery(searchText);
+
+        // Read following pages from a point-in-time instead of the live index
+        final boolean opened = after != null && after.pitId() == null;
+        final Uni<String> pit = opened
+                ? openPointInTime()
+                : Uni.createFrom().item(after != null ? after.pitId() : null);
+
+        return pit.chain(pitId -> call("search", () -> client.search(
+                        SnippetRepository.searchRequest(query, pageSize, fields, pitId, after, cursorKeepAlive), Snippet.class))
+                        .map(response -> SnippetRepository.toSearchPage(response.hits().hits(), pageSize, fields, pitId))
+                        .invoke(page -> {
+                            // The last page closes the point-in-time, otherwise its keep-alive was extended by the search
+                            if (pitId != null && page.nextCursor() == null) {
+                                closePointInTime(pitId);
+                            } else if (pitId != null) {
+                                pointsInTime.used(pitId);
+                            }
+                        })
+                        .onFailure().invoke(e -> {
+                            if (opened) {
+                                closePointInTime(pitId);
+                            }
+                        }))
+                .onFailure(OpenSearchException.class).transform(e -> {
+                    if (SnippetRepository.isExpiredCursor((OpenSearchException) e, after)) {
+                        pointsInTime.closed(after.pitId());
+                        return new IllegalArgumentException("Cursor has expired");
+                    }
+                    log.error("Error searching snippets: {}", e.getMessage(), e);
+                    return e;
+                });
+    }
+
+    /**
+     * Open a point-in-time on the snippet index, within the cap of open points in time.
+     *
+     * @return A Uni completing with the ID of the point-in-time, failing with a {@link StoreBusyException} if too
+     * many points in time are open
+     */
+    private Uni<String> openPointInTime() {
+        return Uni.createFrom().deferred(() -> {
+            try {
+                pointsInTime.checkCapacity();
+            } catch (StoreBusyException e) {
+                return Uni.createFrom().failure(e);
+            }
+            return call("create_pit", () -> client.createPit(SnippetRepository.pointInTimeRequest(cursorKeepAlive)))
+                    .map(CreatePitResponse::pitId)
+                    .invoke(pointsInTime::used)
+                    .onFailure(OpenSearchException.class).transform(e -> pointsInTime.isRejected((OpenSearchException) e)
+                            ? pointsInTime.tooManyCursors() : e);
+        });
+    }
+
+    private void closePointInTime(String pitId) {
+        pointsInTime.closed(pitId);
+        // Fire and forget, the point-in-time expires on its own after the keep-alive
+        call("delete_pit", () -> client.deletePit(d -> d.pitId(pitId))).subscribe().with(
+                response -> log.debug("Closed point-in-time {}", pitId),
+                e -> log.debug("Failed to close point-in-time {}: {}", pitId, e.getMessage()));
+    }
+
+    /**
+     * Wrap an asynchronous client call, deferring the request until the Uni is subscribed and a permit of the
+     * limiter is available, and record its round trip.
+     *
+     * @param operation The client operation, used to tag the round trip
+     * @param call      The client call
+     * @return A Uni completing with the response of the call, failing with a {@link StoreBusyException} if no
+     * permit became available within the acquire timeout
+     */
+    private <T> Uni<T> call(String operation, AsyncCall<T> call) {
+        return limiter.executeAsync(operation, () -> {
+            try {
+                return Uni.createFrom().completionStage(call.execute());
+            } catch (IOException e) {
+                return Uni.createFrom().<T>failure(e);
+            }
+        });
+    }
+}
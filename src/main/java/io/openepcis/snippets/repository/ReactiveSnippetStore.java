@@ -0,0 +1,27 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.model.SnippetField;
+import io.smallrye.mutiny.Uni;
+
+import java.util.Set;
+
+/**
+ * Non-blocking read access to the snippet store, for endpoints that run on the event loop.
+ * The OpenSearch backend uses {@link ReactiveSnippetRepository} on the asynchronous client, the embedded Lucene
+ * backend uses {@link LuceneReactiveSnippetStore}, which offloads the blocking {@link SnippetStore} to worker threads.
+ */
+public interface ReactiveSnippetStore {
+
+    /**
+     * Search for one page of snippets, with the same ordering and cursor format as
+     * {@link SnippetStore#search(String, int, Set, String)}.
+     *
+     * @param searchText The text to search for (optional)
+     * @param size       The maximum number of results of the page
+     * @param fields     The fields to return
+     * @param cursor     The cursor returned with the previous page, or null for the first page
+     * @return The page of matching snippets, failing with an IllegalArgumentException if the cursor is invalid
+     * or has expired
+     */
+    Uni<SearchPage> search(String searchText, int size, Set<SnippetField> fields, String cursor);
+}
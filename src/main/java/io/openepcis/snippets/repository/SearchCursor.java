@@ -0,0 +1,63 @@
+package io.openepcis.snippets.repository;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a paged search, handed to clients as an opaque URL-safe token.
+ * Holds the sort values of the last hit of a page, used as {@code search_after} for the next page, and the
+ * point-in-time the following pages are read from, if one has been opened.
+ *
+ * @param pitId      The point-in-time ID, or null before one has been opened
+ * @param sortValues The sort values of the last hit, in sort order
+ */
+record SearchCursor(String pitId, List<String> sortValues) {
+
+    private static final String PIT = "p";
+    private static final String SEARCH_AFTER = "s";
+
+    /**
+     * @return The cursor encoded as an opaque token
+     */
+    String encode() {
+        final JsonArrayBuilder values = Json.createArrayBuilder();
+        sortValues.forEach(values::add);
+        final JsonObjectBuilder cursor = Json.createObjectBuilder().add(SEARCH_AFTER, values);
+        if (pitId != null) {
+            cursor.add(PIT, pitId);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.build().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor token.
+     *
+     * @param token The token returned with a previous page
+     * @return The cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    static SearchCursor decode(String token) throws IllegalArgumentException {
+        try (JsonReader reader = Json.createReader(new StringReader(
+                new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)))) {
+            final JsonObject cursor = reader.readObject();
+            final List<String> sortValues = cursor.getJsonArray(SEARCH_AFTER)
+                    .getValuesAs(JsonString.class).stream()
+                    .map(JsonString::getString)
+                    .toList();
+            return new SearchCursor(cursor.getString(PIT, null), sortValues);
+        } catch (IllegalArgumentException | JsonException | ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.model.Snippet;
+
+import java.util.List;
+
+/**
+ * One page of search results.
+ *
+ * @param snippets   The snippets of the page, newest first
+ * @param nextCursor The opaque cursor of the next page, or null if this is the last page
+ */
+public record SearchPage(List<Snippet> snippets, String nextCursor) {
+}
@@ -1,43 +1,81 @@
 package io.openepcis.snippets.repository;
 
 import io.openepcis.snippets.constants.Constants;
+import io.openepcis.snippets.model.BulkItemResult;
+import io.openepcis.snippets.model.CatalogVersion;
 import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
 import io.openepcis.snippets.service.QueryBuilderService;
-import jakarta.annotation.PostConstruct;
+import io.openepcis.snippets.service.SynonymMode;
+import io.openepcis.snippets.service.SynonymService;
+import io.quarkus.arc.properties.UnlessBuildProperty;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
-import jakarta.json.JsonReader;
+import jakarta.json.JsonObjectBuilder;
 import jakarta.json.stream.JsonParser;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.json.JsonpDeserializer;
 import org.opensearch.client.json.JsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.Conflicts;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.Refresh;
+import org.opensearch.client.opensearch._types.Result;
 import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch._types.Time;
 import org.opensearch.client.opensearch._types.mapping.TypeMapping;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch.core.*;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.pit.CreatePitRequest;
+import org.opensearch.client.opensearch.core.pit.CreatePitResponse;
+import org.opensearch.client.opensearch.core.search.CompletionSuggestOption;
 import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.search.Suggest;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.opensearch.indices.ExistsRequest;
+import org.opensearch.client.opensearch.indices.GetIndicesSettingsResponse;
 import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndexState;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
 
 import static io.openepcis.snippets.constants.Constants.*;
 
 /**
  * Repository for Snippet entities.
  * Handles interactions with OpenSearch for CRUD operations on Snippet entities.
+ * This is the default {@link SnippetStore} backend.
  */
 @ApplicationScoped
+@UnlessBuildProperty(name = STORE_BACKEND_PROPERTY, stringValue = STORE_BACKEND_LUCENE, enableIfMissing = true)
 @Slf4j
-public class SnippetRepository {
+public class SnippetRepository implements SnippetStore {
+
+    private static final int MAX_DOCUMENT_ID_BYTES = 512;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_CONFLICT = 409;
+    private static final String INDEX_UUID_SETTING = "index.uuid";
+
+    // Names of the completion suggesters, title suggestions are listed before $id suggestions
+    static final String TITLE_SUGGESTER = "title";
+    static final String ID_SUGGESTER = "id";
+
+    // Identifies this replica in the index upgrade lock
+    private static final String UPGRADE_LOCK_OWNER = ManagementFactory.getRuntimeMXBean().getName();
 
     @Inject
     OpenSearchClient client;
@@ -45,121 +83,382 @@ public class SnippetRepository {
     @Inject
     QueryBuilderService queryBuilder;
 
+    @Inject
+    OpenSearchRequestLimiter limiter;
+
+    @Inject
+    SynonymService synonymService;
+
+    @Inject
+    PointInTimeTracker pointsInTime;
+
+    @ConfigProperty(name = "snippet.search.synonyms.mode", defaultValue = "query")
+    SynonymMode synonymMode;
+
+    @ConfigProperty(name = "snippet.search.cursor-keep-alive", defaultValue = "1m")
+    String cursorKeepAlive;
+
+    @ConfigProperty(name = "snippet.opensearch.bootstrap.upgrade-lock-timeout", defaultValue = "5m")
+    Duration upgradeLockTimeout;
+
+    // Refresh policy of single creates and deletes, wait-for holds the response until the change is searchable
+    @ConfigProperty(name = "snippet.opensearch.refresh.write", defaultValue = "wait-for")
+    Refresh writeRefresh;
+
+    // Refresh policy of bulk creates, false returns at once and the snippets become searchable with the next refresh
+    @ConfigProperty(name = "snippet.opensearch.refresh.bulk", defaultValue = "false")
+    Refresh bulkRefresh;
+
     /**
-     * Initialize the repository by creating the index if it doesn't exist.
-     * This method is called automatically when the bean is constructed.
+     * Create the snippet index if it doesn't exist, or bring an existing index up to date with the index template.
+     * Called by the {@link IndexBootstrap} in the background until it succeeds. A call that failed, or lost the race
+     * to create the index against another replica, is repeated from the state the index is in by then.
+     *
+     * @throws IOException if there is an error communicating with OpenSearch
      */
-    @PostConstruct
-    void initializeOnStartup() {
-        try {
-            // Check if the index exists
-            boolean exists = client.indices().exists(
-                    new ExistsRequest.Builder()
-                            .index(Constants.INDEX_NAME)
-                            .build()
-            ).value();
-
-            // Create the index if it doesn't exist
-            if (!exists) {
-                createSnippetsIndex();
-                log.info("Created OpenSearch index: {}", Constants.INDEX_NAME);
-            } else {
-                log.info("OpenSearch index already exists: {}", Constants.INDEX_NAME);
-            }
-        } catch (IOException e) {
-            log.error("Failed to initialize OpenSearch index", e);
+    void bootstrapIndex() throws IOException {
+        final IndexTemplate template = IndexTemplate.load(synonymMode, synonymService.getSynonymRules());
+
+        // Check if the index exists
+        boolean exists = client.indices().exists(
+                new ExistsRequest.Builder()
+                        .index(Constants.INDEX_NAME)
+                        .build()
+        ).value();
+
+        // Create the index if it doesn't exist
+        if (!exists) {
+            createSnippetsIndex(template);
+            log.info("Created OpenSearch index: {}", Constants.INDEX_NAME);
+        } else {
+            log.info("OpenSearch index already exists: {}", Constants.INDEX_NAME);
+            updateSnippetsIndexIfOutdated(template);
         }
     }
 
     /**
      * Create the snippet index with appropriate settings and mappings from the template file.
      *
+     * @param template The index template
      * @throws IOException if there is an error creating the index
      */
-    private void createSnippetsIndex() throws IOException {
-        // Get the JsonpMapper from the client
-        final JsonpMapper mapper = client._transport().jsonpMapper();
+    private void createSnippetsIndex(IndexTemplate template) throws IOException {
+        // Deserialize the mappings and settings into their client representations
+        final TypeMapping mappings = deserialize(TypeMapping._DESERIALIZER, template.mappings());
+        final IndexSettings settings = deserialize(IndexSettings._DESERIALIZER, template.settings());
+
+        // Create the index with both settings and mappings
+        final CreateIndexRequest request = new CreateIndexRequest.Builder()
+                .index(Constants.INDEX_NAME)
+                .mappings(mappings)
+                .settings(settings).build();
+
+        client.indices().create(request);
+    }
 
-        // Read the template file from resources
-        final String templateContent = new String(
-                Objects.requireNonNull(
-                        getClass().getClassLoader().getResourceAsStream(TEMPLATE_OPENEPCIS_SNIPPET_INDEX_TEMPLATE)
-                ).readAllBytes()
-        );
+    /**
+     * Compare the template version and synonym hash recorded in the index mapping with the current template.
+     * A changed synonym dictionary only affects the search analyzer, so the analysis settings and mappings are
+     * updated in place. A changed template version additionally re-indexes all documents in the background,
+     * so that new fields and analyzers are applied to existing snippets.
+     * <p>
+     * Updating the analysis closes the shared index for a moment, so only the replica holding the upgrade lock
+     * performs it. Other replicas fail with {@link IndexUpgradeInProgressException} and are retried by the
+     * {@link IndexBootstrap} until the new version is recorded in the mapping.
+     *
+     * @param template The current index template
+     * @throws IndexUpgradeInProgressException if another replica is upgrading the index
+     * @throws IOException if there is an error updating the index
+     */
+    private void updateSnippetsIndexIfOutdated(IndexTemplate template) throws IOException {
+        if (!isOutdated(template)) {
+            return;
+        }
 
-        // Parse the template JSON to extract both settings and mappings
-        try (JsonReader jsonReader = Json.createReader(new StringReader(templateContent))) {
+        acquireUpgradeLock();
+        try {
+            upgradeSnippetsIndex(template);
+        } finally {
+            releaseUpgradeLock();
+        }
+    }
 
-            final JsonObject templateObject = jsonReader.readObject().getJsonObject(TEMPLATE);
+    /**
+     * @param template The current index template
+     * @return true if the template version or synonym hash recorded in the index mapping differs from the template
+     * @throws IOException if there is an error reading the mapping
+     */
+    private boolean isOutdated(IndexTemplate template) throws IOException {
+        final Map<String, JsonData> meta = readIndexMeta();
+        return indexVersion(meta) < template.version() || synonymsChanged(meta, template);
+    }
 
-            // Extract settings JSON
-            final JsonObject settingsJson = templateObject.getJsonObject(SETTINGS);
+    private Map<String, JsonData> readIndexMeta() throws IOException {
+        return client.indices()
+                .getMapping(g -> g.index(Constants.INDEX_NAME))
+                .result().get(Constants.INDEX_NAME).mappings().meta();
+    }
 
-            // Extract mappings JSON
-            final JsonObject mappingsJson = templateObject.getJsonObject(MAPPINGS);
+    private static int indexVersion(Map<String, JsonData> meta) {
+        return meta.containsKey(META_TEMPLATE_VERSION) ? meta.get(META_TEMPLATE_VERSION).to(Integer.class) : 1;
+    }
 
-            // Create a JsonParser to parse the mappings
-            final JsonParser mappingsParser = mapper.jsonProvider()
-                    .createParser(new StringReader(mappingsJson.toString()));
+    private static boolean synonymsChanged(Map<String, JsonData> meta, IndexTemplate template) {
+        final String indexSynonymsHash = meta.containsKey(META_SYNONYMS_HASH)
+                ? meta.get(META_SYNONYMS_HASH).to(String.class) : null;
+        return template.synonymsHash() != null && !template.synonymsHash().equals(indexSynonymsHash);
+    }
 
-            // Create a JsonParser to parse the mappings
-            final JsonParser settingParser = mapper.jsonProvider()
-                    .createParser(new StringReader(settingsJson.toString()));
+    /**
+     * Apply the current template to the existing index. Must only be called while holding the upgrade lock.
+     *
+     * @param template The current index template
+     * @throws IOException if there is an error updating the index
+     */
+    private void upgradeSnippetsIndex(IndexTemplate template) throws IOException {
+        // Read again, another replica may have finished the upgrade before the lock was acquired
+        final Map<String, JsonData> meta = readIndexMeta();
+        final int indexVersion = indexVersion(meta);
+        final boolean versionChanged = indexVersion < template.version();
+        final boolean synonymsChanged = synonymsChanged(meta, template);
+        if (!versionChanged && !synonymsChanged) {
+            return;
+        }
 
-            // Deserialize the mappings into a TypeMapping object
-            final TypeMapping mappings = TypeMapping._DESERIALIZER.deserialize(mappingsParser, mapper);
+        log.info("Updating OpenSearch index {} from template version {} to {}{}", Constants.INDEX_NAME,
+                indexVersion, template.version(), synonymsChanged ? " with changed synonyms" : "");
 
-            final IndexSettings settings = IndexSettings._DESERIALIZER.deserialize(settingParser, mapper);
+        final IndexSettings analysis = deserialize(IndexSettings._DESERIALIZER, analysisSettings(template));
+        final TypeMapping mappings = deserialize(TypeMapping._DESERIALIZER, template.mappings());
 
-            // Create the index with both settings and mappings
-            final CreateIndexRequest request = new CreateIndexRequest.Builder()
-                    .index(Constants.INDEX_NAME)
-                    .mappings(mappings)
-                    .settings(settings).build();
+        // Analysis settings can only be changed on a closed index
+        client.indices().close(c -> c.index(Constants.INDEX_NAME));
+        try {
+            client.indices().putSettings(p -> p.index(Constants.INDEX_NAME).settings(analysis));
+        } finally {
+            client.indices().open(o -> o.index(Constants.INDEX_NAME));
+        }
+        client.indices().putMapping(p -> p.index(Constants.INDEX_NAME)
+                .properties(mappings.properties())
+                .meta(mappings.meta()));
+
+        if (versionChanged) {
+            client.updateByQuery(u -> u.index(Constants.INDEX_NAME)
+                    .conflicts(Conflicts.Proceed)
+                    .waitForCompletion(false));
+            log.info("Started background reindex of OpenSearch index: {}", Constants.INDEX_NAME);
+        }
+    }
+
+    /**
+     * @param template The current index template
+     * @return The analysis settings of the template, with the index settings the analysis depends on. The n-gram
+     * filter is only accepted with a matching {@code max_ngram_diff}, which indexes created from an older template
+     * do not have, so both are updated in the same request.
+     */
+    static JsonObject analysisSettings(IndexTemplate template) {
+        final JsonObjectBuilder settings = Json.createObjectBuilder()
+                .add(ANALYSIS, template.settings().getJsonObject(ANALYSIS));
+        if (template.settings().containsKey(MAX_NGRAM_DIFF)) {
+            settings.add(MAX_NGRAM_DIFF, template.settings().get(MAX_NGRAM_DIFF));
+        }
+        return settings.build();
+    }
+
+    /**
+     * Create the upgrade lock document in the catalog index. The create fails with a conflict while another
+     * replica holds the lock. A lock older than {@code snippet.opensearch.bootstrap.upgrade-lock-timeout} was
+     * left behind by a replica that stopped during the upgrade and is removed, so that the next attempt can
+     * take it over.
+     *
+     * @throws IndexUpgradeInProgressException if another replica holds the lock
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    private void acquireUpgradeLock() throws IOException {
+        final Instant now = Instant.now();
+        try {
+            client.create(c -> c
+                    .index(Constants.CATALOG_INDEX_NAME)
+                    .id(Constants.INDEX_UPGRADE_LOCK_ID)
+                    .document(new IndexUpgradeLock(UPGRADE_LOCK_OWNER, now.toEpochMilli())));
+            log.info("Acquired index upgrade lock as {}", UPGRADE_LOCK_OWNER);
+            return;
+        } catch (OpenSearchException e) {
+            if (e.status() != HTTP_CONFLICT) {
+                throw e;
+            }
+        }
+
+        final GetResponse<IndexUpgradeLock> lock = client.get(g -> g
+                .index(Constants.CATALOG_INDEX_NAME)
+                .id(Constants.INDEX_UPGRADE_LOCK_ID), IndexUpgradeLock.class);
+        if (!lock.found() || lock.source() == null) {
+            // Released in the meantime, the next attempt rechecks the index
+            throw new IndexUpgradeInProgressException("another replica");
+        }
+
+        final String owner = lock.source().getOwner();
+        if (Instant.ofEpochMilli(lock.source().getAcquiredAt()).plus(upgradeLockTimeout).isBefore(now)) {
+            log.warn("Removing index upgrade lock of {} held for more than {}", owner, upgradeLockTimeout);
+            try {
+                client.delete(d -> d
+                        .index(Constants.CATALOG_INDEX_NAME)
+                        .id(Constants.INDEX_UPGRADE_LOCK_ID)
+                        .ifSeqNo(lock.seqNo())
+                        .ifPrimaryTerm(lock.primaryTerm()));
+            } catch (OpenSearchException e) {
+                // Taken over or released by another replica in the meantime
+                if (e.status() != HTTP_CONFLICT && e.status() != HTTP_NOT_FOUND) {
+                    throw e;
+                }
+            }
+        }
+        throw new IndexUpgradeInProgressException(owner);
+    }
 
-            client.indices().create(request);
+    private void releaseUpgradeLock() {
+        try {
+            client.delete(d -> d
+                    .index(Constants.CATALOG_INDEX_NAME)
+                    .id(Constants.INDEX_UPGRADE_LOCK_ID));
+            log.info("Released index upgrade lock");
+        } catch (IOException | OpenSearchException e) {
+            // Removed by the next replica once the lock timeout has passed
+            log.warn("Failed to release index upgrade lock: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Deserialize a part of the index template into its client representation.
+     *
+     * @param deserializer The client deserializer
+     * @param json         The template JSON
+     * @return The deserialized object
+     */
+    private <T> T deserialize(JsonpDeserializer<T> deserializer, JsonObject json) {
+        // Get the JsonpMapper from the client
+        final JsonpMapper mapper = client._transport().jsonpMapper();
+        final JsonParser parser = mapper.jsonProvider().createParser(new StringReader(json.toString()));
+        return deserializer.deserialize(parser, mapper);
+    }
+
+    /**
+     * Derive the OpenSearch document ID from the $id of a snippet, so that snippets can be created, fetched and
+     * deleted by $id without a search. $ids longer than the 512 byte document ID limit are replaced by their hash.
+     *
+     * @param id The $id of the snippet
+     * @return The document ID
+     */
+    static String documentId(String id) {
+        if (id.getBytes(StandardCharsets.UTF_8).length <= MAX_DOCUMENT_ID_BYTES) {
+            return id;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return "sha256:" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
     /**
      * Save a snippet to the repository.
+     * The document is created with its $id as document ID, so a concurrent or repeated create with the same $id
+     * fails with a version conflict instead of adding a second document. With the default refresh policy
+     * {@code wait-for}, the call returns once the snippet is visible to searches, so that caches invalidated and
+     * catalog versions bumped afterwards never describe results without it.
      *
      * @param snippet    The snippet to save
      * @param sourceJson The original JSON source
      * @return The ID of the saved snippet
+     * @throws DuplicateSnippetException if a snippet with the same $id already exists
      * @throws IOException if there is an error communicating with OpenSearch
      */
+    @Override
     public String save(Snippet snippet, String sourceJson) throws IOException {
         try {
             // Store the entire JSON in the source field
             snippet.setSource(sourceJson);
 
-            // Create the index request
-            IndexRequest<Snippet> request = new IndexRequest.Builder<Snippet>()
+            // Create the document, failing if one with the same ID exists
+            CreateRequest<Snippet> request = new CreateRequest.Builder<Snippet>()
                     .index(Constants.INDEX_NAME)
+                    .id(documentId(snippet.getId()))
                     .document(snippet)
+                    .refresh(writeRefresh)
                     .build();
 
-            // Execute the index request
-            IndexResponse response = client.index(request);
+            // Execute the create request
+            CreateResponse response = limiter.execute("create", () -> client.create(request));
             log.debug("Indexed snippet with ID: {}", response.id());
 
             return response.id();
+        } catch (OpenSearchException e) {
+            if (e.status() == HTTP_CONFLICT) {
+                throw new DuplicateSnippetException(snippet.getId());
+            }
+            log.error("Error saving snippet: {}", e.getMessage(), e);
+            throw e;
         } catch (IOException e) {
             log.error("Error saving snippet: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    @Override
+    public List<BulkItemResult> saveAll(List<Snippet> snippets) throws IOException {
+        if (snippets.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            // Create one create operation per snippet, keyed by its $id
+            BulkRequest.Builder request = new BulkRequest.Builder().index(Constants.INDEX_NAME).refresh(bulkRefresh);
+            for (Snippet snippet : snippets) {
+                request.operations(op -> op.create(c -> c.id(documentId(snippet.getId())).document(snippet)));
+            }
+
+            // Execute the bulk request and map the per-item outcome
+            BulkRequest bulkRequest = request.build();
+            BulkResponse response = limiter.execute("bulk", () -> client.bulk(bulkRequest));
+            List<BulkItemResult> results = new ArrayList<>(snippets.size());
+            for (int i = 0; i < snippets.size(); i++) {
+                BulkResponseItem item = response.items().get(i);
+                String id = snippets.get(i).getId();
+                if (item.error() == null) {
+                    results.add(BulkItemResult.created(id));
+                } else if (item.status() == HTTP_CONFLICT) {
+                    results.add(BulkItemResult.badRequest(id, DuplicateSnippetException.message(id)));
+                } else {
+                    results.add(BulkItemResult.failed(id, item.error().reason()));
+                }
+            }
+            log.debug("Bulk indexed {} snippets, errors: {}", snippets.size(), response.errors());
+
+            return results;
+        } catch (IOException e) {
+            log.error("Error bulk saving snippets: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
     /**
      * Delete a snippet by its ID.
+     * Snippets are deleted directly by document ID. Snippets indexed before the $id was used as document ID
+     * are not found that way and are looked up by $id instead.
      *
      * @param id The ID of the snippet to delete
      * @throws IOException if there is an error deleting the snippet
      */
+    @Override
     public void delete(String id) throws IOException {
         try {
-            // First, find the document ID using the $id field
+            if (deleteDocument(documentId(id))) {
+                log.debug("Deleted snippet with $id: {}", id);
+                return;
+            }
+
+            // Fall back to finding the document ID using the $id field
             Query query = queryBuilder.buildIdQuery(id);
 
             SearchRequest searchRequest = new SearchRequest.Builder()
@@ -169,21 +468,13 @@ public class SnippetRepository {
                     .build();
 
             // Execute the search to get the document ID
-            SearchResponse<Snippet> response = client.search(searchRequest, Snippet.class);
+            SearchResponse<Snippet> response = limiter.execute("delete_lookup", () -> client.search(searchRequest, Snippet.class));
             if (response.hits().total().value() == 0) {
                 throw new IOException("Snippet with $id '" + id + "' not found");
             }
 
             String documentId = response.hits().hits().getFirst().id();
-
-            // Create the delete request using the found document ID
-            DeleteRequest request = new DeleteRequest.Builder()
-                    .index(Constants.INDEX_NAME)
-                    .id(documentId)
-                    .build();
-
-            // Execute the delete request
-            client.delete(request);
+            deleteDocument(documentId);
             log.debug("Deleted snippet with $id: {} and document ID: {}", id, documentId);
         } catch (IOException e) {
             log.error("Error deleting snippet with $id: {}", id, e);
@@ -192,35 +483,312 @@ public class SnippetRepository {
     }
 
     /**
-     * Search for snippets.
+     * Delete a document by its document ID.
+     *
+     * @param documentId The document ID
+     * @return true if the document was deleted, false if it was not found
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    private boolean deleteDocument(String documentId) throws IOException {
+        DeleteRequest request = new DeleteRequest.Builder()
+                .index(Constants.INDEX_NAME)
+                .id(documentId)
+                .refresh(writeRefresh)
+                .build();
+        try {
+            return limiter.execute("delete", () -> client.delete(request)).result() != Result.NotFound;
+        } catch (OpenSearchException e) {
+            if (e.status() == HTTP_NOT_FOUND) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Search for one page of snippets.
+     * Only the requested fields are fetched from {@code _source}, so the stored source and large definitions
+     * are neither transferred nor deserialized unless asked for. Hits are sorted by creation date with the $id
+     * as tiebreaker and following pages continue with {@code search_after}. A point-in-time is opened when the
+     * second page is requested and carried in the cursor, so that all following pages read the same snapshot
+     * while a search that is never paged costs a single request. The point-in-time is closed with the last page
+     * and the number of open points in time is capped by the {@link PointInTimeTracker}.
      *
      * @param searchText The text to search for (optional)
-     * @param limit      The maximum number of results to return
-     * @return A list of matching snippets
+     * @param size       The maximum number of results of the page
+     * @param fields     The fields to return
+     * @param cursor     The cursor returned with the previous page, or null for the first page
+     * @return The page of matching snippets
+     * @throws IllegalArgumentException if the cursor is invalid or its point-in-time has expired
+     * @throws StoreBusyException if a point-in-time is needed but too many are open
      * @throws IOException if there is an error communicating with OpenSearch
      */
-    public List<Snippet> search(String searchText, int limit) throws IOException {
+    @Override
+    public SearchPage search(String searchText, int size, Set<SnippetField> fields, String cursor) throws IOException {
+        final SearchCursor after = cursor != null ? SearchCursor.decode(cursor) : null;
+        final int pageSize = size > 0 ? size : Constants.DEFAULT_LIMIT;
         try {
             // Build the search query
             Query query = queryBuilder.buildSearchQuery(searchText);
 
-            // Create the search request
-            SearchRequest request = new SearchRequest.Builder()
-                    .index(Constants.INDEX_NAME)
-                    .query(query)
-                    .sort(s -> s.field(f -> f.field(Constants.CREATED_AT).order(SortOrder.Desc)))
-                    .size(limit > 0 ? limit : Constants.DEFAULT_LIMIT)
-                    .build();
+            // Read following pages from a point-in-time instead of the live index
+            final boolean opened = after != null && after.pitId() == null;
+            final String pitId = opened ? openPointInTime() : after != null ? after.pitId() : null;
 
             // Execute the search request
-            SearchResponse<Snippet> response = client.search(request, Snippet.class);
-            return convertSearchHits(response.hits().hits(), false);
+            SearchRequest request = searchRequest(query, pageSize, fields, pitId, after, cursorKeepAlive);
+            final SearchResponse<Snippet> response;
+            try {
+                response = limiter.execute("search", () -> client.search(request, Snippet.class));
+            } catch (IOException | RuntimeException e) {
+                if (opened) {
+                    closePointInTime(pitId);
+                }
+                throw e;
+            }
+            SearchPage page = toSearchPage(response.hits().hits(), pageSize, fields, pitId);
+            if (pitId != null) {
+                // The last page closes the point-in-time, otherwise its keep-alive was extended by the search
+                if (page.nextCursor() == null) {
+                    closePointInTime(pitId);
+                } else {
+                    pointsInTime.used(pitId);
+                }
+            }
+            return page;
+        } catch (OpenSearchException e) {
+            if (isExpiredCursor(e, after)) {
+                pointsInTime.closed(after.pitId());
+                throw new IllegalArgumentException("Cursor has expired");
+            }
+            log.error("Error searching snippets: {}", e.getMessage(), e);
+            throw e;
         } catch (IOException e) {
             log.error("Error searching snippets: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * Build the request for one page of a search, shared with the {@link ReactiveSnippetRepository}.
+     *
+     * @param query     The search query
+     * @param pageSize  The maximum number of results of the page
+     * @param fields    The fields to fetch from {@code _source}
+     * @param pitId     The point-in-time to read from, or null to read from the index
+     * @param after     The cursor of the previous page, or null for the first page
+     * @param keepAlive How long the point-in-time is kept open for the next page
+     * @return The search request
+     */
+    static SearchRequest searchRequest(Query query, int pageSize, Set<SnippetField> fields,
+                                       String pitId, SearchCursor after, String keepAlive) {
+        SearchRequest.Builder request = new SearchRequest.Builder()
+                .query(query)
+                .source(src -> src.filter(f -> f.includes(SnippetField.fieldNames(fields))))
+                .size(pageSize);
+        sortNewestFirst(request);
+        if (pitId != null) {
+            request.pit(p -> p.id(pitId).keepAlive(keepAlive));
+        } else {
+            request.index(Constants.INDEX_NAME);
+        }
+        if (after != null) {
+            request.searchAfter(after.sortValues());
+        }
+        return request.build();
+    }
+
+    /**
+     * Turn the hits of a search into a page. Only a full page may be followed by another one and carries a cursor.
+     *
+     * @param hits     The hits of the search
+     * @param pageSize The requested page size
+     * @param fields   The fields to keep in the returned snippets
+     * @param pitId    The point-in-time the hits were read from, or null
+     * @return The page
+     */
+    static SearchPage toSearchPage(List<Hit<Snippet>> hits, int pageSize, Set<SnippetField> fields, String pitId) {
+        String nextCursor = null;
+        if (hits.size() == pageSize) {
+            nextCursor = new SearchCursor(pitId, hits.getLast().sort()).encode();
+        }
+        return new SearchPage(convertSearchHits(hits, fields), nextCursor);
+    }
+
+    /**
+     * @param e     The failure of a search
+     * @param after The cursor of the search, or null
+     * @return true if the search failed because the point-in-time of the cursor has expired
+     */
+    static boolean isExpiredCursor(OpenSearchException e, SearchCursor after) {
+        return after != null && after.pitId() != null && e.status() == HTTP_NOT_FOUND;
+    }
+
+    /**
+     * Suggest snippets from the {@code title.suggest} and {@code $id.suggest} completion fields. Both are
+     * sub-fields of the mapping, so they are filled from the document on every save without extra work.
+     * The completion suggester reads an in-memory FST instead of scoring documents and no hits are requested.
+     *
+     * @param prefix The prefix typed so far
+     * @param size   The maximum number of suggestions
+     * @return The suggested snippets with only $id and title
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    @Override
+    public List<Snippet> suggest(String prefix, int size) throws IOException {
+        try {
+            SearchRequest request = suggestRequest(prefix, size);
+            SearchResponse<Snippet> response = limiter.execute("suggest", () -> client.search(request, Snippet.class));
+            return toSuggestions(response.suggest(), size);
+        } catch (IOException e) {
+            log.error("Error suggesting snippets: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param prefix The prefix typed so far
+     * @param size   The maximum number of suggestions per completion field
+     * @return The request running a completion suggester on the title and on the $id, without hits
+     */
+    static SearchRequest suggestRequest(String prefix, int size) {
+        return new SearchRequest.Builder()
+                .index(Constants.INDEX_NAME)
+                .size(0)
+                .source(src -> src.filter(f -> f.includes(SnippetField.fieldNames(SnippetField.SUGGESTION))))
+                .suggest(s -> s
+                        .suggesters(TITLE_SUGGESTER, fs -> fs.prefix(prefix)
+                                .completion(c -> c.field(Constants.TITLE_SUGGEST).size(size).skipDuplicates(true)))
+                        .suggesters(ID_SUGGESTER, fs -> fs.prefix(prefix)
+                                .completion(c -> c.field(Constants.ID_SUGGEST).size(size).skipDuplicates(true))))
+                .build();
+    }
+
+    /**
+     * Merge the options of both completion suggesters, keeping the first suggestion of each document.
+     *
+     * @param suggest The suggestions of the response by suggester name
+     * @param size    The maximum number of suggestions
+     * @return The suggested snippets with only $id and title
+     */
+    static List<Snippet> toSuggestions(Map<String, List<Suggest<Snippet>>> suggest, int size) {
+        Map<String, Snippet> suggestions = new LinkedHashMap<>();
+        for (String suggester : List.of(TITLE_SUGGESTER, ID_SUGGESTER)) {
+            for (Suggest<Snippet> entry : suggest.getOrDefault(suggester, Collections.emptyList())) {
+                if (!entry.isCompletion()) {
+                    continue;
+                }
+                for (CompletionSuggestOption<Snippet> option : entry.completion().options()) {
+                    if (suggestions.size() < size && option.source() != null) {
+                        suggestions.putIfAbsent(option.id(), option.source().project(SnippetField.SUGGESTION));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(suggestions.values());
+    }
+
+    /**
+     * Read all snippets from a point-in-time in batches, following the last hit of each batch with
+     * {@code search_after}. Each hit is handed to the sink before the next batch is requested and no batch is
+     * retained, so memory use does not grow with the size of the index.
+     *
+     * @param batchSize The number of snippets read per request
+     * @param sink      Receives each snippet, newest first
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    @Override
+    public void export(int batchSize, Consumer<Snippet> sink) throws IOException {
+        final String pitId = openPointInTime();
+        try {
+            List<String> after = null;
+            while (true) {
+                SearchRequest.Builder request = new SearchRequest.Builder()
+                        .pit(p -> p.id(pitId).keepAlive(cursorKeepAlive))
+                        .query(q -> q.matchAll(m -> m))
+                        .size(batchSize);
+                sortNewestFirst(request);
+                if (after != null) {
+                    request.searchAfter(after);
+                }
+
+                SearchRequest searchRequest = request.build();
+                List<Hit<Snippet>> hits = limiter.execute("export", () -> client.search(searchRequest, Snippet.class)).hits().hits();
+                for (Hit<Snippet> hit : hits) {
+                    if (hit.source() != null) {
+                        sink.accept(hit.source());
+                    }
+                }
+
+                // A partial batch is the last one
+                if (hits.size() < batchSize) {
+                    return;
+                }
+                pointsInTime.used(pitId);
+                after = hits.getLast().sort();
+            }
+        } catch (IOException e) {
+            log.error("Error exporting snippets: {}", e.getMessage(), e);
+            throw e;
+        } finally {
+            closePointInTime(pitId);
+        }
+    }
+
+    /**
+     * Sort hits by creation date, newest first, with the $id as tiebreaker so that search_after positions are unique.
+     *
+     * @param request The search request to sort
+     */
+    private static void sortNewestFirst(SearchRequest.Builder request) {
+        request.sort(s -> s.field(f -> f.field(Constants.CREATED_AT).order(SortOrder.Desc)))
+                .sort(s -> s.field(f -> f.field(Constants.ID).order(SortOrder.Asc)));
+    }
+
+    /**
+     * Open a point-in-time on the snippet index, within the cap of open points in time.
+     *
+     * @return The ID of the point-in-time
+     * @throws StoreBusyException if too many points in time are open
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    private String openPointInTime() throws IOException {
+        pointsInTime.checkCapacity();
+        final CreatePitResponse response;
+        try {
+            response = limiter.execute("create_pit", () -> client.createPit(pointInTimeRequest(cursorKeepAlive)));
+        } catch (OpenSearchException e) {
+            if (pointsInTime.isRejected(e)) {
+                throw pointsInTime.tooManyCursors();
+            }
+            throw e;
+        }
+        pointsInTime.used(response.pitId());
+        log.debug("Opened point-in-time for paged search: {}", response.pitId());
+        return response.pitId();
+    }
+
+    /**
+     * @param keepAlive How long the point-in-time is kept open
+     * @return The request opening a point-in-time on the snippet index
+     */
+    static CreatePitRequest pointInTimeRequest(String keepAlive) {
+        return new CreatePitRequest.Builder()
+                .targetIndexes(Constants.INDEX_NAME)
+                .keepAlive(Time.of(t -> t.time(keepAlive)))
+                .build();
+    }
+
+    private void closePointInTime(String pitId) {
+        pointsInTime.closed(pitId);
+        try {
+            limiter.execute("delete_pit", () -> client.deletePit(d -> d.pitId(pitId)));
+        } catch (IOException | OpenSearchException e) {
+            // The point-in-time expires on its own after the keep-alive
+            log.debug("Failed to close point-in-time {}: {}", pitId, e.getMessage());
+        }
+    }
+
     /**
      * Check if a snippet with the given $id exists.
      *
@@ -228,6 +796,7 @@ public class SnippetRepository {
      * @return true if a snippet with the given $id exists, false otherwise
      * @throws IOException if there is an error communicating with OpenSearch
      */
+    @Override
     public boolean existsById(String id) throws IOException {
         if (id == null || id.trim().isEmpty()) {
             return false;
@@ -245,7 +814,7 @@ public class SnippetRepository {
                     .build();
 
             // Execute the search request
-            SearchResponse<Snippet> response = client.search(request, Snippet.class);
+            SearchResponse<Snippet> response = limiter.execute("exists", () -> client.search(request, Snippet.class));
             return response.hits().total().value() > 0;
         } catch (IOException e) {
             log.error("Error checking if snippet exists by $id: {}", id, e);
@@ -253,14 +822,133 @@ public class SnippetRepository {
         }
     }
 
+    /**
+     * Find a snippet by its $id, including its stored source.
+     * The snippet is read in real time by document ID, so a snippet is found right after it was created.
+     * Snippets indexed before the $id was used as document ID are looked up by $id instead.
+     *
+     * @param id The $id of the snippet
+     * @return The snippet, or empty if no snippet with the given $id exists
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    @Override
+    public Optional<Snippet> findById(String id) throws IOException {
+        if (id == null || id.trim().isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            GetResponse<Snippet> response = limiter.execute("get", () -> client.get(g -> g
+                    .index(Constants.INDEX_NAME)
+                    .id(documentId(id)), Snippet.class));
+            if (response.found() && response.source() != null) {
+                return Optional.of(response.source());
+            }
+
+            // Fall back to finding the document using the $id field
+            SearchRequest request = new SearchRequest.Builder()
+                    .index(Constants.INDEX_NAME)
+                    .query(queryBuilder.buildIdQuery(id))
+                    .size(1)
+                    .build();
+            SearchResponse<Snippet> search = limiter.execute("get_lookup", () -> client.search(request, Snippet.class));
+            return search.hits().hits().stream()
+                    .map(Hit::source)
+                    .filter(Objects::nonNull)
+                    .findFirst();
+        } catch (OpenSearchException e) {
+            if (e.status() == HTTP_NOT_FOUND) {
+                return Optional.empty();
+            }
+            log.error("Error finding snippet by $id: {}", id, e);
+            throw e;
+        } catch (IOException e) {
+            log.error("Error finding snippet by $id: {}", id, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Read the catalog version from the catalog index. A missing index or document means the catalog has
+     * not been changed since the catalog version was introduced. The UUID of the catalog index is the epoch,
+     * as the {@code _version} of the catalog document starts over when the index is recreated.
+     *
+     * @return The catalog version
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    @Override
+    public CatalogVersion catalogVersion() throws IOException {
+        try {
+            // The epoch first: a version read from a recreated index under the old epoch is older than the
+            // current one and ignored, until the next read picks up the new epoch
+            String epoch = catalogEpoch();
+            GetResponse<CatalogDocument> response = limiter.execute("catalog_get", () -> client.get(g -> g
+                    .index(Constants.CATALOG_INDEX_NAME)
+                    .id(Constants.CATALOG_DOCUMENT_ID), CatalogDocument.class));
+            if (!response.found() || response.source() == null) {
+                return CatalogVersion.INITIAL;
+            }
+            return new CatalogVersion(epoch, response.version(), Instant.ofEpochMilli(response.source().getLastModified()));
+        } catch (OpenSearchException e) {
+            if (e.status() == HTTP_NOT_FOUND) {
+                return CatalogVersion.INITIAL;
+            }
+            log.error("Error reading catalog version: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Bump the catalog generation by rewriting the catalog document. OpenSearch increases the {@code _version}
+     * of the document with every write, so concurrent bumps from several replicas each get their own generation.
+     * The catalog index is created on the first bump.
+     *
+     * @return The new catalog version
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    @Override
+    public CatalogVersion bumpCatalogVersion() throws IOException {
+        final Instant now = Instant.now();
+        try {
+            IndexResponse response = limiter.execute("catalog_index", () -> client.index(i -> i
+                    .index(Constants.CATALOG_INDEX_NAME)
+                    .id(Constants.CATALOG_DOCUMENT_ID)
+                    .document(new CatalogDocument(now.toEpochMilli()))));
+            log.debug("Bumped catalog generation to {}", response.version());
+            return new CatalogVersion(catalogEpoch(), response.version(), now);
+        } catch (IOException e) {
+            log.error("Error bumping catalog version: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return The UUID that OpenSearch assigned to the catalog index on creation
+     * @throws IOException if there is an error communicating with OpenSearch
+     */
+    private String catalogEpoch() throws IOException {
+        GetIndicesSettingsResponse response = limiter.execute("catalog_settings", () -> client.indices()
+                .getSettings(s -> s.index(Constants.CATALOG_INDEX_NAME).name(INDEX_UUID_SETTING)));
+        IndexState state = response.get(Constants.CATALOG_INDEX_NAME);
+        IndexSettings settings = state != null ? state.settings() : null;
+        // Returned nested as index.uuid
+        if (settings != null && settings.index() != null) {
+            settings = settings.index();
+        }
+        if (settings == null || settings.uuid() == null) {
+            throw new IOException("No UUID reported for index " + Constants.CATALOG_INDEX_NAME);
+        }
+        return settings.uuid();
+    }
+
     /**
      * Convert search hits to Snippet objects.
      *
-     * @param hits          The search hits to convert
-     * @param includeSource Whether to include the source field in the returned snippets
+     * @param hits   The search hits to convert
+     * @param fields The fields to keep in the returned snippets
      * @return A list of Snippet objects
      */
-    private List<Snippet> convertSearchHits(List<Hit<Snippet>> hits, boolean includeSource) {
+    private static List<Snippet> convertSearchHits(List<Hit<Snippet>> hits, Set<SnippetField> fields) {
         if (hits == null || hits.isEmpty()) {
             return Collections.emptyList();
         }
@@ -270,11 +958,8 @@ public class SnippetRepository {
             try {
                 Snippet snippet = hit.source();
                 if (snippet != null) {
-                    // If we don't want to include the source, create a copy without it
-                    if (!includeSource) {
-                        snippet = snippet.withoutSource();
-                    }
-                    snippets.add(snippet);
+                    // Fields missing from the projected source would otherwise keep their defaults
+                    snippets.add(snippet.project(fields));
                 }
             } catch (Exception e) {
                 log.error("Error converting search hit to Snippet: {}", e.getMessage(), e);
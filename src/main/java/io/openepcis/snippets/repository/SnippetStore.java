@@ -0,0 +1,146 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.model.BulkItemResult;
+import io.openepcis.snippets.model.CatalogVersion;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Storage abstraction for Snippet entities.
+ * The backend is selected at build time through the {@code snippet.store.backend} property:
+ * {@code opensearch} (default) uses {@link SnippetRepository}, {@code lucene} uses the embedded
+ * {@link LuceneSnippetStore} for single-node deployments.
+ */
+public interface SnippetStore {
+
+    /**
+     * Save a new snippet to the store. The uniqueness of the $id is enforced by the store as part of the write.
+     *
+     * @param snippet    The snippet to save
+     * @param sourceJson The original JSON source
+     * @return The ID of the saved snippet
+     * @throws DuplicateSnippetException if a snippet with the same $id already exists
+     * @throws IOException if there is an error writing to the store
+     */
+    String save(Snippet snippet, String sourceJson) throws IOException;
+
+    /**
+     * Save several snippets in a single bulk write.
+     *
+     * @param snippets The snippets to save, each with its original JSON already set as source
+     * @return One result per snippet, in the same order, with a bad request result for each $id that already exists
+     * @throws IOException if the bulk write as a whole fails
+     */
+    List<BulkItemResult> saveAll(List<Snippet> snippets) throws IOException;
+
+    /**
+     * Delete a snippet by its $id.
+     *
+     * @param id The $id of the snippet to delete
+     * @throws IOException if the snippet does not exist or cannot be deleted
+     */
+    void delete(String id) throws IOException;
+
+    /**
+     * Check if a snippet with the given $id exists.
+     *
+     * @param id The $id to check
+     * @return true if a snippet with the given $id exists, false otherwise
+     * @throws IOException if there is an error reading from the store
+     */
+    boolean existsById(String id) throws IOException;
+
+    /**
+     * Find a snippet by its $id, including its stored source.
+     *
+     * @param id The $id of the snippet
+     * @return The snippet, or empty if no snippet with the given $id exists
+     * @throws IOException if there is an error reading from the store
+     */
+    Optional<Snippet> findById(String id) throws IOException;
+
+    /**
+     * Search for snippets, returning all fields except the stored source.
+     *
+     * @param searchText The text to search for (optional)
+     * @param limit      The maximum number of results to return
+     * @return A list of matching snippets, newest first
+     * @throws IOException if there is an error reading from the store
+     */
+    default List<Snippet> search(String searchText, int limit) throws IOException {
+        return search(searchText, limit, SnippetField.ALL);
+    }
+
+    /**
+     * Search for snippets, fetching only the requested fields.
+     *
+     * @param searchText The text to search for (optional)
+     * @param limit      The maximum number of results to return
+     * @param fields     The fields to return
+     * @return A list of matching snippets with only the requested fields, newest first
+     * @throws IOException if there is an error reading from the store
+     */
+    default List<Snippet> search(String searchText, int limit, Set<SnippetField> fields) throws IOException {
+        return search(searchText, limit, fields, null).snippets();
+    }
+
+    /**
+     * Search for one page of snippets, fetching only the requested fields.
+     * Pages are ordered by creation date and $id and continue after the last hit of the previous page,
+     * so every page costs the same as the first and concurrent writes do not shift results between pages.
+     *
+     * @param searchText The text to search for (optional)
+     * @param size       The maximum number of results of the page
+     * @param fields     The fields to return
+     * @param cursor     The cursor returned with the previous page, or null for the first page
+     * @return The page of matching snippets with the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is invalid or has expired
+     * @throws IOException if there is an error reading from the store
+     */
+    SearchPage search(String searchText, int size, Set<SnippetField> fields, String cursor) throws IOException;
+
+    /**
+     * Suggest snippets whose title or $id starts with the given prefix, ignoring case.
+     * Suggestions are looked up in a prefix structure instead of running a full-text search, so they are cheap
+     * enough to be requested on every keystroke.
+     *
+     * @param prefix The prefix typed so far
+     * @param size   The maximum number of suggestions
+     * @return The suggested snippets with only $id and title
+     * @throws IOException if there is an error reading from the store
+     */
+    List<Snippet> suggest(String prefix, int size) throws IOException;
+
+    /**
+     * Read every snippet of the store, including its stored source, in batches.
+     * Snippets are handed to the sink as they are read, so memory use is bounded by the batch size and not by
+     * the size of the catalog. All batches are read from the same snapshot of the store.
+     *
+     * @param batchSize The number of snippets read per request
+     * @param sink      Receives each snippet, newest first
+     * @throws IOException if there is an error reading from the store
+     */
+    void export(int batchSize, Consumer<Snippet> sink) throws IOException;
+
+    /**
+     * Read the persisted version of the catalog.
+     *
+     * @return The catalog version, {@link CatalogVersion#INITIAL} if the catalog has never been changed
+     * @throws IOException if there is an error reading from the store
+     */
+    CatalogVersion catalogVersion() throws IOException;
+
+    /**
+     * Increase the generation of the catalog after a change and persist it.
+     *
+     * @return The new catalog version
+     * @throws IOException if there is an error writing to the store
+     */
+    CatalogVersion bumpCatalogVersion() throws IOException;
+}
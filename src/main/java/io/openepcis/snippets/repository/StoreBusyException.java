@@ -0,0 +1,18 @@
+package io.openepcis.snippets.repository;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request to the store cannot be sent because the limit of concurrent requests is reached
+ * and no request finished within the acquire timeout, or because too many search cursors are open.
+ */
+public class StoreBusyException extends IOException {
+
+    public StoreBusyException(int maxConcurrentRequests) {
+        this("Too many concurrent requests to the snippet store, limit is " + maxConcurrentRequests);
+    }
+
+    public StoreBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,162 @@
+package io.openepcis.snippets.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.openepcis.snippets.model.CatalogVersion;
+import io.openepcis.snippets.repository.SnippetStore;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the current catalog version in memory, so that conditional requests are answered without a store
+ * round trip. The version is read from the store by the first poll, so that startup does not wait for the store,
+ * and bumped in the store after every change.
+ * <p>
+ * Other replicas write to the same store, so the persisted version is polled as well. When it has moved ahead
+ * of the local one, or the store was recreated and started a new epoch, the search result and snippet schema caches are invalidated and the newer version is
+ * adopted. A replica that has not confirmed the persisted version within {@code snippet.catalog.max-staleness}
+ * stops serving cached search results and validators until the next successful poll.
+ * <p>
+ * While the version is unknown, because it has not been read yet or a bump failed after a change, no version is
+ * reported and responses carry no validators, so that clients never keep a stale response.
+ */
+@ApplicationScoped
+@Slf4j
+public class CatalogVersionService {
+
+    static final String INVALIDATION_LAG_METRIC = "snippet.catalog.invalidation.lag";
+    static final String STALENESS_METRIC = "snippet.catalog.staleness";
+
+    @Inject
+    SnippetStore snippetStore;
+
+    @Inject
+    SearchResultCache searchResultCache;
+
+    @Inject
+    SnippetSchemaCache snippetSchemaCache;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "snippet.catalog.max-staleness", defaultValue = "10s")
+    Duration maxStaleness;
+
+    private final AtomicReference<CatalogVersion> current = new AtomicReference<>();
+
+    // System.nanoTime() of the last successful read of the persisted version, valid once confirmed is set
+    private volatile long confirmedAt;
+    private volatile boolean confirmed;
+
+    private Timer invalidationLag;
+
+    /**
+     * Register the metrics. The persisted catalog version is loaded by the first poll.
+     */
+    @PostConstruct
+    void init() {
+        invalidationLag = Timer.builder(INVALIDATION_LAG_METRIC)
+                .description("Time from a catalog change on another replica until this replica invalidated its cache")
+                .register(meterRegistry);
+        Gauge.builder(STALENESS_METRIC, this, CatalogVersionService::stalenessSeconds)
+                .description("Seconds since the persisted catalog version was last confirmed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The current catalog version, or null if it is unknown or has not been confirmed recently enough
+     */
+    public CatalogVersion current() {
+        return isFresh() ? current.get() : null;
+    }
+
+    /**
+     * Bump the catalog generation after a create or delete. A bump that skips generations, or lands in another
+     * epoch, reveals changes of other replicas that this replica has not polled yet: results cached since then may
+     * predate them, so the caches are invalidated before the new version is adopted.
+     */
+    public void bump() {
+        try {
+            CatalogVersion bumped = snippetStore.bumpCatalogVersion();
+            CatalogVersion previous = current.get();
+            if (previous == null || !bumped.epoch().equals(previous.epoch())
+                    || bumped.generation() != previous.generation() + 1) {
+                searchResultCache.invalidateAll();
+                snippetSchemaCache.invalidateAll();
+            }
+            advance(bumped);
+            confirmed();
+        } catch (IOException | RuntimeException e) {
+            // Error responses of the store are runtime exceptions, they must not fail the change either
+            // The change is already written, so the previous version must not be reported any more
+            current.set(null);
+            log.error("Failed to bump catalog version, responses carry no validators until the next change", e);
+        }
+    }
+
+    /**
+     * Read the persisted catalog version and pick up changes made by other replicas. The poll interval bounds
+     * how long a replica keeps serving results cached before a change elsewhere.
+     */
+    @Scheduled(every = "${snippet.catalog.poll-interval:2s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void poll() {
+        try {
+            CatalogVersion latest = snippetStore.catalogVersion();
+            CatalogVersion previous = current.get();
+            if (latest.supersedes(previous)) {
+                searchResultCache.invalidateAll();
+                snippetSchemaCache.invalidateAll();
+                if (previous != null) {
+                    invalidationLag.record(Duration.between(latest.lastModified(), Instant.now()));
+                    log.debug("Catalog version {} picked up from the store", latest.etag());
+                } else {
+                    log.info("Catalog version: {}", latest.etag());
+                }
+            }
+            advance(latest);
+            confirmed();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to poll catalog version: {}", e.getMessage());
+        } finally {
+            // Whatever failed, the cache must not outlive the staleness bound
+            searchResultCache.setSuspended(!isFresh());
+        }
+    }
+
+    /**
+     * Move to a newer catalog version, ignoring versions older than the current one of the same epoch.
+     *
+     * @param version The catalog version
+     */
+    void advance(CatalogVersion version) {
+        current.accumulateAndGet(version,
+                (previous, next) -> next.supersedes(previous) ? next : previous);
+    }
+
+    /**
+     * @return true if the persisted catalog version was confirmed within the staleness bound
+     */
+    boolean isFresh() {
+        return confirmed && System.nanoTime() - confirmedAt <= maxStaleness.toNanos();
+    }
+
+    private double stalenessSeconds() {
+        return confirmed ? (System.nanoTime() - confirmedAt) / 1e9 : Double.NaN;
+    }
+
+    private void confirmed() {
+        confirmedAt = System.nanoTime();
+        confirmed = true;
+    }
+}
@@ -0,0 +1,13 @@
+package io.openepcis.snippets.service;
+
+/**
+ * Thrown when a snippet document exceeds the configured maximum size.
+ * Extends {@link IllegalArgumentException} so that it is reported as invalid input where no more specific
+ * status applies, for example per line of a bulk request.
+ */
+public class PayloadTooLargeException extends IllegalArgumentException {
+
+    public PayloadTooLargeException(long maxSize) {
+        super("Document exceeds the maximum size of " + maxSize + " bytes");
+    }
+}
@@ -3,6 +3,7 @@ package io.openepcis.snippets.service;
 import io.openepcis.snippets.constants.Constants;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.opensearch.client.opensearch._types.query_dsl.*;
 
 import java.util.Set;
@@ -17,6 +18,9 @@ public class QueryBuilderService {
     @Inject
     SynonymService synonymService;
 
+    @ConfigProperty(name = "snippet.search.synonyms.mode", defaultValue = "query")
+    SynonymMode synonymMode;
+
     /**
      * Build a search query based on the search text.
      *
@@ -32,11 +36,13 @@ public class QueryBuilderService {
             // Add a multi-match query for the original search text
             addMultiMatchQuery(searchText, boolQuery);
             
-            // Add wildcard queries for the original search text
-            addWildcardQueries(searchText, boolQuery);
+            // Add substring queries for the original search text
+            addSubstringQueries(searchText, boolQuery);
             
-            // Add synonym queries
-            addSynonymQueries(searchText, boolQuery);
+            // Add synonym queries, unless synonyms are applied by the search analyzer of the index
+            if (synonymMode != SynonymMode.INDEX) {
+                addSynonymQueries(searchText, boolQuery);
+            }
 
             // Set minimum should match to ensure at least one condition is met
             boolQuery.minimumShouldMatch(Constants.MINIMUM_SHOULD_MATCH);
@@ -50,13 +56,14 @@ public class QueryBuilderService {
 
     /**
      * Build a query to find a snippet by its ID.
+     * The $id is mapped as a keyword field, so the term query matches the exact $id.
      *
      * @param id The ID to search for
      * @return A Query object with the configured query
      */
     public Query buildIdQuery(String id) {
         return Query.of(q -> q.term(t -> t
-                .field(Constants.ID_KEYWORD)
+                .field(Constants.ID)
                 .value(v -> v.stringValue(id))
         ));
     }
@@ -78,6 +85,33 @@ public class QueryBuilderService {
         boolQuery.should(Query.of(q -> q.multiMatch(multiMatch)));
     }
 
+    /**
+     * Add substring queries to the bool query.
+     * Substrings are matched with term queries on the n-gram subfields of title and description, which are
+     * equivalent to {@code *text*} wildcards without scanning the term dictionary. Texts outside the indexed
+     * n-gram lengths fall back to wildcard queries.
+     *
+     * @param text The text to search for
+     * @param boolQuery The bool query to add to
+     */
+    private void addSubstringQueries(String text, BoolQuery.Builder boolQuery) {
+        String substring = text.toLowerCase();
+        if (substring.length() < Constants.NGRAM_MIN_GRAM || substring.length() > Constants.NGRAM_MAX_GRAM) {
+            addWildcardQueries(text, boolQuery);
+            return;
+        }
+
+        // Add a term query for the title n-grams
+        boolQuery.should(Query.of(q -> q.term(t -> t
+                .field(Constants.TITLE_NGRAM)
+                .value(v -> v.stringValue(substring)))));
+
+        // Add a term query for the description n-grams
+        boolQuery.should(Query.of(q -> q.term(t -> t
+                .field(Constants.DESCRIPTION_NGRAM)
+                .value(v -> v.stringValue(substring)))));
+    }
+
     /**
      * Add wildcard queries to the bool query.
      *
@@ -115,7 +149,7 @@ public class QueryBuilderService {
             // Skip the original search text as it's already been added
             if (!synonym.equals(searchText.toLowerCase().trim())) {
                 addMultiMatchQuery(synonym, boolQuery);
-                addWildcardQueries(synonym, boolQuery);
+                addSubstringQueries(synonym, boolQuery);
             }
         }
     }
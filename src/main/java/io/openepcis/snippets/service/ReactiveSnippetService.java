@@ -0,0 +1,68 @@
+package io.openepcis.snippets.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.repository.ReactiveSnippetStore;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variant of the search operations of the {@link SnippetService}.
+ * Shares the page size limits and the search result cache with the blocking service, so both paths
+ * serve and invalidate the same cached responses.
+ */
+@ApplicationScoped
+public class ReactiveSnippetService {
+
+    @Inject
+    ReactiveSnippetStore reactiveSnippetStore;
+
+    @Inject
+    SnippetService snippetService;
+
+    @Inject
+    SearchResultCache searchResultCache;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Search for one page of snippets and return the serialized JSON response without blocking.
+     * First pages are served from the search result cache when possible, following pages are always read
+     * from the store.
+     *
+     * @param searchText The text to search for
+     * @param size The requested page size, capped at {@code snippet.search.max-page-size}, or null for the default
+     * @param fields The fields to return
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @return A Uni completing with the matching snippets serialized as a JSON array and the cursor of the next
+     * page, failing with an IllegalArgumentException if the page size or cursor is invalid
+     */
+    public Uni<SearchResult> searchSnippetsJson(String searchText, Integer size, Set<SnippetField> fields, String cursor) {
+        final int pageSize;
+        try {
+            pageSize = snippetService.pageSize(size);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
+
+        String normalizedSearchText = SearchResultCache.normalize(searchText);
+        Supplier<Uni<SearchResult>> loader = () -> reactiveSnippetStore
+                .search(normalizedSearchText, pageSize, fields, cursor)
+                .chain(page -> {
+                    try {
+                        return Uni.createFrom().item(new SearchResult(objectMapper.writeValueAsBytes(page.snippets()), page.nextCursor()));
+                    } catch (JsonProcessingException e) {
+                        return Uni.createFrom().<SearchResult>failure(e);
+                    }
+                });
+        return cursor == null
+                ? searchResultCache.getAsync(normalizedSearchText, pageSize, fields, loader)
+                : loader.get();
+    }
+}
@@ -0,0 +1,10 @@
+package io.openepcis.snippets.service;
+
+/**
+ * A serialized page of search results, as cached and returned to clients.
+ *
+ * @param json       The snippets of the page serialized as a JSON array
+ * @param nextCursor The opaque cursor of the next page, or null if this is the last page
+ */
+public record SearchResult(byte[] json, String nextCursor) {
+}
@@ -0,0 +1,292 @@
+package io.openepcis.snippets.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.openepcis.snippets.model.SnippetField;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded, in-process cache of serialized first pages of search responses.
+ * Entries are keyed by the normalized search text, limit and projection, and the whole cache is invalidated
+ * whenever the catalog changes. Hit, miss and eviction counters are published to Micrometer
+ * under the {@value #CACHE_NAME} cache name.
+ * <p>
+ * Concurrent identical searches that miss the cache are coalesced into one load, also when the cache is
+ * disabled, so that a burst of equal requests sends a single query to the store. Joined searches are
+ * counted by the {@value #COALESCED_METRIC} counter. A load whose search is cancelled is abandoned without a
+ * result, and the searches that joined it load again, so that one client disconnecting does not fail the others.
+ */
+@ApplicationScoped
+@Slf4j
+public class SearchResultCache {
+
+    public static final String CACHE_NAME = "snippet-search";
+    public static final String COALESCED_METRIC = "snippet.search.coalesced";
+
+    @ConfigProperty(name = "snippet.search.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "snippet.search.cache.maximum-size", defaultValue = "1000")
+    long maximumSize;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<String, SearchResult> cache;
+
+    // Incremented on every invalidation so that a search started before a write cannot repopulate the cache
+    private final AtomicLong generation = new AtomicLong();
+
+    // Set while this replica cannot confirm that it has seen all catalog changes
+    private volatile boolean suspended;
+
+    // Loads in flight, joined by concurrent identical searches, completed with null if the load was abandoned
+    private final ConcurrentHashMap<String, CompletableFuture<SearchResult>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter coalesced;
+
+    /**
+     * Loader for a serialized search response on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return The serialized response, never null
+         */
+        SearchResult load() throws IOException;
+    }
+
+    /**
+     * Build the cache and register its statistics with the meter registry.
+     */
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        coalesced = Counter.builder(COALESCED_METRIC)
+                .description("Searches that joined an identical search in flight instead of querying the store")
+                .register(meterRegistry);
+        log.info("Search result cache {} with maximum size {}", enabled ? "enabled" : "disabled", maximumSize);
+    }
+
+    /**
+     * Normalize search text so that equivalent requests share a cache entry.
+     *
+     * @param searchText The raw search text
+     * @return The trimmed, lowercased text with collapsed whitespace, or an empty string
+     */
+    public static String normalize(String searchText) {
+        if (searchText == null) {
+            return "";
+        }
+        return searchText.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the serialized response for a search, loading it on a miss.
+     * Concurrent misses for the same search share a single load: the first caller loads the response and the
+     * others wait for its result instead of sending their own query.
+     *
+     * @param normalizedSearchText The normalized search text
+     * @param limit                The maximum number of results
+     * @param fields               The projection of the results
+     * @param loader               Loads the serialized response on a miss
+     * @return The serialized response
+     * @throws IOException if the loader fails
+     */
+    public SearchResult get(String normalizedSearchText, int limit, Set<SnippetField> fields, Loader loader) throws IOException {
+        String key = key(normalizedSearchText, limit, fields);
+        if (isActive()) {
+            SearchResult cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long loadGeneration = generation.get();
+        String flightKey = flightKey(key, loadGeneration);
+        CompletableFuture<SearchResult> flight = new CompletableFuture<>();
+        CompletableFuture<SearchResult> leader = inFlight.putIfAbsent(flightKey, flight);
+        if (leader != null) {
+            coalesced.increment();
+            SearchResult shared = join(leader);
+            // Null if the leading search was cancelled, try again
+            return shared != null ? shared : get(normalizedSearchText, limit, fields, loader);
+        }
+
+        try {
+            SearchResult loaded = loader.load();
+            put(key, loaded, loadGeneration);
+            flight.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * Get the serialized response for a search without blocking, loading it on a miss.
+     * Concurrent misses for the same search share a single load, with blocking callers as well.
+     *
+     * @param normalizedSearchText The normalized search text
+     * @param limit                The maximum number of results
+     * @param fields               The projection of the results
+     * @param loader               Supplies the asynchronous load of the serialized response on a miss
+     * @return A Uni completing with the serialized response
+     */
+    public Uni<SearchResult> getAsync(String normalizedSearchText, int limit, Set<SnippetField> fields,
+                                      Supplier<Uni<SearchResult>> loader) {
+        // Deferred, so that the load is only registered as in flight once the Uni is subscribed
+        return Uni.createFrom().deferred(() -> {
+            String key = key(normalizedSearchText, limit, fields);
+            if (isActive()) {
+                SearchResult cached = cache.getIfPresent(key);
+                if (cached != null) {
+                    return Uni.createFrom().item(cached);
+                }
+            }
+
+            long loadGeneration = generation.get();
+            String flightKey = flightKey(key, loadGeneration);
+            CompletableFuture<SearchResult> flight = new CompletableFuture<>();
+            CompletableFuture<SearchResult> leader = inFlight.putIfAbsent(flightKey, flight);
+            if (leader != null) {
+                coalesced.increment();
+                // A copy, so that cancelling this search leaves the shared load alone
+                return Uni.createFrom().completionStage(leader.copy())
+                        .chain(shared -> shared != null ? Uni.createFrom().item(shared)
+                                // The leading search was cancelled, try again
+                                : getAsync(normalizedSearchText, limit, fields, loader));
+            }
+
+            return loader.get()
+                    .invoke(loaded -> {
+                        put(key, loaded, loadGeneration);
+                        flight.complete(loaded);
+                    })
+                    .onFailure().invoke(flight::completeExceptionally)
+                    .onTermination().invoke((loaded, failure, cancelled) -> {
+                        // Removed first, so that the joined searches start a new load rather than join this one
+                        inFlight.remove(flightKey, flight);
+                        if (cancelled) {
+                            flight.complete(null);
+                        }
+                    });
+        });
+    }
+
+    private static String key(String normalizedSearchText, int limit, Set<SnippetField> fields) {
+        return normalizedSearchText + '\u0000' + limit + '\u0000' + fields;
+    }
+
+    // Loads started before an invalidation are not joined by searches that arrive after it
+    private static String flightKey(String key, long loadGeneration) {
+        return key + '\u0000' + loadGeneration;
+    }
+
+    private void put(String key, SearchResult loaded, long loadGeneration) {
+        if (!isActive()) {
+            return;
+        }
+        cache.put(key, loaded);
+        if (generation.get() != loadGeneration) {
+            // The catalog changed while loading, so the response may already be stale
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Wait for the load of another caller and share its outcome.
+     *
+     * @param leader The load in flight
+     * @return The serialized response, or null if the load was abandoned
+     * @throws IOException if the load failed with an IOException or the waiting thread is interrupted
+     */
+    private static SearchResult join(CompletableFuture<SearchResult> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a coalesced search");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Drop all cached responses after the catalog has changed.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Stop or resume serving cached responses. While suspended, every search is loaded from the store, identical
+     * concurrent searches are still coalesced.
+     *
+     * @param suspended true to bypass the cache
+     */
+    public void setSuspended(boolean suspended) {
+        if (suspended && !this.suspended) {
+            log.warn("Search result cache suspended until the catalog version is confirmed");
+            invalidateAll();
+        } else if (!suspended && this.suspended) {
+            log.info("Search result cache resumed");
+        }
+        this.suspended = suspended;
+    }
+
+    private boolean isActive() {
+        return enabled && !suspended;
+    }
+
+    /**
+     * @return The number of loads currently in flight
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return The hit, miss and eviction statistics of the cache
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,13 @@
+package io.openepcis.snippets.service;
+
+/**
+ * Thrown when an operation addresses a snippet by a $id that is not stored.
+ * Extends {@link IllegalArgumentException} so that it is reported as invalid input where no more specific
+ * status applies.
+ */
+public class SnippetNotFoundException extends IllegalArgumentException {
+
+    public SnippetNotFoundException(String id) {
+        super("Snippet with $id '" + id + "' not found");
+    }
+}
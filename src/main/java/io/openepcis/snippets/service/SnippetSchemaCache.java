@@ -0,0 +1,143 @@
+package io.openepcis.snippets.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.networknt.schema.JsonSchema;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Size-bounded, in-process cache of stored snippets compiled into schemas, keyed by $id, so that documents
+ * validated against a snippet do not read and compile its source every time. Beyond
+ * {@code snippet.validation.cache.maximum-size} entries, the least recently and frequently used ones are evicted. Hit, miss and eviction counters are published
+ * to Micrometer under the {@value #CACHE_NAME} cache name.
+ * <p>
+ * An entry is invalidated when its snippet is deleted on this replica, and the whole cache when another replica
+ * changes the catalog, so that a snippet deleted and created again elsewhere is compiled anew. Concurrent misses
+ * for the same $id share a single load.
+ * <p>
+ * The cache holds futures, so a load runs on the thread that missed, outside the locks of the cache: a slow store
+ * read or compilation never blocks other $ids, and an invalidation does not wait for it but drops its result.
+ */
+@ApplicationScoped
+@Slf4j
+public class SnippetSchemaCache {
+
+    public static final String CACHE_NAME = "snippet-schema";
+
+    @ConfigProperty(name = "snippet.validation.cache.maximum-size", defaultValue = "1000")
+    long maximumSize;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private AsyncCache<String, JsonSchema> cache;
+
+    /**
+     * Loader for a compiled snippet schema on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return The compiled schema, or null if the snippet does not exist
+         */
+        JsonSchema load() throws IOException;
+    }
+
+    /**
+     * Build the cache and register its statistics with the meter registry.
+     */
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+        log.info("Snippet schema cache with maximum size {}", maximumSize);
+    }
+
+    /**
+     * Get the compiled schema of a snippet, loading it on a miss. A snippet that does not exist is not cached.
+     *
+     * @param id     The $id of the snippet
+     * @param loader Loads and compiles the snippet on a miss
+     * @return The compiled schema, or null if the snippet does not exist
+     * @throws IOException if the loader fails
+     */
+    public JsonSchema get(String id, Loader loader) throws IOException {
+        CompletableFuture<JsonSchema> flight = new CompletableFuture<>();
+        CompletableFuture<JsonSchema> schema = cache.get(id, (key, executor) -> flight);
+        if (schema == flight) {
+            // A null or failed result is removed from the cache by the cache itself
+            try {
+                flight.complete(loader.load());
+            } catch (Throwable e) {
+                flight.completeExceptionally(e);
+            }
+        }
+        return join(schema);
+    }
+
+    /**
+     * Wait for a load and share its outcome.
+     *
+     * @param schema The load, possibly of another caller
+     * @return The compiled schema, or null if the snippet does not exist
+     * @throws IOException if the load failed with an IOException or the waiting thread is interrupted
+     */
+    private static JsonSchema join(CompletableFuture<JsonSchema> schema) throws IOException {
+        try {
+            return schema.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a snippet schema");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Drop the compiled schema of a snippet after it has been deleted.
+     *
+     * @param id The $id of the snippet
+     */
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    /**
+     * Drop all compiled schemas after the catalog has changed on another replica.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * @return The hit, miss and eviction statistics of the cache
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+}
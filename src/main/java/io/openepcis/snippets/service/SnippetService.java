@@ -1,17 +1,35 @@
 package io.openepcis.snippets.service;
 
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.networknt.schema.JsonSchema;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.openepcis.snippets.constants.Constants;
+import io.openepcis.snippets.model.BulkItemResult;
 import io.openepcis.snippets.model.Snippet;
-import io.openepcis.snippets.repository.SnippetRepository;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.model.ValidationResult;
+import io.openepcis.snippets.repository.SearchPage;
+import io.openepcis.snippets.repository.SnippetStore;
+import io.openepcis.snippets.util.BoundedCaptureInputStream;
+import io.openepcis.snippets.util.BoundedLineReader;
+import io.openepcis.snippets.util.BoundedLineReader.Line;
 import io.openepcis.snippets.util.JsonSchemaValidator;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Service layer for Snippet operations
@@ -21,8 +39,15 @@ import java.util.List;
 @Slf4j
 public class SnippetService {
 
+    static final String STAGE_METRIC = "snippet.stage";
+    static final String DOCUMENT_SIZE_METRIC = "snippet.document.size";
+    static final String RESULTS_METRIC = "snippet.results";
+
+    @Inject
+    SnippetStore snippetStore;
+
     @Inject
-    SnippetRepository snippetRepository;
+    MeterRegistry meterRegistry;
 
     @Inject
     ObjectMapper objectMapper;
@@ -30,57 +55,340 @@ public class SnippetService {
     @Inject
     JsonSchemaValidator jsonSchemaValidator;
 
+    @Inject
+    SearchResultCache searchResultCache;
+
+    @Inject
+    CatalogVersionService catalogVersionService;
+
+    @Inject
+    SnippetSchemaCache snippetSchemaCache;
+
+    @ConfigProperty(name = "snippet.bulk.chunk-size", defaultValue = "500")
+    int bulkChunkSize;
+
+    @ConfigProperty(name = "snippet.search.max-page-size", defaultValue = "100")
+    int maxPageSize;
+
+    @ConfigProperty(name = "snippet.suggest.max-size", defaultValue = "20")
+    int maxSuggestSize;
+
+    @ConfigProperty(name = "snippet.export.batch-size", defaultValue = "1000")
+    int exportBatchSize;
+
+    @ConfigProperty(name = "snippet.document.max-size", defaultValue = "5242880")
+    long maxDocumentSize;
+
+    @ConfigProperty(name = "snippet.document.max-nesting-depth", defaultValue = "100")
+    int maxNestingDepth;
+
+    // Copy of the shared mapper whose parser enforces the document limits
+    private ObjectMapper documentMapper;
+
+    // Latency of each stage of the create, search and validate paths
+    private Timer parseTimer;
+    private Timer validateTimer;
+    private Timer indexTimer;
+    private Timer bulkIndexTimer;
+    private Timer searchTimer;
+    private Timer suggestTimer;
+    private Timer deleteTimer;
+    private Timer compileSchemaTimer;
+    private Timer validateDocumentTimer;
+
+    private DistributionSummary createdDocumentSize;
+    private DistributionSummary bulkDocumentSize;
+    private DistributionSummary searchResults;
+    private DistributionSummary suggestResults;
+
+    /**
+     * Configure the mapper used to parse snippet documents with the configured nesting depth limit and
+     * register the metrics of each stage.
+     */
+    @PostConstruct
+    void init() {
+        documentMapper = objectMapper.copy();
+        documentMapper.getFactory().setStreamReadConstraints(StreamReadConstraints.builder()
+                .maxNestingDepth(maxNestingDepth)
+                .build());
+
+        parseTimer = stageTimer("parse");
+        validateTimer = stageTimer("validate");
+        indexTimer = stageTimer("index");
+        bulkIndexTimer = stageTimer("bulk_index");
+        searchTimer = stageTimer("search");
+        suggestTimer = stageTimer("suggest");
+        deleteTimer = stageTimer("delete");
+        compileSchemaTimer = stageTimer("compile_schema");
+        validateDocumentTimer = stageTimer("validate_document");
+
+        createdDocumentSize = documentSize("create");
+        bulkDocumentSize = documentSize("bulk");
+        searchResults = resultCount("search");
+        suggestResults = resultCount("suggest");
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder(STAGE_METRIC)
+                .description("Duration of a stage of the create, search and validate paths")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary documentSize(String operation) {
+        return DistributionSummary.builder(DOCUMENT_SIZE_METRIC)
+                .description("Size of submitted snippet documents")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary resultCount(String operation) {
+        return DistributionSummary.builder(RESULTS_METRIC)
+                .description("Number of snippets returned by the store")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
     /**
      * Create a new snippet
+     * The request body is parsed incrementally while its raw bytes are captured for storage, so memory per
+     * request is bounded by {@code snippet.document.max-size} and an oversized body is rejected as soon as
+     * the limit is crossed.
      *
      * @param requestBody The JSON request body containing the snippet data
+     * @param contentLength The declared length of the request body, or null if unknown
      * @return The created snippet
      * @throws IOException If there is an error processing the request
+     * @throws PayloadTooLargeException If the request body exceeds the maximum document size
      * @throws IllegalArgumentException If the request is invalid or a duplicate $id is found
      */
-    public Snippet createSnippet(String requestBody) throws IOException, IllegalArgumentException {
+    public Snippet createSnippet(InputStream requestBody, Long contentLength) throws IOException, IllegalArgumentException {
+        // Reject a declared oversized body before reading any of it
+        if (contentLength != null && contentLength > maxDocumentSize) {
+            throw new PayloadTooLargeException(maxDocumentSize);
+        }
+
+        // Parse and validate the snippet
+        BoundedCaptureInputStream body = new BoundedCaptureInputStream(requestBody, maxDocumentSize, contentLength);
+        Timer.Sample parse = Timer.start(meterRegistry);
+        JsonNode document;
+        try {
+            document = readDocument(body);
+        } finally {
+            parse.stop(parseTimer);
+        }
+        createdDocumentSize.record(body.capturedSize());
+        Snippet snippet = toSnippet(document);
+
+        // Save the snippet, the store rejects a duplicate $id as part of the write
+        Timer.Sample index = Timer.start(meterRegistry);
+        try {
+            snippetStore.save(snippet, body.capturedAsString());
+        } finally {
+            index.stop(indexTimer);
+        }
+        catalogChanged();
+
+        log.info("Created new snippet with $id: {}", snippet.getId() != null ? snippet.getId() : "<no id>");
+        
+        return snippet;
+    }
+
+    /**
+     * Create snippets from a newline-delimited JSON stream, one snippet per line.
+     * The stream is processed in chunks of {@code snippet.bulk.chunk-size} lines: the documents of a chunk are
+     * validated in parallel and written with one bulk request that rejects $ids which already exist.
+     * Results are reported per document, in input order, as soon as their chunk is written.
+     * A line longer than {@code snippet.document.max-size} bytes is skipped without being buffered and reported
+     * as too large.
+     *
+     * @param ndjson The newline-delimited JSON stream
+     * @param results Receives one result per non-blank line
+     * @throws IOException If the stream cannot be read
+     */
+    public void createSnippets(InputStream ndjson, Consumer<BulkItemResult> results) throws IOException {
+        Set<String> requestIds = new HashSet<>();
+        readChunks(ndjson, chunk -> createChunk(chunk, requestIds, results));
+    }
+
+    /**
+     * Read the non-blank lines of a newline-delimited JSON stream in chunks of {@code snippet.bulk.chunk-size}.
+     * Lines are limited to {@code snippet.document.max-size} bytes, a longer line is handed on as too large
+     * without its text.
+     *
+     * @param ndjson The newline-delimited JSON stream
+     * @param chunks Receives each chunk, the list is reused for the next chunk
+     * @throws IOException If the stream cannot be read
+     */
+    private void readChunks(InputStream ndjson, Consumer<List<Line>> chunks) throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(ndjson, maxDocumentSize);
+        List<Line> chunk = new ArrayList<>(bulkChunkSize);
+
+        Line line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(line);
+            if (chunk.size() == bulkChunkSize) {
+                chunks.accept(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.accept(chunk);
+        }
+    }
+
+    private void createChunk(List<Line> lines, Set<String> requestIds, Consumer<BulkItemResult> results) {
+        // Parse and validate all documents of the chunk in parallel
+        List<BulkItemResult> chunkResults = new ArrayList<>(lines.size());
+        List<ParsedLine> parsed = lines.parallelStream().map(line -> {
+            bulkDocumentSize.record(line.size());
+            if (line.isTooLarge()) {
+                return new ParsedLine(null, new PayloadTooLargeException(maxDocumentSize).getMessage());
+            }
+            try {
+                Snippet snippet = parseSnippet(line.text());
+                snippet.setSource(line.text());
+                return new ParsedLine(snippet, null);
+            } catch (IllegalArgumentException e) {
+                return new ParsedLine(null, e.getMessage());
+            }
+        }).toList();
+
+        // Reject invalid documents and $ids repeated within the request
+        List<Snippet> candidates = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            Snippet snippet = parsed.get(i).snippet();
+            BulkItemResult result = null;
+            if (snippet == null) {
+                result = BulkItemResult.badRequest(null, parsed.get(i).error());
+            } else if (snippet.getId() != null && !requestIds.add(snippet.getId())) {
+                result = BulkItemResult.badRequest(snippet.getId(),
+                        "Snippet with $id '" + snippet.getId() + "' appears more than once in the request");
+            } else {
+                candidates.add(snippet);
+            }
+            chunkResults.add(result);
+        }
+
+        // Write all remaining documents at once, the store reports duplicate $ids per document
+        Map<Snippet, BulkItemResult> written = new IdentityHashMap<>();
+        Timer.Sample bulkIndex = Timer.start(meterRegistry);
+        try {
+            List<BulkItemResult> saved = snippetStore.saveAll(candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                written.put(candidates.get(i), saved.get(i));
+            }
+            if (saved.stream().anyMatch(result -> result.getStatus() == BulkItemResult.CREATED)) {
+                catalogChanged();
+            }
+        } catch (IOException e) {
+            log.error("Error writing bulk chunk of {} snippets", candidates.size(), e);
+            for (Snippet snippet : candidates) {
+                written.put(snippet, BulkItemResult.failed(snippet.getId(), "Error creating snippet: " + e.getMessage()));
+            }
+        } finally {
+            bulkIndex.stop(bulkIndexTimer);
+        }
+
+        // Report results in input order
+        for (int i = 0; i < lines.size(); i++) {
+            BulkItemResult result = chunkResults.get(i) != null ? chunkResults.get(i) : written.get(parsed.get(i).snippet());
+            result.setLine(lines.get(i).number());
+            results.accept(result);
+        }
+        log.info("Processed bulk chunk of {} snippets", lines.size());
+    }
+
+    /**
+     * Parse and validate a snippet document.
+     * The document is parsed once into a tree that is reused for schema validation and for mapping to a Snippet.
+     * Its size has already been checked while reading it.
+     *
+     * @param json The JSON document
+     * @return The parsed snippet
+     * @throws IllegalArgumentException If the document is not valid JSON or does not match the snippet schema
+     */
+    Snippet parseSnippet(String json) throws IllegalArgumentException {
         // Validate request body
-        if (requestBody == null || requestBody.trim().isEmpty()) {
+        if (json == null || json.trim().isEmpty()) {
             throw new IllegalArgumentException("Request body cannot be empty");
         }
 
         // Parse JSON
-        ObjectNode jsonNode;
+        JsonNode jsonNode;
+        Timer.Sample parse = Timer.start(meterRegistry);
         try {
-            jsonNode = objectMapper.readValue(requestBody, ObjectNode.class);
+            jsonNode = documentMapper.readTree(json);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid JSON format: " + e.getMessage());
+        } finally {
+            parse.stop(parseTimer);
+        }
+
+        return toSnippet(jsonNode);
+    }
+
+    /**
+     * Parse a single JSON document from a stream, reading the stream to its end.
+     *
+     * @param body The stream holding the document
+     * @return The parsed document
+     * @throws PayloadTooLargeException If the stream exceeds the maximum document size
+     * @throws IllegalArgumentException If the stream is empty or does not hold exactly one JSON document
+     */
+    private JsonNode readDocument(InputStream body) throws IllegalArgumentException {
+        try (JsonParser parser = documentMapper.createParser(body)) {
+            JsonNode jsonNode = documentMapper.readTree(parser);
+            if (jsonNode == null || jsonNode.isMissingNode()) {
+                throw new IllegalArgumentException("Request body cannot be empty");
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Invalid JSON format: unexpected content after the document");
+            }
+            return jsonNode;
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             throw new IllegalArgumentException("Invalid JSON format: " + e.getMessage());
         }
+    }
+
+    /**
+     * Validate a parsed document against the snippet schema and map it to a Snippet.
+     *
+     * @param jsonNode The parsed document
+     * @return The snippet
+     * @throws IllegalArgumentException If the document is not a JSON object or does not match the snippet schema
+     */
+    private Snippet toSnippet(JsonNode jsonNode) throws IllegalArgumentException {
+        if (!jsonNode.isObject()) {
+            throw new IllegalArgumentException("Invalid JSON format: expected a JSON object");
+        }
 
         // Validate against schema
-        String validationError = jsonSchemaValidator.validateSnippetWithErrorMessage(requestBody);
+        Timer.Sample validate = Timer.start(meterRegistry);
+        String validationError;
+        try {
+            validationError = jsonSchemaValidator.validateSnippetWithErrorMessage(jsonNode);
+        } finally {
+            validate.stop(validateTimer);
+        }
         if (validationError != null) {
             throw new IllegalArgumentException("Schema validation failed: " + validationError);
         }
 
-        // Check for duplicate $id
-        if (jsonNode.has("$id")) {
-            String id = jsonNode.get("$id").asText();
-            boolean exists = snippetRepository.existsById(id);
-            if (exists) {
-                throw new IllegalArgumentException("A snippet with $id '" + id + "' already exists");
-            }
-        }
-
-        // Convert to a Snippet object
-        Snippet snippet;
+        // Map the tree to a Snippet object
         try {
-            snippet = objectMapper.convertValue(jsonNode, Snippet.class);
+            return objectMapper.treeToValue(jsonNode, Snippet.class);
         } catch (Exception e) {
             throw new IllegalArgumentException("Invalid snippet format: " + e.getMessage());
         }
-
-        // Save the snippet
-        snippetRepository.save(snippet, requestBody);
-
-        log.info("Created new snippet with $id: {}", jsonNode.has("$id") ? jsonNode.get("$id").asText() : "<no id>");
-        
-        return snippet;
     }
 
     /**
@@ -90,18 +398,232 @@ public class SnippetService {
      * @throws IOException If there is an error deleting the snippet
      */
     public void delete(String id) throws IOException {
-        snippetRepository.delete(id);
+        Timer.Sample delete = Timer.start(meterRegistry);
+        try {
+            snippetStore.delete(id);
+        } finally {
+            delete.stop(deleteTimer);
+        }
+        snippetSchemaCache.invalidate(id);
+        catalogChanged();
+    }
+
+    /**
+     * Get a stored snippet compiled into a schema, to validate documents against it.
+     * The snippet is read and compiled once and then served from the snippet schema cache until it is deleted
+     * or evicted.
+     *
+     * @param id The $id of the snippet
+     * @return The compiled schema
+     * @throws SnippetNotFoundException If no snippet with the $id exists
+     * @throws IllegalArgumentException If the snippet cannot be compiled into a schema
+     * @throws IOException If there is an error reading the snippet
+     */
+    public JsonSchema snippetSchema(String id) throws IOException {
+        JsonSchema schema = snippetSchemaCache.get(id, () -> {
+            Optional<Snippet> snippet = snippetStore.findById(id);
+            if (snippet.isEmpty()) {
+                return null;
+            }
+            if (snippet.get().getSource() == null) {
+                throw new IllegalArgumentException("Snippet with $id '" + id + "' has no stored source");
+            }
+            JsonNode source = objectMapper.readTree(snippet.get().getSource());
+            Timer.Sample compile = Timer.start(meterRegistry);
+            try {
+                return jsonSchemaValidator.compile(source);
+            } finally {
+                compile.stop(compileSchemaTimer);
+            }
+        });
+        if (schema == null) {
+            throw new SnippetNotFoundException(id);
+        }
+        return schema;
+    }
+
+    /**
+     * Validate a single document against a compiled snippet.
+     * The request body is parsed incrementally with the same limits as a snippet document.
+     *
+     * @param schema The compiled snippet
+     * @param requestBody The JSON request body holding the document
+     * @param contentLength The declared length of the request body, or null if unknown
+     * @return The validation result
+     * @throws PayloadTooLargeException If the request body exceeds the maximum document size
+     * @throws IllegalArgumentException If the request body is not a single JSON document
+     */
+    public ValidationResult validateDocument(JsonSchema schema, InputStream requestBody, Long contentLength) {
+        if (contentLength != null && contentLength > maxDocumentSize) {
+            throw new PayloadTooLargeException(maxDocumentSize);
+        }
+        JsonNode document = readDocument(new BoundedCaptureInputStream(requestBody, maxDocumentSize, contentLength));
+        return validate(schema, document);
+    }
+
+    /**
+     * Validate documents from a newline-delimited JSON stream, one document per line, against a compiled snippet.
+     * The stream is processed in chunks of {@code snippet.bulk.chunk-size} lines whose documents are parsed and
+     * validated in parallel. Results are reported per document, in input order, as soon as their chunk is done.
+     * Lines are read with the same byte limit as the lines of a bulk create.
+     *
+     * @param schema The compiled snippet
+     * @param ndjson The newline-delimited JSON stream
+     * @param results Receives one result per non-blank line
+     * @throws IOException If the stream cannot be read
+     */
+    public void validateDocuments(JsonSchema schema, InputStream ndjson, Consumer<ValidationResult> results) throws IOException {
+        readChunks(ndjson, chunk -> validateChunk(schema, chunk, results));
+    }
+
+    private void validateChunk(JsonSchema schema, List<Line> lines, Consumer<ValidationResult> results) {
+        // The compiled schema is shared by all threads, every document is parsed and validated on its own
+        List<ValidationResult> validated = lines.parallelStream().map(line -> {
+            if (line.isTooLarge()) {
+                return ValidationResult.invalid(new PayloadTooLargeException(maxDocumentSize).getMessage());
+            }
+            JsonNode document;
+            try {
+                document = documentMapper.readTree(line.text());
+            } catch (Exception e) {
+                return ValidationResult.invalid("Invalid JSON format: " + e.getMessage());
+            }
+            return validate(schema, document);
+        }).toList();
+
+        // Report results in input order
+        for (int i = 0; i < lines.size(); i++) {
+            ValidationResult result = validated.get(i);
+            result.setLine(lines.get(i).number());
+            results.accept(result);
+        }
+    }
+
+    private ValidationResult validate(JsonSchema schema, JsonNode document) {
+        Timer.Sample validate = Timer.start(meterRegistry);
+        try {
+            return ValidationResult.of(JsonSchemaValidator.validationErrors(schema, document));
+        } finally {
+            validate.stop(validateDocumentTimer);
+        }
+    }
+
+    /**
+     * Drop cached search responses and bump the catalog generation after a change.
+     */
+    private void catalogChanged() {
+        searchResultCache.invalidateAll();
+        catalogVersionService.bump();
+    }
+
+    /**
+     * Search for one page of snippets based on the provided search text
+     *
+     * @param searchText The text to search for
+     * @param size The maximum number of results of the page
+     * @param fields The fields to return
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @return The page of matching snippets
+     * @throws IOException If there is an error searching for snippets
+     */
+    public SearchPage searchSnippets(String searchText, int size, Set<SnippetField> fields, String cursor) throws IOException {
+        Timer.Sample search = Timer.start(meterRegistry);
+        try {
+            SearchPage page = snippetStore.search(searchText, size, fields, cursor);
+            searchResults.record(page.snippets().size());
+            return page;
+        } finally {
+            search.stop(searchTimer);
+        }
     }
 
     /**
-     * Search for snippets based on the provided search text
+     * Search for one page of snippets and return the serialized JSON response.
+     * First pages are served from the search result cache when possible, following pages are always read
+     * from the store.
      *
      * @param searchText The text to search for
-     * @param limit The maximum number of results to return
-     * @return A list of matching snippets
+     * @param size The requested page size, capped at {@code snippet.search.max-page-size}, or null for the default
+     * @param fields The fields to return
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @return The matching snippets serialized as a JSON array, with the cursor of the next page
+     * @throws IllegalArgumentException If the page size or cursor is invalid
      * @throws IOException If there is an error searching for snippets
      */
-    public List<Snippet> searchSnippets(String searchText, int limit) throws IOException {
-        return snippetRepository.search(searchText, limit);
+    public SearchResult searchSnippetsJson(String searchText, Integer size, Set<SnippetField> fields, String cursor) throws IOException {
+        int pageSize = pageSize(size);
+
+        String normalizedSearchText = SearchResultCache.normalize(searchText);
+        SearchResultCache.Loader loader = () -> {
+            SearchPage page = searchSnippets(normalizedSearchText, pageSize, fields, cursor);
+            return new SearchResult(objectMapper.writeValueAsBytes(page.snippets()), page.nextCursor());
+        };
+        return cursor == null
+                ? searchResultCache.get(normalizedSearchText, pageSize, fields, loader)
+                : loader.load();
+    }
+
+    /**
+     * Resolve the requested page size of a search.
+     *
+     * @param size The requested page size, or null for the default
+     * @return The page size, capped at {@code snippet.search.max-page-size}
+     * @throws IllegalArgumentException If the requested page size is less than 1
+     */
+    int pageSize(Integer size) throws IllegalArgumentException {
+        if (size != null && size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return size != null ? Math.min(size, maxPageSize) : Constants.DEFAULT_LIMIT;
+    }
+
+    /**
+     * Suggest snippets for typeahead, by a prefix of their title or $id.
+     * Suggestions bypass the query builder and the search result cache, they are answered by the prefix
+     * structures of the store.
+     *
+     * @param prefix The prefix typed so far, leading whitespace is ignored
+     * @param size The maximum number of suggestions, capped at {@code snippet.suggest.max-size}, or null for the default
+     * @return The suggested snippets with only $id and title, empty if the prefix is blank
+     * @throws IllegalArgumentException If the requested size is less than 1
+     * @throws IOException If there is an error reading the suggestions
+     */
+    public List<Snippet> suggest(String prefix, Integer size) throws IOException {
+        if (size != null && size < 1) {
+            throw new IllegalArgumentException("Suggestion size must be at least 1");
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return Collections.emptyList();
+        }
+        int suggestSize = size != null ? Math.min(size, maxSuggestSize) : Constants.DEFAULT_SUGGEST_SIZE;
+        Timer.Sample suggest = Timer.start(meterRegistry);
+        try {
+            List<Snippet> suggestions = snippetStore.suggest(prefix.stripLeading(), suggestSize);
+            suggestResults.record(suggestions.size());
+            return suggestions;
+        } finally {
+            suggest.stop(suggestTimer);
+        }
+    }
+
+    /**
+     * Export all snippets, including their stored source.
+     * Snippets are read in batches of {@code snippet.export.batch-size} and handed to the sink one at a time,
+     * so the whole catalog is never held in memory.
+     *
+     * @param sink Receives each snippet, newest first
+     * @throws IOException If there is an error reading the snippets
+     */
+    public void exportSnippets(Consumer<Snippet> sink) throws IOException {
+        snippetStore.export(exportBatchSize, sink);
+    }
+
+    /**
+     * The outcome of parsing and validating a bulk line
+     *
+     * @param snippet The parsed snippet, null if the line is invalid
+     * @param error The validation error, null if the line is valid
+     */
+    private record ParsedLine(Snippet snippet, String error) {
     }
 }
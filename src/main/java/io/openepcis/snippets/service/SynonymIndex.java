@@ -0,0 +1,108 @@
+package io.openepcis.snippets.service;
+
+import java.util.*;
+
+/**
+ * Immutable, bidirectional synonym index.
+ * Every entry of a synonym dictionary ({@code term -> [synonyms]}) becomes one synonym group containing the
+ * term and its synonyms. Each distinct term is mapped to the groups it belongs to, so a lookup is a single
+ * hash probe (O(term length)) instead of a scan over all entries. Terms are deduplicated across groups,
+ * so every distinct term is held in memory only once.
+ */
+public final class SynonymIndex {
+
+    private static final int[] NO_GROUPS = new int[0];
+
+    private static final SynonymIndex EMPTY = new SynonymIndex(new String[0][], Collections.emptyMap());
+
+    private final String[][] groups;
+    private final Map<String, int[]> termGroups;
+
+    private SynonymIndex(String[][] groups, Map<String, int[]> termGroups) {
+        this.groups = groups;
+        this.termGroups = termGroups;
+    }
+
+    /**
+     * @return An index without any synonyms
+     */
+    public static SynonymIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build an index from a synonym dictionary.
+     *
+     * @param dictionary The dictionary mapping a term to its synonyms
+     * @return The synonym index
+     */
+    public static SynonymIndex of(Map<String, List<String>> dictionary) {
+        Map<String, String> termPool = new HashMap<>();
+        String[][] groups = new String[dictionary.size()][];
+        Map<String, int[]> termGroups = new HashMap<>();
+
+        int groupId = 0;
+        for (Map.Entry<String, List<String>> entry : dictionary.entrySet()) {
+            Set<String> group = new LinkedHashSet<>();
+            group.add(entry.getKey());
+            group.addAll(entry.getValue());
+
+            String[] terms = new String[group.size()];
+            int i = 0;
+            for (String term : group) {
+                String pooled = termPool.computeIfAbsent(term, t -> t);
+                terms[i++] = pooled;
+                termGroups.merge(pooled, new int[]{groupId}, SynonymIndex::append);
+            }
+            groups[groupId++] = terms;
+        }
+
+        return new SynonymIndex(groups, termGroups);
+    }
+
+    private static int[] append(int[] existing, int[] added) {
+        int[] merged = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+
+    /**
+     * Add all terms of the groups containing the given term to the result.
+     *
+     * @param term   The term to look up, already normalized
+     * @param result The set to add the synonyms to
+     */
+    public void addSynonyms(String term, Set<String> result) {
+        for (int groupId : termGroups.getOrDefault(term, NO_GROUPS)) {
+            Collections.addAll(result, groups[groupId]);
+        }
+    }
+
+    /**
+     * Render the synonym groups as equivalence rules in the Solr synonym format, one {@code "a, b, c"} rule per group,
+     * as accepted by the {@code synonym_graph} token filter.
+     *
+     * @return The synonym rules in dictionary order
+     */
+    public List<String> rules() {
+        List<String> rules = new ArrayList<>(groups.length);
+        for (String[] group : groups) {
+            rules.add(String.join(", ", group));
+        }
+        return rules;
+    }
+
+    /**
+     * @return The number of synonym groups, one per dictionary entry
+     */
+    public int groupCount() {
+        return groups.length;
+    }
+
+    /**
+     * @return The number of distinct terms
+     */
+    public int termCount() {
+        return termGroups.size();
+    }
+}
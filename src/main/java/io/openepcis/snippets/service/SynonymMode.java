@@ -0,0 +1,18 @@
+package io.openepcis.snippets.service;
+
+/**
+ * Where synonyms are applied, configured through {@code snippet.search.synonyms.mode}.
+ */
+public enum SynonymMode {
+
+    /**
+     * The query builder expands the search text with one set of clauses per synonym.
+     */
+    QUERY,
+
+    /**
+     * The synonym dictionary is compiled into a {@code synonym_graph} search analyzer of the index,
+     * and the query builder sends only the original search text.
+     */
+    INDEX
+}
@@ -2,8 +2,12 @@ package io.openepcis.snippets.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.openepcis.snippets.constants.Constants;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -13,46 +17,63 @@ import java.util.*;
 /**
  * Service for handling synonym operations.
  * This service loads synonyms from a JSON file and provides methods to retrieve synonyms for a given term.
- * The synonyms are loaded once statically to avoid memory leaks and improve performance.
+ * The synonyms are loaded once statically into an immutable {@link SynonymIndex} to avoid memory leaks and improve performance.
  */
 @ApplicationScoped
 @Slf4j
 public class SynonymService {
 
-    // Static field to ensure it is created only once
-    private static final Map<String, List<String>> synonymMap = new HashMap<>();
+    static final String EXPANSIONS_METRIC = "snippet.search.synonym.expansions";
 
-    // Static initializer block to load synonyms once when the class is loaded
-    static {
-        loadSynonyms();
-    }
+    // Static field to ensure it is created only once
+    private static final SynonymIndex synonymIndex = loadSynonyms();
 
     // No need for injected ObjectMapper as we use a temporary one in the static loadSynonyms method
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private DistributionSummary expansions;
+
+    /**
+     * Register the distribution of synonym expansions per search.
+     */
+    @PostConstruct
+    void init() {
+        expansions = DistributionSummary.builder(EXPANSIONS_METRIC)
+                .description("Number of synonyms a search text is expanded with")
+                .register(meterRegistry);
+    }
+
     /**
      * Load synonyms from the external JSON file.
      * This method is called once when the class is loaded.
+     *
+     * @return The synonym index, empty if the file is missing or cannot be read
      */
-    private static void loadSynonyms() {
+    private static SynonymIndex loadSynonyms() {
         // Create a temporary ObjectMapper for static initialization
         ObjectMapper tempObjectMapper = new ObjectMapper();
 
         try (InputStream inputStream = SynonymService.class.getClassLoader().getResourceAsStream(Constants.SYNONYM_FILE_PATH)) {
             if (inputStream == null) {
                 log.warn("Synonym file not found: {}. Using empty synonym map.", Constants.SYNONYM_FILE_PATH);
-                return;
+                return SynonymIndex.empty();
             }
 
             // Parse the JSON file into a map structure using TypeReference for the flattened structure
             TypeReference<Map<String, List<String>>> typeRef = new TypeReference<>() {};
             Map<String, List<String>> flatSynonyms = tempObjectMapper.readValue(inputStream, typeRef);
 
-            // Add all entries to the synonym map
-            synonymMap.putAll(flatSynonyms);
+            // Build the bidirectional index once
+            SynonymIndex index = SynonymIndex.of(flatSynonyms);
 
-            log.info("Loaded {} synonym entries from {}", synonymMap.size(), Constants.SYNONYM_FILE_PATH);
+            log.info("Loaded {} synonym entries ({} distinct terms) from {}",
+                    index.groupCount(), index.termCount(), Constants.SYNONYM_FILE_PATH);
+            return index;
         } catch (IOException e) {
             log.error("Failed to load synonyms from {}", Constants.SYNONYM_FILE_PATH, e);
+            return SynonymIndex.empty();
         }
     }
 
@@ -76,31 +97,29 @@ public class SynonymService {
         // Check for exact matches in the synonym map
         addExactMatchSynonyms(lowerSearchText, result);
 
+        // The original search text is not an expansion
+        expansions.record(result.size() - 1);
         return result;
     }
 
     /**
-     * Add synonyms for exact matches in the synonym map.
+     * Get the synonym dictionary as {@code synonym_graph} rules, used when synonyms are applied by the index analyzer.
+     *
+     * @return One equivalence rule per synonym group
+     */
+    public List<String> getSynonymRules() {
+        return synonymIndex.rules();
+    }
+
+    /**
+     * Add synonyms for exact matches in the synonym index.
+     * A term matches a synonym group either as the dictionary key or as one of its synonyms.
      *
      * @param term The term to find exact synonyms for
      * @param result The set to add the synonyms to
      */
     private void addExactMatchSynonyms(String term, Set<String> result) {
-        // Check if the term is a key in the synonym map
-        List<String> exactSynonyms = synonymMap.get(term);
-        if (exactSynonyms != null) {
-            result.addAll(exactSynonyms);
-            // Also add the key itself
-            result.add(term);
-        }
-
-        // Check if the term is a value in the synonym map
-        for (Map.Entry<String, List<String>> entry : synonymMap.entrySet()) {
-            if (entry.getValue().contains(term)) {
-                result.add(entry.getKey());
-                result.addAll(entry.getValue());
-            }
-        }
+        synonymIndex.addSynonyms(term, result);
     }
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package io.openepcis.snippets.util;
+
+import io.openepcis.snippets.service.PayloadTooLargeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Input stream that keeps a copy of the bytes read from the wrapped stream and fails as soon as more than
+ * a maximum number of bytes has been read. This lets a request body be parsed incrementally while the raw
+ * document is captured for storage, with memory bounded by the maximum size.
+ */
+public class BoundedCaptureInputStream extends FilterInputStream {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 8192;
+
+    private final long maxSize;
+    private final ByteArrayOutputStream captured;
+
+    /**
+     * @param in            The stream to read from
+     * @param maxSize       The maximum number of bytes that may be read
+     * @param expectedSize  The expected number of bytes, used to size the capture buffer, or null if unknown
+     */
+    public BoundedCaptureInputStream(InputStream in, long maxSize, Long expectedSize) {
+        super(in);
+        this.maxSize = maxSize;
+        this.captured = new ByteArrayOutputStream(expectedSize != null && expectedSize > 0
+                ? (int) Math.min(expectedSize, maxSize) : DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            checkSize(1);
+            captured.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            checkSize(n);
+            captured.write(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes must still be captured, so read them instead
+        byte[] buffer = new byte[(int) Math.min(n, DEFAULT_INITIAL_CAPACITY)];
+        int read = read(buffer, 0, buffer.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return The number of bytes read so far
+     */
+    public int capturedSize() {
+        return captured.size();
+    }
+
+    /**
+     * @return The bytes read so far, decoded as UTF-8
+     */
+    public String capturedAsString() {
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    private void checkSize(int n) {
+        if (captured.size() + (long) n > maxSize) {
+            throw new PayloadTooLargeException(maxSize);
+        }
+    }
+}
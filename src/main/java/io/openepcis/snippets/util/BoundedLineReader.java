@@ -0,0 +1,118 @@
+package io.openepcis.snippets.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a newline-delimited stream line by line with a maximum line size in bytes. Bytes of a line beyond the
+ * maximum are skipped up to the next newline instead of being buffered, so memory is bounded by the maximum
+ * line size however long a line is, and the lines after an oversized one are still read.
+ */
+public class BoundedLineReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final long maxLineSize;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    private int position;
+    private int limit;
+    private int lineNumber;
+
+    /**
+     * @param in          The stream to read from
+     * @param maxLineSize The maximum number of bytes of a line, without its line terminator
+     */
+    public BoundedLineReader(InputStream in, long maxLineSize) {
+        this.in = in;
+        this.maxLineSize = maxLineSize;
+    }
+
+    /**
+     * Read the next line, terminated by {@code \n} or {@code \r\n} or the end of the stream.
+     *
+     * @return The line, or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public Line readLine() throws IOException {
+        line.reset();
+        long size = 0;
+        boolean read = false;
+        boolean tooLarge = false;
+        byte last = 0;
+        while (true) {
+            if (position == limit) {
+                limit = Math.max(in.read(buffer), 0);
+                position = 0;
+                if (limit == 0) {
+                    if (!read) {
+                        return null;
+                    }
+                    break;
+                }
+            }
+            read = true;
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int n = position - start;
+            if (n > 0) {
+                size += n;
+                last = buffer[position - 1];
+                // One byte of room for the carriage return of a \r\n terminator
+                if (!tooLarge && size > maxLineSize + 1) {
+                    tooLarge = true;
+                    line.reset();
+                } else if (!tooLarge) {
+                    line.write(buffer, start, n);
+                }
+            }
+            if (position < limit) {
+                // Consume the newline
+                position++;
+                break;
+            }
+        }
+
+        lineNumber++;
+        boolean carriageReturn = size > 0 && last == '\r';
+        if (carriageReturn) {
+            size--;
+        }
+        if (tooLarge || size > maxLineSize) {
+            return new Line(lineNumber, null, size);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return new Line(lineNumber, carriageReturn ? text.substring(0, text.length() - 1) : text, size);
+    }
+
+    /**
+     * A line of the stream
+     *
+     * @param number The 1-based line number
+     * @param text   The line without its terminator, null if it exceeds the maximum line size
+     * @param size   The size of the line in bytes, without its terminator
+     */
+    public record Line(int number, String text, long size) {
+
+        /**
+         * @return true if the line exceeds the maximum line size and its text was skipped
+         */
+        public boolean isTooLarge() {
+            return text == null;
+        }
+
+        /**
+         * @return true if the line holds nothing but whitespace
+         */
+        public boolean isBlank() {
+            return text != null && text.isBlank();
+        }
+    }
+}
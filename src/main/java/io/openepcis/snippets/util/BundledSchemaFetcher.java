@@ -0,0 +1,46 @@
+package io.openepcis.snippets.util;
+
+import com.networknt.schema.uri.URIFetcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches referenced schemas from the bundled meta-schemas only. Snippets are user input, so a {@code $ref} to
+ * a remote or local URI must not make the service open a connection or read a file: every other URI fails to
+ * resolve, and so does the compilation of the snippet referencing it.
+ */
+class BundledSchemaFetcher implements URIFetcher {
+
+    // Schemes the default fetchers of the schema factory handle
+    static final List<String> SCHEMES = List.of("http", "https", "ftp", "file", "jar", "classpath", "resource");
+
+    private final Map<String, String> resources;
+
+    /**
+     * @param resources The bundled schema resources by normalized URI
+     */
+    BundledSchemaFetcher(Map<String, String> resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * @param uri The URI of the referenced schema
+     * @return The bundled schema of the URI
+     * @throws IOException if no schema is bundled for the URI
+     */
+    @Override
+    public InputStream fetch(URI uri) throws IOException {
+        // References point into the document with their fragment, the document is the same
+        String document = JsonSchemaValidator.normalizeSchemaUri(uri.getScheme() + ":" + uri.getSchemeSpecificPart());
+        String resource = resources.get(document);
+        InputStream in = resource != null ? getClass().getClassLoader().getResourceAsStream(resource) : null;
+        if (in == null) {
+            throw new IOException("Schema " + uri + " is not bundled, referenced schemas are not fetched");
+        }
+        return in;
+    }
+}
@@ -2,51 +2,215 @@ package io.openepcis.snippets.util;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.networknt.schema.JsonSchema;
+import com.networknt.schema.JsonSchemaException;
 import com.networknt.schema.JsonSchemaFactory;
 import com.networknt.schema.SpecVersion;
+import com.networknt.schema.SpecVersionDetector;
 import com.networknt.schema.ValidationMessage;
+import com.networknt.schema.uri.URIFetcher;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Utility class for validating JSON against a schema
+ * Utility class for validating JSON against a schema.
+ * <p>
+ * The schemas listed in {@code snippet.validation.schemas} are compiled once at startup into an immutable
+ * registry keyed by schema URI: the {@code $id} of the schema, or {@code classpath:} and the resource path if it
+ * has none. Each schema is compiled with the draft named in its {@code $schema}, so versions of the snippet schema
+ * can be held side by side. Snippets are validated against the first schema of the list.
+ * <p>
+ * Snippets are JSON schemas themselves, so they are also validated against the meta-schema named in their
+ * {@code $schema}. Approximations of the meta-schemas of draft-07, 2019-09 and 2020-12 are bundled in
+ * {@code schema/meta} and compiled at startup as well, so validation never fetches a schema over the network. They
+ * are not the official documents and carry their own {@code $id}, the official URIs are mapped to them by
+ * {@link #META_SCHEMAS}. Snippets naming any other {@code $schema} are handled according to
+ * {@code snippet.validation.unknown-meta-schema}. A {@code $ref} to any URI other than a bundled meta-schema fails
+ * to resolve rather than being fetched, see {@link BundledSchemaFetcher}.
+ * <p>
+ * Stored snippets can be compiled into schemas as well, with {@link #compile(JsonNode)}, to validate documents
+ * against them.
+ * <p>
+ * The registry is never modified after it is published, so validating threads read it without locking.
  */
 @ApplicationScoped
+@Startup
 @Slf4j
 public class JsonSchemaValidator {
 
-    private JsonSchema snippetSchema;
+    public static final String SNIPPET_SCHEMA = "schema/snippet-schema.json";
+
+    static final String CLASSPATH_SCHEME = "classpath:";
+
+    // Bundled approximations by the normalized official URI of the meta-schema they stand in for
+    static final Map<String, String> META_SCHEMAS = Map.of(
+            "http://json-schema.org/draft-07/schema", "schema/meta/draft-07.json",
+            "http://json-schema.org/draft/2019-09/schema", "schema/meta/draft-2019-09.json",
+            "http://json-schema.org/draft/2020-12/schema", "schema/meta/draft-2020-12.json");
+
+    // Draft used to compile snippets whose $schema is missing or not recognized
+    static final SpecVersion.VersionFlag DEFAULT_VERSION = SpecVersion.VersionFlag.V7;
 
     @Inject
     ObjectMapper objectMapper;
 
+    @ConfigProperty(name = "snippet.validation.schemas", defaultValue = SNIPPET_SCHEMA)
+    List<String> schemaResources;
+
+    @ConfigProperty(name = "snippet.validation.unknown-meta-schema", defaultValue = "accept")
+    UnknownMetaSchemaPolicy unknownMetaSchemaPolicy;
+
+    private volatile Registry registry;
+
     /**
-     * Initialize the validator by loading the snippet schema
+     * Compile all configured schemas. A schema that is missing or cannot be compiled fails the startup instead
+     * of failing the first validation.
      */
+    @PostConstruct
     public void init() {
-        try (InputStream schemaStream = getClass().getClassLoader()
-                .getResourceAsStream("schema/snippet-schema.json")) {
+        // The bundled meta-schemas are also served for their own $ids, when referenced
+        Map<String, JsonNode> metaSchemaNodes = new HashMap<>();
+        Map<String, String> bundled = new HashMap<>(META_SCHEMAS);
+        for (String resource : META_SCHEMAS.values()) {
+            JsonNode schemaNode = readSchema(resource);
+            metaSchemaNodes.put(resource, schemaNode);
+            bundled.put(normalizeSchemaUri(schemaNode.path("$id").asText()), resource);
+        }
+        URIFetcher fetcher = new BundledSchemaFetcher(bundled);
 
-            if (schemaStream == null) {
-                log.error("Failed to load snippet schema");
-                return;
+        Map<SpecVersion.VersionFlag, JsonSchemaFactory> factories = new EnumMap<>(SpecVersion.VersionFlag.class);
+        for (SpecVersion.VersionFlag version : SpecVersion.VersionFlag.values()) {
+            factories.put(version, JsonSchemaFactory.builder(JsonSchemaFactory.getInstance(version))
+                    .uriFetcher(fetcher, BundledSchemaFetcher.SCHEMES.toArray(String[]::new))
+                    .build());
+        }
+        Map<String, JsonSchema> schemas = compile(schemaResources, factories);
+        if (schemas.isEmpty()) {
+            throw new IllegalStateException("No schemas configured in snippet.validation.schemas");
+        }
+        Map<String, JsonSchema> metaSchemas = new HashMap<>();
+        META_SCHEMAS.forEach((uri, resource) -> metaSchemas.put(uri, compile(resource, metaSchemaNodes.get(resource), factories)));
+        registry = new Registry(Collections.unmodifiableMap(schemas), schemas.values().iterator().next(),
+                Map.copyOf(metaSchemas), Collections.unmodifiableMap(factories));
+    }
+
+    /**
+     * Compile schema resources, each with the draft named in its {@code $schema}.
+     *
+     * @param resources The schema resources
+     * @param factories The schema factories by draft, shared by all compiled schemas
+     * @return The compiled schemas by URI, in the order of the resources
+     */
+    private Map<String, JsonSchema> compile(List<String> resources, Map<SpecVersion.VersionFlag, JsonSchemaFactory> factories) {
+        Map<String, JsonSchema> schemas = new LinkedHashMap<>();
+        for (String resource : resources) {
+            JsonNode schemaNode = readSchema(resource);
+            String uri = schemaNode.path("$id").isTextual() ? schemaNode.get("$id").asText() : CLASSPATH_SCHEME + resource;
+            if (schemas.putIfAbsent(uri, compile(resource, schemaNode, factories)) != null) {
+                throw new IllegalStateException("Duplicate schema URI " + uri + " in " + resource);
             }
+        }
+        return schemas;
+    }
 
-            JsonSchemaFactory factory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
-            snippetSchema = factory.getSchema(schemaStream);
-            log.info("Snippet schema loaded successfully");
+    /**
+     * Compile a schema resource with the draft named in its {@code $schema}.
+     *
+     * @param resource   The schema resource
+     * @param schemaNode The parsed schema
+     * @param factories  The schema factories by draft
+     * @return The compiled schema
+     */
+    private JsonSchema compile(String resource, JsonNode schemaNode, Map<SpecVersion.VersionFlag, JsonSchemaFactory> factories) {
+        JsonSchema schema = factories.get(SpecVersionDetector.detect(schemaNode)).getSchema(schemaNode);
+        // Resolve all keywords and references now rather than on the first validation
+        schema.initializeValidators();
+        log.info("Compiled schema {} from {}", schemaNode.path("$id").asText(CLASSPATH_SCHEME + resource), resource);
+        return schema;
+    }
+
+    private JsonNode readSchema(String resource) {
+        try (InputStream schemaStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+            if (schemaStream == null) {
+                throw new IllegalStateException("Schema not found: " + resource);
+            }
+            return objectMapper.readTree(schemaStream);
         } catch (IOException e) {
-            log.error("Error loading snippet schema", e);
+            throw new IllegalStateException("Failed to read schema " + resource, e);
+        }
+    }
+
+    /**
+     * Compile a stored snippet into a schema, with the draft named in its {@code $schema}, or with draft-07 if that
+     * is missing or not recognized. The {@code $id} is removed from the tree before compiling: snippet ids are often
+     * URNs, which cannot serve as base URI, and references within the snippet resolve against the document itself.
+     * References to other documents resolve to the bundled meta-schemas only, nothing is fetched.
+     * The compiled schema is safe for concurrent validations.
+     *
+     * @param snippetNode The parsed source of the snippet, modified by the call
+     * @return The compiled schema
+     * @throws IllegalArgumentException if the snippet is not a JSON object or cannot be compiled into a schema
+     */
+    public JsonSchema compile(JsonNode snippetNode) {
+        if (!(snippetNode instanceof ObjectNode snippetObject)) {
+            throw new IllegalArgumentException("Snippet source is not a JSON object");
+        }
+        SpecVersion.VersionFlag version;
+        try {
+            version = SpecVersionDetector.detect(snippetObject);
+        } catch (JsonSchemaException e) {
+            // The factory would otherwise try to resolve the unknown meta-schema
+            snippetObject.remove("$schema");
+            version = DEFAULT_VERSION;
+        }
+        snippetObject.remove("$id");
+
+        try {
+            JsonSchema schema = registry().factories().get(version).getSchema(snippetObject);
+            // Resolve all keywords and references once, rather than on the first validation
+            schema.initializeValidators();
+            return schema;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Snippet cannot be compiled into a schema: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Validate an already parsed JSON document against a compiled schema
+     *
+     * @param schema   The compiled schema
+     * @param jsonNode The JSON document to validate
+     * @return A formatted list of validation error messages, empty if validation succeeds
+     */
+    public static List<String> validationErrors(JsonSchema schema, JsonNode jsonNode) {
+        return validate(schema, jsonNode).stream()
+                .map(ValidationMessage::getMessage)
+                .toList();
+    }
+
+    /**
+     * @return The URIs of all compiled schemas, the snippet schema first
+     */
+    public Set<String> schemaUris() {
+        return registry().schemas().keySet();
+    }
+
     /**
      * Validate a JSON string against the snippet schema
      *
@@ -55,12 +219,59 @@ public class JsonSchemaValidator {
      */
     public Set<ValidationMessage> validateSnippet(String json) {
         try {
-            if (snippetSchema == null) {
-                init();
-            }
+            return validateSnippet(objectMapper.readTree(json));
+        } catch (IOException e) {
+            log.error("Error validating JSON", e);
+            throw new RuntimeException("Error validating JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Validate an already parsed JSON document against the snippet schema and, if it matches, against the
+     * meta-schema named in its {@code $schema}
+     *
+     * @param jsonNode The JSON document to validate
+     * @return A set of validation error messages, empty if validation succeeds
+     * @throws IllegalArgumentException if the meta-schema is not bundled and unknown meta-schemas are rejected
+     */
+    public Set<ValidationMessage> validateSnippet(JsonNode jsonNode) {
+        Registry current = registry();
+        Set<ValidationMessage> errors = validate(current.snippetSchema(), jsonNode);
+        if (!errors.isEmpty()) {
+            return errors;
+        }
 
-            JsonNode jsonNode = objectMapper.readTree(json);
-            return snippetSchema.validate(jsonNode);
+        String schemaUri = jsonNode.path("$schema").asText();
+        JsonSchema metaSchema = current.metaSchemas().get(normalizeSchemaUri(schemaUri));
+        if (metaSchema != null) {
+            return validate(metaSchema, jsonNode);
+        }
+        if (unknownMetaSchemaPolicy == UnknownMetaSchemaPolicy.REJECT) {
+            throw new IllegalArgumentException("Unsupported $schema: " + schemaUri);
+        }
+        log.debug("No meta-schema bundled for {}, skipping meta-schema validation", schemaUri);
+        return errors;
+    }
+
+    /**
+     * Validate an already parsed JSON document against one of the compiled schemas
+     *
+     * @param schemaUri The URI of the schema
+     * @param jsonNode  The JSON document to validate
+     * @return A set of validation error messages, empty if validation succeeds
+     * @throws IllegalArgumentException if no schema with the URI is compiled
+     */
+    public Set<ValidationMessage> validate(String schemaUri, JsonNode jsonNode) {
+        JsonSchema schema = registry().schemas().get(schemaUri);
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown schema: " + schemaUri);
+        }
+        return validate(schema, jsonNode);
+    }
+
+    private static Set<ValidationMessage> validate(JsonSchema schema, JsonNode jsonNode) {
+        try {
+            return schema.validate(jsonNode);
         } catch (Exception e) {
             log.error("Error validating JSON", e);
             throw new RuntimeException("Error validating JSON: " + e.getMessage(), e);
@@ -74,8 +285,45 @@ public class JsonSchemaValidator {
      * @return null if validation succeeds, otherwise a string containing all validation errors
      */
     public String validateSnippetWithErrorMessage(String json) {
-        Set<ValidationMessage> errors = validateSnippet(json);
+        return formatErrors(validateSnippet(json));
+    }
+
+    /**
+     * Validate an already parsed JSON document against the snippet schema and return a formatted error message
+     *
+     * @param jsonNode The JSON document to validate
+     * @return null if validation succeeds, otherwise a string containing all validation errors
+     */
+    public String validateSnippetWithErrorMessage(JsonNode jsonNode) {
+        return formatErrors(validateSnippet(jsonNode));
+    }
+
+    /**
+     * Normalize a meta-schema URI, so that the common spellings of a draft URI select the same meta-schema.
+     *
+     * @param uri The URI of a {@code $schema}
+     * @return The URI without an empty fragment and with {@code http} instead of {@code https}
+     */
+    static String normalizeSchemaUri(String uri) {
+        String normalized = uri.trim();
+        if (normalized.endsWith("#")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (normalized.startsWith("https://")) {
+            normalized = "http://" + normalized.substring("https://".length());
+        }
+        return normalized;
+    }
+
+    private Registry registry() {
+        Registry current = registry;
+        if (current == null) {
+            throw new IllegalStateException("Schemas have not been compiled");
+        }
+        return current;
+    }
 
+    private static String formatErrors(Set<ValidationMessage> errors) {
         if (errors.isEmpty()) {
             return null;
         }
@@ -84,4 +332,16 @@ public class JsonSchemaValidator {
                 .map(ValidationMessage::getMessage)
                 .collect(Collectors.joining(", "));
     }
+
+    /**
+     * The compiled schemas, published once by {@link #init()}
+     *
+     * @param schemas       The schemas by URI, in configuration order
+     * @param snippetSchema The schema snippets are validated against
+     * @param metaSchemas   The bundled meta-schemas by the normalized official URI they stand in for
+     * @param factories     The schema factories by draft, used to compile snippets
+     */
+    private record Registry(Map<String, JsonSchema> schemas, JsonSchema snippetSchema, Map<String, JsonSchema> metaSchemas,
+                            Map<SpecVersion.VersionFlag, JsonSchemaFactory> factories) {
+    }
 }
@@ -0,0 +1,18 @@
+package io.openepcis.snippets.util;
+
+/**
+ * How snippets declaring a {@code $schema} without a bundled meta-schema are handled, configured through
+ * {@code snippet.validation.unknown-meta-schema}.
+ */
+public enum UnknownMetaSchemaPolicy {
+
+    /**
+     * The snippet is only validated against the snippet schema.
+     */
+    ACCEPT,
+
+    /**
+     * The snippet is rejected as invalid.
+     */
+    REJECT
+}
@@ -1,21 +1,34 @@
 package io.openepcis.snippets;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openepcis.snippets.model.CatalogVersion;
 import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.repository.StoreBusyException;
+import io.openepcis.snippets.service.CatalogVersionService;
+import io.openepcis.snippets.service.PayloadTooLargeException;
+import io.openepcis.snippets.service.SearchResult;
 import io.openepcis.snippets.service.SnippetService;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @QuarkusTest
@@ -27,6 +40,16 @@ public class SnippetResourceTest {
     @InjectMock
     SnippetService snippetService;
 
+    @InjectMock
+    CatalogVersionService catalogVersionService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testGetSnippetsWithFuzzySearch() throws IOException {
         // Setup mock data
@@ -37,20 +60,19 @@ public class SnippetResourceTest {
         mockSnippets.add(snippet);
 
         // Setup mock service response for fuzzy search
-        when(snippetService.searchSnippets(eq("testt"), anyInt())).thenReturn(mockSnippets);
+        when(snippetService.searchSnippetsJson(eq("testt"), any(), any(), any())).thenReturn(new SearchResult(objectMapper.writeValueAsBytes(mockSnippets), null));
 
         // Call the endpoint with a slightly misspelled word
-        Response response = snippetResource.getSnippets("testt");
+        Response response = snippetResource.getSnippets("testt", null, null, null, null);
 
         // Verify the service was called with the correct parameters
-        verify(snippetService).searchSnippets(eq("testt"), anyInt());
+        verify(snippetService).searchSnippetsJson(eq("testt"), any(), any(), any());
 
         // Verify the response
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
 
         // Get the response entity
-        @SuppressWarnings("unchecked")
-        List<Snippet> responseSnippets = (List<Snippet>) response.getEntity();
+        List<Snippet> responseSnippets = objectMapper.readValue((byte[]) response.getEntity(), new TypeReference<List<Snippet>>() {});
 
         // Verify the response contains the expected snippets
         assertNotNull(responseSnippets);
@@ -70,20 +92,19 @@ public class SnippetResourceTest {
         mockSnippets.add(snippet);
 
         // Setup mock service response for search with stop words
-        when(snippetService.searchSnippets(eq("the test and a"), anyInt())).thenReturn(mockSnippets);
+        when(snippetService.searchSnippetsJson(eq("the test and a"), any(), any(), any())).thenReturn(new SearchResult(objectMapper.writeValueAsBytes(mockSnippets), null));
 
         // Call the endpoint with a query containing stop words
-        Response response = snippetResource.getSnippets("the test and a");
+        Response response = snippetResource.getSnippets("the test and a", null, null, null, null);
 
         // Verify the service was called with the correct parameters
-        verify(snippetService).searchSnippets(eq("the test and a"), anyInt());
+        verify(snippetService).searchSnippetsJson(eq("the test and a"), any(), any(), any());
 
         // Verify the response
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
 
         // Get the response entity
-        @SuppressWarnings("unchecked")
-        List<Snippet> responseSnippets = (List<Snippet>) response.getEntity();
+        List<Snippet> responseSnippets = objectMapper.readValue((byte[]) response.getEntity(), new TypeReference<List<Snippet>>() {});
 
         // Verify the response contains the expected snippets
         assertNotNull(responseSnippets);
@@ -96,13 +117,13 @@ public class SnippetResourceTest {
     @Test
     public void testGetSnippetsHandlesIOException() throws IOException {
         // Setup mock service to throw IOException
-        when(snippetService.searchSnippets(anyString(), anyInt())).thenThrow(new IOException("Test exception"));
+        when(snippetService.searchSnippetsJson(anyString(), any(), any(), any())).thenThrow(new IOException("Test exception"));
 
         // Call the endpoint
-        Response response = snippetResource.getSnippets("test");
+        Response response = snippetResource.getSnippets("test", null, null, null, null);
 
         // Verify the service was called
-        verify(snippetService).searchSnippets(anyString(), anyInt());
+        verify(snippetService).searchSnippetsJson(anyString(), any(), any(), any());
 
         // Verify the response is an error
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
@@ -120,13 +141,14 @@ public class SnippetResourceTest {
         mockSnippet.setDescription("This is a test snippet");
 
         // Setup mock service response
-        when(snippetService.createSnippet(eq(requestBody))).thenReturn(mockSnippet);
+        InputStream body = stream(requestBody);
+        when(snippetService.createSnippet(same(body), eq((long) requestBody.length()))).thenReturn(mockSnippet);
 
         // Call the endpoint
-        Response response = snippetResource.createSnippet(requestBody);
+        Response response = snippetResource.createSnippet((long) requestBody.length(), body);
 
         // Verify the service was called with the correct parameters
-        verify(snippetService).createSnippet(eq(requestBody));
+        verify(snippetService).createSnippet(same(body), eq((long) requestBody.length()));
 
         // Verify the response
         assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
@@ -146,15 +168,15 @@ public class SnippetResourceTest {
     @TestSecurity(user = "testUser")
     public void testCreateSnippetValidationError() throws IOException {
         // Setup mock service to throw IllegalArgumentException for validation error
-        String invalidRequestBody = "{\"invalid\":\"json\"}";
-        when(snippetService.createSnippet(eq(invalidRequestBody)))
+        InputStream invalidRequestBody = stream("{\"invalid\":\"json\"}");
+        when(snippetService.createSnippet(same(invalidRequestBody), isNull()))
             .thenThrow(new IllegalArgumentException("Invalid snippet format"));
 
         // Call the endpoint
-        Response response = snippetResource.createSnippet(invalidRequestBody);
+        Response response = snippetResource.createSnippet(null, invalidRequestBody);
 
         // Verify the service was called
-        verify(snippetService).createSnippet(eq(invalidRequestBody));
+        verify(snippetService).createSnippet(same(invalidRequestBody), isNull());
 
         // Verify the response is a validation error
         assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
@@ -167,14 +189,14 @@ public class SnippetResourceTest {
     @TestSecurity(user = "testUser")
     public void testCreateSnippetHandlesIOException() throws IOException {
         // Setup mock service to throw IOException
-        String requestBody = "{\"title\":\"Test Snippet\",\"description\":\"This is a test snippet\"}";
-        when(snippetService.createSnippet(anyString())).thenThrow(new IOException("Test exception"));
+        InputStream requestBody = stream("{\"title\":\"Test Snippet\",\"description\":\"This is a test snippet\"}");
+        when(snippetService.createSnippet(any(InputStream.class), any())).thenThrow(new IOException("Test exception"));
 
         // Call the endpoint
-        Response response = snippetResource.createSnippet(requestBody);
+        Response response = snippetResource.createSnippet(null, requestBody);
 
         // Verify the service was called
-        verify(snippetService).createSnippet(anyString());
+        verify(snippetService).createSnippet(any(InputStream.class), any());
 
         // Verify the response is an error
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
@@ -182,6 +204,20 @@ public class SnippetResourceTest {
         System.out.println("[DEBUG_LOG] Error handling test passed: returned 500 for IOException in create");
     }
 
+    @Test
+    @TestSecurity(user = "testUser")
+    public void testCreateSnippetPayloadTooLarge() throws IOException {
+        // Setup mock service to reject the body as oversized
+        InputStream requestBody = stream("{}");
+        when(snippetService.createSnippet(any(InputStream.class), any())).thenThrow(new PayloadTooLargeException(1024));
+
+        // Call the endpoint
+        Response response = snippetResource.createSnippet(1048576L, requestBody);
+
+        // Verify the response is 413 rather than a generic validation error
+        assertEquals(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), response.getStatus());
+    }
+
     @Test
     @TestSecurity(user = "testUser")
     public void testDeleteSnippet() throws IOException {
@@ -218,6 +254,49 @@ public class SnippetResourceTest {
         System.out.println("[DEBUG_LOG] Error handling test passed: returned 500 for IOException in delete");
     }
 
+    @Test
+    public void testGetSnippetsDefaultsToSummaryProjection() throws IOException {
+        when(snippetService.searchSnippetsJson(any(), any(), any(), any())).thenReturn(new SearchResult("[]".getBytes(StandardCharsets.UTF_8), null));
+
+        snippetResource.getSnippets("test", null, null, null, null);
+        snippetResource.getSnippets("test", "$id, $defs", null, null, null);
+
+        verify(snippetService).searchSnippetsJson(eq("test"), any(), eq(SnippetField.SUMMARY), any());
+        verify(snippetService).searchSnippetsJson(eq("test"), any(), eq(EnumSet.of(SnippetField.ID, SnippetField.DEFS)), any());
+    }
+
+    @Test
+    public void testGetSnippetsReturnsNextCursorHeader() throws IOException {
+        when(snippetService.searchSnippetsJson(eq("test"), eq(2), any(), isNull()))
+                .thenReturn(new SearchResult("[]".getBytes(StandardCharsets.UTF_8), "next-page"));
+        when(snippetService.searchSnippetsJson(eq("test"), eq(2), any(), eq("next-page")))
+                .thenReturn(new SearchResult("[]".getBytes(StandardCharsets.UTF_8), null));
+
+        Response firstPage = snippetResource.getSnippets("test", null, 2, null, null);
+        Response lastPage = snippetResource.getSnippets("test", null, 2, "next-page", null);
+
+        assertEquals("next-page", firstPage.getHeaderString(SnippetResource.NEXT_CURSOR_HEADER));
+        assertNull(lastPage.getHeaderString(SnippetResource.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void testGetSnippetsRejectsInvalidCursor() throws IOException {
+        when(snippetService.searchSnippetsJson(any(), any(), any(), eq("invalid")))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        Response response = snippetResource.getSnippets("test", null, null, "invalid", null);
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testGetSnippetsRejectsUnknownField() throws IOException {
+        Response response = snippetResource.getSnippets("test", "$id,source", null, null, null);
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        verify(snippetService, never()).searchSnippetsJson(any(), any(), any(), any());
+    }
+
     @Test
     public void testGetSnippetsWithEmptySearch() throws IOException {
         // Setup mock data
@@ -228,20 +307,19 @@ public class SnippetResourceTest {
         mockSnippets.add(snippet);
 
         // Setup mock service response for empty search
-        when(snippetService.searchSnippets(eq(""), anyInt())).thenReturn(mockSnippets);
+        when(snippetService.searchSnippetsJson(eq(""), any(), any(), any())).thenReturn(new SearchResult(objectMapper.writeValueAsBytes(mockSnippets), null));
 
         // Call the endpoint with empty search
-        Response response = snippetResource.getSnippets("");
+        Response response = snippetResource.getSnippets("", null, null, null, null);
 
         // Verify the service was called with the correct parameters
-        verify(snippetService).searchSnippets(eq(""), anyInt());
+        verify(snippetService).searchSnippetsJson(eq(""), any(), any(), any());
 
         // Verify the response
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
 
         // Get the response entity
-        @SuppressWarnings("unchecked")
-        List<Snippet> responseSnippets = (List<Snippet>) response.getEntity();
+        List<Snippet> responseSnippets = objectMapper.readValue((byte[]) response.getEntity(), new TypeReference<List<Snippet>>() {});
 
         // Verify the response contains the expected snippets
         assertNotNull(responseSnippets);
@@ -260,20 +338,19 @@ public class SnippetResourceTest {
         mockSnippets.add(snippet);
 
         // Setup mock service response for null search
-        when(snippetService.searchSnippets(isNull(), anyInt())).thenReturn(mockSnippets);
+        when(snippetService.searchSnippetsJson(isNull(), any(), any(), any())).thenReturn(new SearchResult(objectMapper.writeValueAsBytes(mockSnippets), null));
 
         // Call the endpoint with null search
-        Response response = snippetResource.getSnippets(null);
+        Response response = snippetResource.getSnippets(null, null, null, null, null);
 
         // Verify the service was called with the correct parameters
-        verify(snippetService).searchSnippets(isNull(), anyInt());
+        verify(snippetService).searchSnippetsJson(isNull(), any(), any(), any());
 
         // Verify the response
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
 
         // Get the response entity
-        @SuppressWarnings("unchecked")
-        List<Snippet> responseSnippets = (List<Snippet>) response.getEntity();
+        List<Snippet> responseSnippets = objectMapper.readValue((byte[]) response.getEntity(), new TypeReference<List<Snippet>>() {});
 
         // Verify the response contains the expected snippets
         assertNotNull(responseSnippets);
@@ -281,4 +358,79 @@ public class SnippetResourceTest {
 
         System.out.println("[DEBUG_LOG] Null search test passed: found snippet with null search term");
     }
+
+    @Test
+    public void testGetSnippetsReturnsServiceUnavailableWhenStoreIsBusy() throws IOException {
+        when(snippetService.searchSnippetsJson(any(), any(), any(), any())).thenThrow(new StoreBusyException(64));
+
+        Response response = snippetResource.getSnippets("test", null, null, null, null);
+
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatus());
+        assertNotNull(response.getHeaderString(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void testGetSnippetsCarriesCatalogValidators() throws IOException {
+        when(catalogVersionService.current()).thenReturn(new CatalogVersion("e1", 7, Instant.parse("2025-01-01T00:00:00Z")));
+        when(snippetService.searchSnippetsJson(any(), any(), any(), any())).thenReturn(new SearchResult("[]".getBytes(StandardCharsets.UTF_8), null));
+
+        Response response = snippetResource.getSnippets("test", null, null, null, null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"e1-7\"", response.getHeaderString(HttpHeaders.ETAG));
+        assertNotNull(response.getHeaderString(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void testGetSnippetsAnswersMatchingETagWithoutSearching() throws IOException {
+        when(catalogVersionService.current()).thenReturn(new CatalogVersion("e1", 7, Instant.parse("2025-01-01T00:00:00Z")));
+
+        Response response = snippetResource.getSnippets("test", null, null, null, "W/\"e1-6\", \"e1-7\"");
+
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertEquals("\"e1-7\"", response.getHeaderString(HttpHeaders.ETAG));
+        verify(snippetService, never()).searchSnippetsJson(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetSnippetsSearchesWhenCatalogChanged() throws IOException {
+        when(catalogVersionService.current()).thenReturn(new CatalogVersion("e1", 8, Instant.parse("2025-01-02T00:00:00Z")));
+        when(snippetService.searchSnippetsJson(any(), any(), any(), any())).thenReturn(new SearchResult("[]".getBytes(StandardCharsets.UTF_8), null));
+
+        Response response = snippetResource.getSnippets("test", null, null, null, "\"e1-7\"");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"e1-8\"", response.getHeaderString(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testExportAnswersMatchingETag() {
+        when(catalogVersionService.current()).thenReturn(new CatalogVersion("e1", 7, Instant.parse("2025-01-01T00:00:00Z")));
+
+        Response response = snippetResource.exportSnippets("\"e1-7\"");
+
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testSuggestSnippetsReturnsSuggestions() throws IOException {
+        Snippet suggestion = new Snippet();
+        suggestion.setId("https://example.com/uri");
+        suggestion.setTitle("EPC URI");
+        when(snippetService.suggest("epc", null)).thenReturn(List.of(suggestion.project(SnippetField.SUGGESTION)));
+
+        Response response = snippetResource.suggestSnippets("epc", null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1, ((List<?>) response.getEntity()).size());
+    }
+
+    @Test
+    public void testSuggestSnippetsRejectsInvalidSize() throws IOException {
+        when(snippetService.suggest(any(), eq(0))).thenThrow(new IllegalArgumentException("Suggestion size must be at least 1"));
+
+        Response response = snippetResource.suggestSnippets("epc", 0);
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
 }
@@ -0,0 +1,67 @@
+package io.openepcis.snippets;
+
+import io.openepcis.snippets.repository.IndexBootstrap;
+import jakarta.enterprise.inject.Instance;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the StoreReadinessFilter class.
+ */
+public class StoreReadinessFilterTest {
+
+    private StoreReadinessFilter storeReadinessFilter;
+    private IndexBootstrap indexBootstrap;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        indexBootstrap = mock(IndexBootstrap.class);
+        storeReadinessFilter = new StoreReadinessFilter();
+        storeReadinessFilter.indexBootstrap = mock(Instance.class);
+        when(storeReadinessFilter.indexBootstrap.isResolvable()).thenReturn(true);
+        when(storeReadinessFilter.indexBootstrap.get()).thenReturn(indexBootstrap);
+    }
+
+    @Test
+    public void testRequestIsRejectedWhileBootstrapIsPending() {
+        when(indexBootstrap.isReady()).thenReturn(false);
+
+        Optional<Response> response = storeReadinessFilter.rejectUntilReady();
+
+        assertTrue(response.isPresent());
+        assertEquals(503, response.get().getStatus());
+        assertEquals(String.valueOf(SnippetResource.RETRY_AFTER_SECONDS), response.get().getHeaderString(HttpHeaders.RETRY_AFTER));
+        assertEquals(StoreReadinessFilter.NOT_READY_MESSAGE, response.get().getEntity());
+    }
+
+    @Test
+    public void testRequestPassesOnceBootstrapIsReady() {
+        when(indexBootstrap.isReady()).thenReturn(true);
+
+        assertTrue(storeReadinessFilter.rejectUntilReady().isEmpty());
+    }
+
+    @Test
+    public void testRequestPassesWithoutBootstrap() {
+        // The embedded Lucene backend has no bootstrap
+        when(storeReadinessFilter.indexBootstrap.isResolvable()).thenReturn(false);
+
+        assertTrue(storeReadinessFilter.rejectUntilReady().isEmpty());
+        verify(storeReadinessFilter.indexBootstrap, never()).get();
+    }
+
+    @Test
+    public void testFilterIsBoundToSnippetResourcesOnly() throws NoSuchMethodException {
+        assertNotNull(StoreReadinessFilter.class.getMethod("rejectUntilReady").getAnnotation(RequiresSnippetStore.class));
+        assertNotNull(SnippetResource.class.getAnnotation(RequiresSnippetStore.class));
+        assertNotNull(ReactiveSnippetResource.class.getAnnotation(RequiresSnippetStore.class));
+    }
+}
@@ -0,0 +1,123 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the IndexBootstrap class and its readiness check, with a mocked SnippetRepository.
+ */
+public class IndexBootstrapTest {
+
+    private IndexBootstrap indexBootstrap;
+    private SnippetRepository snippetRepository;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        snippetRepository = Mockito.mock(SnippetRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        indexBootstrap = new IndexBootstrap();
+        indexBootstrap.snippetRepository = snippetRepository;
+        indexBootstrap.meterRegistry = meterRegistry;
+        indexBootstrap.initialBackoff = Duration.ofMillis(1);
+        indexBootstrap.maxBackoff = Duration.ofMillis(4);
+        indexBootstrap.budget = Duration.ofSeconds(60);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        indexBootstrap.stop();
+    }
+
+    @Test
+    public void testBootstrapRetriesUntilReady() throws Exception {
+        doThrow(new ConnectException("Connection refused"))
+                .doThrow(new ConnectException("Connection refused"))
+                .doNothing()
+                .when(snippetRepository).bootstrapIndex();
+
+        indexBootstrap.start();
+        awaitReady();
+
+        verify(snippetRepository, times(3)).bootstrapIndex();
+        assertEquals(3, indexBootstrap.attempts());
+        assertNull(indexBootstrap.lastError());
+        assertEquals(2, meterRegistry.get(IndexBootstrap.FAILURES_METRIC).counter().count());
+        assertTrue(meterRegistry.get(IndexBootstrap.TIME_TO_READY_METRIC).timeGauge().value(TimeUnit.MILLISECONDS) > 0);
+    }
+
+    @Test
+    public void testReadinessCheckIsDownUntilReady() throws Exception {
+        // Stubbed once, as the bootstrap thread keeps calling the mock while the test runs
+        AtomicBoolean available = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (!available.get()) {
+                throw new IOException("OpenSearch unavailable");
+            }
+            return null;
+        }).when(snippetRepository).bootstrapIndex();
+        IndexReadinessCheck readinessCheck = new IndexReadinessCheck();
+        readinessCheck.indexBootstrap = indexBootstrap;
+
+        indexBootstrap.start();
+        verify(snippetRepository, timeout(5000).atLeast(2)).bootstrapIndex();
+
+        HealthCheckResponse down = readinessCheck.call();
+        assertEquals(HealthCheckResponse.Status.DOWN, down.getStatus());
+        assertEquals("OpenSearch unavailable", down.getData().orElseThrow().get("lastError"));
+        assertTrue(Double.isNaN(meterRegistry.get(IndexBootstrap.TIME_TO_READY_METRIC).timeGauge().value()));
+
+        available.set(true);
+        awaitReady();
+
+        HealthCheckResponse up = readinessCheck.call();
+        assertEquals(HealthCheckResponse.Status.UP, up.getStatus());
+        assertFalse(up.getData().orElseThrow().containsKey("lastError"));
+    }
+
+    @Test
+    public void testWaitingForAnotherReplicaIsNotAFailure() throws Exception {
+        doThrow(new IndexUpgradeInProgressException("other-replica"))
+                .doNothing()
+                .when(snippetRepository).bootstrapIndex();
+
+        indexBootstrap.start();
+        awaitReady();
+
+        verify(snippetRepository, times(2)).bootstrapIndex();
+        assertEquals(0, meterRegistry.get(IndexBootstrap.FAILURES_METRIC).counter().count());
+    }
+
+    @Test
+    public void testBackoffDoublesUpToMaximum() {
+        indexBootstrap.initialBackoff = Duration.ofMillis(500);
+        indexBootstrap.maxBackoff = Duration.ofSeconds(30);
+
+        assertEquals(Duration.ofMillis(500), indexBootstrap.backoff(1));
+        assertEquals(Duration.ofSeconds(1), indexBootstrap.backoff(2));
+        assertEquals(Duration.ofSeconds(16), indexBootstrap.backoff(6));
+        assertEquals(Duration.ofSeconds(30), indexBootstrap.backoff(7));
+        assertEquals(Duration.ofSeconds(30), indexBootstrap.backoff(1000));
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!indexBootstrap.isReady()) {
+            assertTrue(System.nanoTime() < deadline, "Index bootstrap not ready");
+            Thread.sleep(5);
+        }
+    }
+}
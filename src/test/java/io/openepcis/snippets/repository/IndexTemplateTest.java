@@ -0,0 +1,103 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.service.QueryBuilderService;
+import io.openepcis.snippets.service.SynonymMode;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the IndexTemplate class.
+ */
+public class IndexTemplateTest {
+
+    private static final List<String> RULES = List.of("uri, url, link", "retail, store, shop");
+
+    @Test
+    public void testQueryModeKeepsTemplateUnchanged() throws IOException {
+        IndexTemplate template = IndexTemplate.load(SynonymMode.QUERY, RULES);
+
+        assertNull(template.synonymsHash());
+        assertTrue(template.version() >= 3);
+        assertFalse(template.settings().getJsonObject("analysis").getJsonObject("filter")
+                .containsKey(IndexTemplate.SYNONYM_FILTER));
+        assertFalse(template.mappings().getJsonObject("properties").getJsonObject("title")
+                .containsKey(IndexTemplate.SEARCH_ANALYZER));
+    }
+
+    @Test
+    public void testTitleAndIdHaveCompletionFields() throws IOException {
+        JsonObject properties = IndexTemplate.load(SynonymMode.QUERY, RULES).mappings().getJsonObject("properties");
+
+        for (String field : List.of("title", "$id")) {
+            JsonObject suggest = properties.getJsonObject(field).getJsonObject("fields").getJsonObject("suggest");
+            assertEquals("completion", suggest.getString("type"));
+            assertEquals("suggest", suggest.getString("analyzer"));
+        }
+    }
+
+    @Test
+    public void testIndexModeCompilesSynonymGraphSearchAnalyzer() throws IOException {
+        IndexTemplate template = IndexTemplate.load(SynonymMode.INDEX, RULES);
+
+        JsonObject analysis = template.settings().getJsonObject("analysis");
+        JsonObject filter = analysis.getJsonObject("filter").getJsonObject(IndexTemplate.SYNONYM_FILTER);
+        assertEquals("synonym_graph", filter.getString("type"));
+        assertEquals(2, filter.getJsonArray("synonyms").size());
+        assertEquals("uri, url, link", filter.getJsonArray("synonyms").getString(0));
+
+        // The index-time analyzer is unchanged, synonyms are applied at search time only
+        assertTrue(analysis.getJsonObject("analyzer").containsKey("standard_stop"));
+        assertTrue(analysis.getJsonObject("analyzer").containsKey(IndexTemplate.SYNONYM_ANALYZER));
+
+        JsonObject properties = template.mappings().getJsonObject("properties");
+        for (String field : List.of("title", "description")) {
+            assertEquals("standard_stop", properties.getJsonObject(field).getString("analyzer"));
+            assertEquals(IndexTemplate.SYNONYM_ANALYZER,
+                    properties.getJsonObject(field).getString(IndexTemplate.SEARCH_ANALYZER));
+        }
+
+        assertEquals(template.synonymsHash(),
+                template.mappings().getJsonObject("_meta").getString("synonyms_hash"));
+    }
+
+    @Test
+    public void testSynonymHashChangesWithRules() throws IOException {
+        String hash = IndexTemplate.load(SynonymMode.INDEX, RULES).synonymsHash();
+
+        assertEquals(hash, IndexTemplate.load(SynonymMode.INDEX, RULES).synonymsHash());
+        assertNotEquals(hash, IndexTemplate.load(SynonymMode.INDEX, List.of("uri, url")).synonymsHash());
+    }
+
+    @Test
+    public void testIdQueryTargetsMappedKeywordField() throws IOException {
+        // The exact $id lookups of the OpenSearch store must hit a keyword field of the actual mapping
+        Query query = new QueryBuilderService().buildIdQuery("https://example.com/a");
+
+        for (SynonymMode mode : SynonymMode.values()) {
+            JsonObject mapping = mappedField(IndexTemplate.load(mode, RULES).mappings(), query.term().field());
+            assertNotNull(mapping, "Unmapped field " + query.term().field());
+            assertEquals("keyword", mapping.getString("type"));
+        }
+    }
+
+    /**
+     * @param mappings The index mappings
+     * @param field    The field path, with sub-fields separated by dots
+     * @return The mapping of the field, or null if it is not mapped
+     */
+    private static JsonObject mappedField(JsonObject mappings, String field) {
+        String[] path = field.split("\\.");
+        JsonObject mapping = mappings.getJsonObject("properties").getJsonObject(path[0]);
+        for (int i = 1; i < path.length && mapping != null; i++) {
+            JsonObject fields = mapping.getJsonObject("fields");
+            mapping = fields != null ? fields.getJsonObject(path[i]) : null;
+        }
+        return mapping;
+    }
+}
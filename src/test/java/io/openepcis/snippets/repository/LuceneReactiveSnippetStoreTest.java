@@ -0,0 +1,30 @@
+package io.openepcis.snippets.repository;
+
+import io.openepcis.snippets.model.SnippetField;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the LuceneReactiveSnippetStore with a mocked SnippetStore.
+ */
+public class LuceneReactiveSnippetStoreTest {
+
+    @Test
+    public void testBusyStoreFailsWithStoreBusyException() throws IOException {
+        LuceneReactiveSnippetStore reactiveStore = new LuceneReactiveSnippetStore();
+        reactiveStore.snippetStore = Mockito.mock(SnippetStore.class);
+        when(reactiveStore.snippetStore.search(any(), anyInt(), any(), any())).thenThrow(new StoreBusyException(4));
+
+        // Not wrapped, so that the resource answers 503 rather than 500; awaiting wraps the checked exception
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> reactiveStore.search("test", 10, SnippetField.SUMMARY, null).await().indefinitely());
+        assertInstanceOf(StoreBusyException.class, exception.getCause());
+    }
+}
@@ -0,0 +1,251 @@
+package io.openepcis.snippets.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.openepcis.snippets.model.BulkItemResult;
+import io.openepcis.snippets.model.CatalogVersion;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the search scenarios of {@link SnippetRepositoryTest} against the embedded Lucene backend.
+ * Unlike the OpenSearch tests, analysis and matching happen in-process, so the results can be asserted.
+ */
+public class LuceneSnippetStoreTest {
+
+    private LuceneSnippetStore snippetStore;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        snippetStore = new LuceneSnippetStore();
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        // Use reflection to set the fields
+        Field objectMapperField = LuceneSnippetStore.class.getDeclaredField("objectMapper");
+        objectMapperField.setAccessible(true);
+        objectMapperField.set(snippetStore, objectMapper);
+
+        Field synonymServiceField = LuceneSnippetStore.class.getDeclaredField("synonymService");
+        synonymServiceField.setAccessible(true);
+        synonymServiceField.set(snippetStore, SnippetRepositoryTest.synonymService());
+
+        snippetStore.open(new ByteBuffersDirectory());
+
+        save("https://example.com/test", "Test Snippet", "This is a test snippet", 1);
+        save("https://example.com/uri", "EPC URI", "Specifies value for the epcList field in EPC URI format", 2);
+        save("https://example.com/retail", "Shop location", "Location of a store selling goods", 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        snippetStore.close();
+    }
+
+    @Test
+    public void testFuzzySearchFindsApproximateMatches() throws IOException {
+        List<Snippet> results = snippetStore.search("testt", 10); // Misspelled "test"
+
+        assertEquals(1, results.size());
+        assertEquals("https://example.com/test", results.get(0).getId());
+    }
+
+    @Test
+    public void testSearchIgnoresStopWords() throws IOException {
+        List<Snippet> results = snippetStore.search("the test and a", 10);
+
+        assertEquals(1, results.size());
+        assertEquals("Test Snippet", results.get(0).getTitle());
+    }
+
+    @Test
+    public void testWildcardSearchMatchesSubstrings() throws IOException {
+        List<Snippet> results = snippetStore.search("pclis", 10);
+
+        assertEquals(1, results.size());
+        assertEquals("https://example.com/uri", results.get(0).getId());
+    }
+
+    @Test
+    public void testSynonymSearchIncludesSynonyms() throws IOException {
+        // "retail" has "store" and "shop" as synonyms in synonym-map.json
+        List<Snippet> results = snippetStore.search("retail", 10);
+
+        assertEquals(1, results.size());
+        assertEquals("https://example.com/retail", results.get(0).getId());
+    }
+
+    @Test
+    public void testEmptySearchReturnsAllSnippetsNewestFirst() throws IOException {
+        List<Snippet> results = snippetStore.search("", 10);
+
+        assertEquals(3, results.size());
+        assertEquals("https://example.com/retail", results.get(0).getId());
+        assertEquals("https://example.com/test", results.get(2).getId());
+    }
+
+    @Test
+    public void testNullSearchReturnsAllSnippets() throws IOException {
+        assertEquals(3, snippetStore.search(null, 10).size());
+    }
+
+    @Test
+    public void testSearchWithLimitAppliesLimit() throws IOException {
+        assertEquals(2, snippetStore.search(null, 2).size());
+    }
+
+    @Test
+    public void testSearchResultsDoNotIncludeSource() throws IOException {
+        List<Snippet> results = snippetStore.search("test", 10);
+
+        assertNull(results.get(0).getSource());
+    }
+
+    @Test
+    public void testSearchProjectsRequestedFields() throws IOException {
+        Snippet summary = snippetStore.search("test", 10, SnippetField.SUMMARY).get(0);
+        assertEquals("Test Snippet", summary.getTitle());
+        assertNotNull(summary.getCreatedAt());
+
+        Snippet idOnly = snippetStore.search("test", 10, EnumSet.of(SnippetField.ID)).get(0);
+        assertEquals("https://example.com/test", idOnly.getId());
+        assertNull(idOnly.getTitle());
+        assertNull(idOnly.getCreatedAt());
+    }
+
+    @Test
+    public void testSearchPagesWithCursor() throws IOException {
+        SearchPage firstPage = snippetStore.search(null, 2, SnippetField.SUMMARY, null);
+        assertEquals(2, firstPage.snippets().size());
+        assertEquals("https://example.com/retail", firstPage.snippets().get(0).getId());
+        assertNotNull(firstPage.nextCursor());
+
+        // A snippet created between pages is newer than the cursor and does not shift the next page
+        save("https://example.com/newer", "Newer Snippet", "Created while paging", 4);
+
+        SearchPage lastPage = snippetStore.search(null, 2, SnippetField.SUMMARY, firstPage.nextCursor());
+        assertEquals(1, lastPage.snippets().size());
+        assertEquals("https://example.com/test", lastPage.snippets().get(0).getId());
+        assertNull(lastPage.nextCursor());
+    }
+
+    @Test
+    public void testSearchRejectsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> snippetStore.search(null, 2, SnippetField.SUMMARY, "not-a-cursor"));
+    }
+
+    @Test
+    public void testExportReadsAllSnippetsWithSourceInBatches() throws IOException {
+        List<Snippet> exported = new ArrayList<>();
+
+        snippetStore.export(2, exported::add);
+
+        assertEquals(3, exported.size());
+        assertEquals("https://example.com/retail", exported.get(0).getId());
+        assertEquals("https://example.com/test", exported.get(2).getId());
+        assertEquals("{\"$id\":\"https://example.com/test\"}", exported.get(2).getSource());
+    }
+
+    @Test
+    public void testBumpCatalogVersionIncreasesGeneration() throws IOException {
+        assertEquals(CatalogVersion.INITIAL, snippetStore.catalogVersion());
+
+        snippetStore.bumpCatalogVersion();
+        CatalogVersion version = snippetStore.bumpCatalogVersion();
+
+        assertEquals(2, version.generation());
+        assertEquals(version, snippetStore.catalogVersion());
+        assertFalse(version.epoch().isEmpty());
+    }
+
+    @Test
+    public void testSuggestMatchesTitleAndIdPrefixIgnoringCase() throws IOException {
+        List<Snippet> byTitle = snippetStore.suggest("epc u", 5);
+
+        assertEquals(1, byTitle.size());
+        assertEquals("https://example.com/uri", byTitle.get(0).getId());
+        assertEquals("EPC URI", byTitle.get(0).getTitle());
+        assertNull(byTitle.get(0).getDescription());
+        assertNull(byTitle.get(0).getCreatedAt());
+
+        assertEquals(3, snippetStore.suggest("HTTPS://EXAMPLE.COM/", 5).size());
+        assertEquals(2, snippetStore.suggest("https://example.com/", 2).size());
+        // Only prefixes of the whole title match, not of later words
+        assertTrue(snippetStore.suggest("uri", 5).isEmpty());
+    }
+
+    @Test
+    public void testExistsById() throws IOException {
+        assertTrue(snippetStore.existsById("https://example.com/test"));
+        assertFalse(snippetStore.existsById("https://example.com/missing"));
+        assertFalse(snippetStore.existsById(" "));
+    }
+
+    @Test
+    public void testFindByIdReturnsSnippetWithSource() throws IOException {
+        Snippet snippet = snippetStore.findById("https://example.com/uri").orElseThrow();
+
+        assertEquals("EPC URI", snippet.getTitle());
+        assertEquals("{\"$id\":\"https://example.com/uri\"}", snippet.getSource());
+        assertTrue(snippetStore.findById("https://example.com/missing").isEmpty());
+        assertTrue(snippetStore.findById(" ").isEmpty());
+    }
+
+    @Test
+    public void testDeleteRemovesSnippet() throws IOException {
+        snippetStore.delete("https://example.com/test");
+
+        assertFalse(snippetStore.existsById("https://example.com/test"));
+        assertEquals(2, snippetStore.search(null, 10).size());
+    }
+
+    @Test
+    public void testDeleteUnknownSnippetThrows() {
+        assertThrows(IOException.class, () -> snippetStore.delete("https://example.com/missing"));
+    }
+
+    @Test
+    public void testSaveDuplicateIdThrows() {
+        assertThrows(DuplicateSnippetException.class,
+                () -> save("https://example.com/test", "Another title", "Another description", 4));
+    }
+
+    @Test
+    public void testSaveAllReportsDuplicateIds() throws IOException {
+        Snippet existing = new Snippet();
+        existing.setId("https://example.com/test");
+        Snippet created = new Snippet();
+        created.setId("https://example.com/new");
+
+        List<BulkItemResult> results = snippetStore.saveAll(List.of(existing, created));
+
+        assertEquals(BulkItemResult.BAD_REQUEST, results.get(0).getStatus());
+        assertEquals(BulkItemResult.CREATED, results.get(1).getStatus());
+        assertEquals(4, snippetStore.search(null, 10).size());
+    }
+
+    private void save(String id, String title, String description, long createdAtSeconds) throws IOException {
+        Snippet snippet = new Snippet();
+        snippet.setId(id);
+        snippet.setTitle(title);
+        snippet.setDescription(description);
+        snippet.setCreatedAt(Instant.ofEpochSecond(createdAtSeconds));
+        snippetStore.save(snippet, "{\"$id\":\"" + id + "\"}");
+    }
+}
@@ -0,0 +1,146 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch._types.ErrorResponse;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the OpenSearchRequestLimiter class.
+ */
+public class OpenSearchRequestLimiterTest {
+
+    private OpenSearchRequestLimiter limiter;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new OpenSearchRequestLimiter();
+        limiter.maxConcurrentRequests = 1;
+        limiter.acquireTimeout = Duration.ofMillis(50);
+        limiter.meterRegistry = meterRegistry;
+        limiter.metrics = new OpenSearchMetrics();
+        limiter.metrics.meterRegistry = meterRegistry;
+        limiter.init();
+    }
+
+    @Test
+    public void testExecuteReturnsResponseAndReleasesPermit() throws IOException {
+        assertEquals("first", limiter.execute("search", () -> "first"));
+        assertEquals("second", limiter.execute("search", () -> "second"));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    public void testFailedRequestReleasesPermit() throws IOException {
+        assertThrows(IOException.class, () -> limiter.execute("search", () -> {
+            throw new IOException("connection refused");
+        }));
+
+        assertEquals("next", limiter.execute("search", () -> "next"));
+    }
+
+    @Test
+    public void testRequestBeyondLimitFailsAfterTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.execute("search", () -> {
+                    started.countDown();
+                    try {
+                        return release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                });
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        assertEquals(1, inFlight());
+        assertThrows(StoreBusyException.class, () -> limiter.execute("search", () -> "rejected"));
+
+        release.countDown();
+        holder.join();
+        assertEquals("accepted", limiter.execute("search", () -> "accepted"));
+    }
+
+    @Test
+    public void testAsyncRequestReleasesPermitOnCompletion() {
+        assertEquals("first", limiter.executeAsync("search", () -> Uni.createFrom().item("first")).await().indefinitely());
+        assertThrows(IllegalStateException.class, () -> limiter.executeAsync("search",
+                () -> Uni.createFrom().failure(new IllegalStateException("failed"))).await().indefinitely());
+
+        assertEquals(0, inFlight());
+        assertEquals(1, roundTrips("search", OpenSearchMetrics.SUCCESS));
+    }
+
+    @Test
+    public void testAsyncRequestWaitsForPermitWithoutBlocking() throws Exception {
+        CompletableFuture<String> held = new CompletableFuture<>();
+        limiter.acquireTimeout = Duration.ofSeconds(5);
+        Uni<String> holder = limiter.executeAsync("search", () -> Uni.createFrom().completionStage(held));
+        holder.subscribe().with(item -> { }, e -> { });
+
+        CompletableFuture<String> waiting = limiter.executeAsync("search", () -> Uni.createFrom().item("waited"))
+                .subscribeAsCompletionStage();
+        // Subscribing returned although no permit is free
+        assertFalse(waiting.isDone());
+
+        held.complete("held");
+        assertEquals("waited", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    public void testAsyncRequestBeyondLimitFailsAfterTimeout() {
+        CompletableFuture<String> held = new CompletableFuture<>();
+        limiter.executeAsync("search", () -> Uni.createFrom().completionStage(held)).subscribe().with(item -> { }, e -> { });
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> limiter.executeAsync("search", () -> Uni.createFrom().item("rejected")).await().indefinitely());
+        assertInstanceOf(StoreBusyException.class, exception.getCause());
+
+        held.complete("held");
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    public void testRoundTripIsRecordedByOperationAndOutcome() throws IOException {
+        limiter.execute("search", () -> "found");
+        assertThrows(OpenSearchException.class, () -> limiter.execute("create", () -> {
+            throw new OpenSearchException(ErrorResponse.of(e -> e.status(409)
+                    .error(c -> c.type("version_conflict_engine_exception").reason("document already exists"))));
+        }));
+
+        assertEquals(1, roundTrips("search", OpenSearchMetrics.SUCCESS));
+        assertEquals(1, roundTrips("create", OpenSearchMetrics.CONFLICT));
+    }
+
+    private long roundTrips(String operation, String outcome) {
+        return meterRegistry.get(OpenSearchMetrics.REQUEST_METRIC)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer().count();
+    }
+
+    private double inFlight() {
+        return meterRegistry.get(OpenSearchRequestLimiter.IN_FLIGHT_METRIC).gauge().value();
+    }
+}
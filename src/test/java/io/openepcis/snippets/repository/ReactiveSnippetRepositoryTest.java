@@ -0,0 +1,155 @@
+package io.openepcis.snippets.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
+import io.openepcis.snippets.service.QueryBuilderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
+import org.opensearch.client.opensearch._types.ErrorResponse;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.pit.CreatePitRequest;
+import org.opensearch.client.opensearch.core.pit.CreatePitResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.search.HitsMetadata;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the ReactiveSnippetRepository with a mocked asynchronous client.
+ */
+public class ReactiveSnippetRepositoryTest {
+
+    private ReactiveSnippetRepository repository;
+    private OpenSearchAsyncClient client;
+
+    @BeforeEach
+    public void setup() {
+        client = Mockito.mock(OpenSearchAsyncClient.class);
+        QueryBuilderService queryBuilder = Mockito.mock(QueryBuilderService.class);
+        when(queryBuilder.buildSearchQuery(any())).thenReturn(Query.of(q -> q.matchAll(m -> m)));
+
+        repository = new ReactiveSnippetRepository();
+        repository.client = client;
+        repository.queryBuilder = queryBuilder;
+        repository.cursorKeepAlive = "1m";
+        repository.limiter = new OpenSearchRequestLimiter();
+        repository.limiter.maxConcurrentRequests = 1;
+        repository.limiter.acquireTimeout = Duration.ofMillis(50);
+        repository.limiter.meterRegistry = new SimpleMeterRegistry();
+        repository.limiter.metrics = new OpenSearchMetrics();
+        repository.limiter.metrics.meterRegistry = repository.limiter.meterRegistry;
+        repository.limiter.init();
+        repository.pointsInTime = SnippetRepositoryTest.pointInTimeTracker(1);
+    }
+
+    @Test
+    public void testFirstPageSearchesIndex() throws IOException {
+        Snippet snippet = new Snippet();
+        snippet.setId("https://example.com/a");
+        snippet.setTitle("A");
+        when(client.search(any(SearchRequest.class), eq(Snippet.class)))
+                .thenReturn(CompletableFuture.completedFuture(searchResponse(List.of(hit(snippet)))));
+
+        SearchPage page = repository.search("test", 1, SnippetField.SUMMARY, null).await().indefinitely();
+
+        assertEquals("A", page.snippets().get(0).getTitle());
+        assertNotNull(page.nextCursor());
+        verify(client, never()).createPit(any(CreatePitRequest.class));
+    }
+
+    @Test
+    public void testNextPageOpensPointInTime() throws IOException {
+        CreatePitResponse pitResponse = Mockito.mock(CreatePitResponse.class);
+        when(pitResponse.pitId()).thenReturn("pit-1");
+        when(client.createPit(any(CreatePitRequest.class))).thenReturn(CompletableFuture.completedFuture(pitResponse));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class)))
+                .thenReturn(CompletableFuture.completedFuture(searchResponse(List.of())));
+        String cursor = new SearchCursor(null, List.of("1700000000000", "https://example.com/a")).encode();
+
+        SearchPage page = repository.search("test", 10, SnippetField.SUMMARY, cursor).await().indefinitely();
+
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(client).search(requestCaptor.capture(), eq(Snippet.class));
+        assertEquals("pit-1", requestCaptor.getValue().pit().id());
+        assertEquals(List.of("1700000000000", "https://example.com/a"), requestCaptor.getValue().searchAfter());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    public void testNewCursorChainBeyondCapFailsAsBusy() throws IOException {
+        repository.pointsInTime.used("pit-0");
+        String cursor = new SearchCursor(null, List.of("1700000000000", "https://example.com/a")).encode();
+
+        // A checked failure is wrapped when awaited
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> repository.search("test", 10, SnippetField.SUMMARY, cursor).await().indefinitely());
+        assertInstanceOf(StoreBusyException.class, exception.getCause());
+        verify(client, never()).createPit(any(CreatePitRequest.class));
+    }
+
+    @Test
+    public void testSearchBeyondRequestLimitFailsAsBusy() throws IOException {
+        // Holds the only permit until the test completes it
+        CompletableFuture<SearchResponse<Snippet>> pending = new CompletableFuture<>();
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(pending);
+        repository.search("held", 1, SnippetField.SUMMARY, null).subscribe().with(page -> { }, e -> { });
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> repository.search("test", 1, SnippetField.SUMMARY, null).await().indefinitely());
+        assertInstanceOf(StoreBusyException.class, exception.getCause());
+        verify(client, times(1)).search(any(SearchRequest.class), eq(Snippet.class));
+
+        pending.complete(searchResponse(List.of()));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class)))
+                .thenReturn(CompletableFuture.completedFuture(searchResponse(List.of())));
+        assertNull(repository.search("test", 1, SnippetField.SUMMARY, null).await().indefinitely().nextCursor());
+    }
+
+    @Test
+    public void testExpiredCursorFailsWithIllegalArgument() throws IOException {
+        OpenSearchException notFound = new OpenSearchException(ErrorResponse.of(e -> e
+                .status(404)
+                .error(c -> c.type("search_context_missing_exception").reason("No search context found"))));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(CompletableFuture.failedFuture(notFound));
+        String cursor = new SearchCursor("pit-1", List.of("1700000000000", "https://example.com/a")).encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.search("test", 10, SnippetField.SUMMARY, cursor).await().indefinitely());
+    }
+
+    @Test
+    public void testInvalidCursorFailsWithIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.search("test", 10, SnippetField.SUMMARY, "not-a-cursor").await().indefinitely());
+    }
+
+    private static Hit<Snippet> hit(Snippet snippet) {
+        Hit<Snippet> hit = Mockito.mock(Hit.class);
+        when(hit.source()).thenReturn(snippet);
+        when(hit.sort()).thenReturn(List.of("1700000000000", snippet.getId()));
+        return hit;
+    }
+
+    private static SearchResponse<Snippet> searchResponse(List<Hit<Snippet>> hits) {
+        SearchResponse<Snippet> response = Mockito.mock(SearchResponse.class);
+        HitsMetadata<Snippet> hitsMetadata = Mockito.mock(HitsMetadata.class);
+        when(response.hits()).thenReturn(hitsMetadata);
+        when(hitsMetadata.hits()).thenReturn(hits);
+        return response;
+    }
+}
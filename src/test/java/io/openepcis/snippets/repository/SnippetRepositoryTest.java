@@ -1,23 +1,54 @@
 package io.openepcis.snippets.repository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.openepcis.snippets.constants.Constants;
+import io.openepcis.snippets.model.CatalogVersion;
 import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.SnippetField;
 import io.openepcis.snippets.service.QueryBuilderService;
+import io.openepcis.snippets.service.SynonymMode;
 import io.openepcis.snippets.service.SynonymService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.ErrorResponse;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.Refresh;
+import org.opensearch.client.opensearch._types.Result;
+import org.opensearch.client.opensearch._types.mapping.TypeMapping;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch.core.*;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.pit.CreatePitRequest;
+import org.opensearch.client.opensearch.core.pit.CreatePitResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
 import org.opensearch.client.opensearch.core.search.HitsMetadata;
 import org.opensearch.client.opensearch.core.search.TotalHits;
 import org.opensearch.client.opensearch.core.search.TotalHitsRelation;
+import org.opensearch.client.opensearch.indices.ExistsRequest;
+import org.opensearch.client.opensearch.indices.GetIndicesSettingsResponse;
+import org.opensearch.client.opensearch.indices.GetMappingResponse;
+import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndexState;
+import org.opensearch.client.opensearch.indices.OpenSearchIndicesClient;
+import org.opensearch.client.opensearch.indices.PutIndicesSettingsRequest;
+import org.opensearch.client.opensearch.indices.get_mapping.IndexMappingRecord;
+import org.opensearch.client.transport.OpenSearchTransport;
+import org.opensearch.client.transport.endpoints.BooleanResponse;
+import org.opensearch.client.util.ObjectBuilder;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,7 +61,7 @@ public class SnippetRepositoryTest {
     private QueryBuilderService queryBuilder;
 
     @BeforeEach
-    public void setup() throws NoSuchFieldException, IllegalAccessException, IOException {
+    public void setup() throws ReflectiveOperationException, IOException {
         // Create mock dependencies
         client = Mockito.mock(OpenSearchClient.class);
         queryBuilder = Mockito.mock(QueryBuilderService.class);
@@ -47,6 +78,28 @@ public class SnippetRepositoryTest {
         queryBuilderField.setAccessible(true);
         queryBuilderField.set(snippetRepository, queryBuilder);
 
+        OpenSearchRequestLimiter limiter = new OpenSearchRequestLimiter();
+        limiter.maxConcurrentRequests = 4;
+        limiter.acquireTimeout = Duration.ofSeconds(1);
+        limiter.meterRegistry = new SimpleMeterRegistry();
+        limiter.metrics = new OpenSearchMetrics();
+        limiter.metrics.meterRegistry = limiter.meterRegistry;
+        limiter.init();
+        Field limiterField = SnippetRepository.class.getDeclaredField("limiter");
+        limiterField.setAccessible(true);
+        limiterField.set(snippetRepository, limiter);
+
+        Field cursorKeepAliveField = SnippetRepository.class.getDeclaredField("cursorKeepAlive");
+        cursorKeepAliveField.setAccessible(true);
+        cursorKeepAliveField.set(snippetRepository, "1m");
+
+        snippetRepository.pointsInTime = pointInTimeTracker(2);
+        snippetRepository.synonymService = synonymService();
+        snippetRepository.synonymMode = SynonymMode.QUERY;
+        snippetRepository.upgradeLockTimeout = Duration.ofMinutes(5);
+        snippetRepository.writeRefresh = Refresh.WaitFor;
+        snippetRepository.bulkRefresh = Refresh.False;
+
         // Set up mock responses
         setupMockResponses();
     }
@@ -60,7 +113,7 @@ public class SnippetRepositoryTest {
 
         // Set up the mock QueryBuilderService to return a mock Query for any search text
         when(queryBuilder.buildSearchQuery(anyString())).thenReturn(Query.of(q -> q.matchAll(m -> m)));
-        when(queryBuilder.buildIdQuery(anyString())).thenReturn(Query.of(q -> q.term(t -> t.field("$id.keyword").value(v -> v.stringValue("test-id")))));
+        when(queryBuilder.buildIdQuery(anyString())).thenReturn(Query.of(q -> q.term(t -> t.field("$id").value(v -> v.stringValue("test-id")))));
     }
 
     @Test
@@ -148,13 +201,13 @@ public class SnippetRepositoryTest {
     }
 
     @Test
-    public void testSynonymSearchIncludesSynonyms() throws IOException {
+    public void testSynonymSearchIncludesSynonyms() throws Exception {
         // Setup mock response
         SearchResponse<Snippet> mockResponse = createMockSearchResponse();
         when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(mockResponse);
 
         // Create a spy on SynonymService to verify it's called with the right parameters
-        SynonymService synonymServiceSpy = Mockito.spy(new SynonymService());
+        SynonymService synonymServiceSpy = Mockito.spy(synonymService());
 
         // Reset the mock QueryBuilderService
         reset(queryBuilder);
@@ -210,6 +263,73 @@ public class SnippetRepositoryTest {
         // This verifies that the synonym expansion mechanism is being used
     }
 
+    @Test
+    public void testIndexSynonymModeSkipsSynonymExpansion() throws Exception {
+        // Create a spy on SynonymService to verify it's not consulted by the query builder
+        SynonymService synonymServiceSpy = Mockito.spy(new SynonymService());
+
+        // Reset the mock QueryBuilderService
+        reset(queryBuilder);
+
+        // Use a real QueryBuilderService configured to leave synonyms to the index analyzer
+        QueryBuilderService indexModeQueryBuilder = new QueryBuilderService();
+
+        Field synonymServiceField = QueryBuilderService.class.getDeclaredField("synonymService");
+        synonymServiceField.setAccessible(true);
+        synonymServiceField.set(indexModeQueryBuilder, synonymServiceSpy);
+
+        Field synonymModeField = QueryBuilderService.class.getDeclaredField("synonymMode");
+        synonymModeField.setAccessible(true);
+        synonymModeField.set(indexModeQueryBuilder, SynonymMode.INDEX);
+
+        Field queryBuilderField = SnippetRepository.class.getDeclaredField("queryBuilder");
+        queryBuilderField.setAccessible(true);
+        queryBuilderField.set(snippetRepository, indexModeQueryBuilder);
+
+        snippetRepository.search("uri", 10);
+
+        // Verify the search was executed with the original text only
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(client).search(requestCaptor.capture(), eq(Snippet.class));
+        verify(synonymServiceSpy, never()).getSynonyms(anyString());
+
+        // One multi_match and two substring clauses for the original text
+        assertEquals(3, requestCaptor.getValue().query().bool().should().size());
+    }
+
+    @Test
+    public void testSubstringSearchUsesNgramSubfields() throws Exception {
+        // Reset the mock QueryBuilderService
+        reset(queryBuilder);
+
+        // Use a real QueryBuilderService
+        QueryBuilderService realQueryBuilder = new QueryBuilderService();
+
+        Field synonymServiceField = QueryBuilderService.class.getDeclaredField("synonymService");
+        synonymServiceField.setAccessible(true);
+        synonymServiceField.set(realQueryBuilder, synonymService());
+
+        Field queryBuilderField = SnippetRepository.class.getDeclaredField("queryBuilder");
+        queryBuilderField.setAccessible(true);
+        queryBuilderField.set(snippetRepository, realQueryBuilder);
+
+        snippetRepository.search("EPCList", 10);
+
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(client).search(requestCaptor.capture(), eq(Snippet.class));
+
+        List<Query> clauses = requestCaptor.getValue().query().bool().should();
+        System.out.println("[DEBUG_LOG] Substring search clauses: " + clauses);
+
+        // Substrings are matched with lowercase term queries on the n-gram subfields, without wildcards
+        assertTrue(clauses.stream().noneMatch(Query::isWildcard));
+        assertTrue(clauses.stream().anyMatch(q -> q.isTerm()
+                && q.term().field().equals("title.ngram")
+                && q.term().value().stringValue().equals("epclist")));
+        assertTrue(clauses.stream().anyMatch(q -> q.isTerm()
+                && q.term().field().equals("description.ngram")));
+    }
+
     // We've removed the extractMultiMatchQuery method as it's no longer needed
     // The tests now directly verify the search functionality without relying on reflection
     // to inspect the internal structure of the Query object
@@ -270,6 +390,414 @@ public class SnippetRepositoryTest {
         }
     }
 
+    @Test
+    public void testSearchFetchesOnlyRequestedFields() throws IOException {
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        snippetRepository.search("test", 10, SnippetField.SUMMARY);
+
+        verify(client).search(requestCaptor.capture(), eq(Snippet.class));
+        List<String> includes = requestCaptor.getValue().source().filter().includes();
+        assertEquals(SnippetField.fieldNames(SnippetField.SUMMARY), includes);
+        assertFalse(includes.contains("source"));
+        assertFalse(includes.contains("$defs"));
+    }
+
+    @Test
+    public void testFirstPageSearchesIndexWithoutPointInTime() throws IOException {
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        SearchPage page = snippetRepository.search("test", 10, SnippetField.SUMMARY, null);
+
+        verify(client).search(requestCaptor.capture(), eq(Snippet.class));
+        verify(client, never()).createPit(any(CreatePitRequest.class));
+        assertEquals(List.of(Constants.INDEX_NAME), requestCaptor.getValue().index());
+        assertNull(requestCaptor.getValue().pit());
+        assertEquals(2, requestCaptor.getValue().sort().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    public void testNextPageSearchesAfterCursorInPointInTime() throws IOException {
+        CreatePitResponse pitResponse = Mockito.mock(CreatePitResponse.class);
+        when(pitResponse.pitId()).thenReturn("pit-1");
+        when(client.createPit(any(CreatePitRequest.class))).thenReturn(pitResponse);
+        String cursor = new SearchCursor(null, List.of("1700000000000", "https://example.com/a")).encode();
+
+        snippetRepository.search("test", 10, SnippetField.SUMMARY, cursor);
+
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(client).search(requestCaptor.capture(), eq(Snippet.class));
+        assertEquals("pit-1", requestCaptor.getValue().pit().id());
+        assertTrue(requestCaptor.getValue().index().isEmpty());
+        assertEquals(List.of("1700000000000", "https://example.com/a"), requestCaptor.getValue().searchAfter());
+    }
+
+    @Test
+    public void testFullPageReturnsCursorWithSortValues() throws IOException {
+        Hit<Snippet> hit = Mockito.mock(Hit.class);
+        when(hit.source()).thenReturn(new Snippet());
+        when(hit.sort()).thenReturn(List.of("1700000000000", "https://example.com/a"));
+        SearchResponse<Snippet> mockResponse = createMockSearchResponse();
+        when(mockResponse.hits().hits()).thenReturn(List.of(hit));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(mockResponse);
+
+        SearchPage page = snippetRepository.search("test", 1, SnippetField.SUMMARY, null);
+
+        SearchCursor cursor = SearchCursor.decode(page.nextCursor());
+        assertNull(cursor.pitId());
+        assertEquals(List.of("1700000000000", "https://example.com/a"), cursor.sortValues());
+    }
+
+    @Test
+    public void testNewCursorChainsAreCappedWhileEarlierOnesStayOpen() throws IOException {
+        CreatePitResponse pitResponse = Mockito.mock(CreatePitResponse.class);
+        when(pitResponse.pitId()).thenReturn("pit-1", "pit-2");
+        when(client.createPit(any(CreatePitRequest.class))).thenReturn(pitResponse);
+        Hit<Snippet> hit = Mockito.mock(Hit.class);
+        when(hit.source()).thenReturn(new Snippet());
+        when(hit.sort()).thenReturn(List.of("1700000000000", "https://example.com/a"));
+        SearchResponse<Snippet> fullPage = createMockSearchResponse();
+        when(fullPage.hits().hits()).thenReturn(List.of(hit));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(fullPage);
+        String cursor = new SearchCursor(null, List.of("1700000000000", "https://example.com/a")).encode();
+
+        // Two chains opened a point-in-time each and have more pages
+        SearchPage second = snippetRepository.search("test", 1, SnippetField.SUMMARY, cursor);
+        snippetRepository.search("test", 1, SnippetField.SUMMARY, cursor);
+
+        assertThrows(StoreBusyException.class, () -> snippetRepository.search("test", 1, SnippetField.SUMMARY, cursor));
+        verify(client, times(2)).createPit(any(CreatePitRequest.class));
+
+        // Following pages of an open chain reuse its point-in-time, its last page closes it
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(createMockSearchResponse());
+        snippetRepository.search("test", 1, SnippetField.SUMMARY, second.nextCursor());
+        verify(client).deletePit(any(Function.class));
+        verify(client, times(2)).createPit(any(CreatePitRequest.class));
+
+        snippetRepository.search("test", 1, SnippetField.SUMMARY, cursor);
+        verify(client, times(3)).createPit(any(CreatePitRequest.class));
+    }
+
+    @Test
+    public void testPointInTimeRejectedByClusterIsBusy() throws IOException {
+        when(client.createPit(any(CreatePitRequest.class))).thenThrow(new OpenSearchException(ErrorResponse.of(r -> r
+                .status(429)
+                .error(e -> e.type("rejected_execution_exception").reason("Trying to create too many Point In Time contexts")))));
+        String cursor = new SearchCursor(null, List.of("1700000000000", "https://example.com/a")).encode();
+
+        assertThrows(StoreBusyException.class, () -> snippetRepository.search("test", 10, SnippetField.SUMMARY, cursor));
+    }
+
+    @Test
+    public void testExportReadsBatchesFromPointInTime() throws IOException {
+        CreatePitResponse pitResponse = Mockito.mock(CreatePitResponse.class);
+        when(pitResponse.pitId()).thenReturn("pit-1");
+        when(client.createPit(any(CreatePitRequest.class))).thenReturn(pitResponse);
+
+        // A full batch of one hit followed by an empty batch
+        Hit<Snippet> hit = Mockito.mock(Hit.class);
+        Snippet snippet = new Snippet();
+        snippet.setSource("{}");
+        when(hit.source()).thenReturn(snippet);
+        when(hit.sort()).thenReturn(List.of("1700000000000", "https://example.com/a"));
+        SearchResponse<Snippet> fullBatch = createMockSearchResponse();
+        when(fullBatch.hits().hits()).thenReturn(List.of(hit));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(fullBatch, createMockSearchResponse());
+
+        List<Snippet> exported = new ArrayList<>();
+        snippetRepository.export(1, exported::add);
+
+        assertEquals(List.of(snippet), exported);
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(client, times(2)).search(requestCaptor.capture(), eq(Snippet.class));
+        assertEquals("pit-1", requestCaptor.getAllValues().get(0).pit().id());
+        assertTrue(requestCaptor.getAllValues().get(0).searchAfter().isEmpty());
+        assertEquals(List.of("1700000000000", "https://example.com/a"), requestCaptor.getAllValues().get(1).searchAfter());
+    }
+
+    @Test
+    public void testCatalogVersionUsesDocumentVersion() throws IOException {
+        mockCatalogEpoch("uuid-1");
+        GetResponse<CatalogDocument> getResponse = Mockito.mock(GetResponse.class);
+        when(getResponse.found()).thenReturn(true);
+        when(getResponse.version()).thenReturn(5L);
+        when(getResponse.source()).thenReturn(new CatalogDocument(1700000000000L));
+        when(client.get(any(Function.class), eq(CatalogDocument.class))).thenReturn(getResponse);
+
+        CatalogVersion version = snippetRepository.catalogVersion();
+
+        assertEquals(5, version.generation());
+        assertEquals("uuid-1", version.epoch());
+        assertEquals(1700000000000L, version.lastModified().toEpochMilli());
+    }
+
+    @Test
+    public void testCatalogVersionOfMissingIndexIsInitial() throws IOException {
+        OpenSearchIndicesClient indices = Mockito.mock(OpenSearchIndicesClient.class);
+        when(client.indices()).thenReturn(indices);
+        when(indices.getSettings(any(Function.class))).thenThrow(new OpenSearchException(ErrorResponse.of(r -> r
+                .status(404)
+                .error(e -> e.type("index_not_found_exception").reason("no such index [snippets-catalog]")))));
+
+        assertEquals(CatalogVersion.INITIAL, snippetRepository.catalogVersion());
+    }
+
+    @Test
+    public void testBumpCatalogVersionReturnsNewDocumentVersion() throws IOException {
+        IndexResponse indexResponse = Mockito.mock(IndexResponse.class);
+        when(indexResponse.version()).thenReturn(6L);
+        when(client.index(any(Function.class))).thenReturn(indexResponse);
+        mockCatalogEpoch("uuid-1");
+
+        CatalogVersion version = snippetRepository.bumpCatalogVersion();
+
+        assertEquals(6, version.generation());
+        assertEquals("uuid-1", version.epoch());
+    }
+
+    @Test
+    public void testWritesUseConfiguredRefreshPolicies() throws IOException {
+        CreateResponse createResponse = Mockito.mock(CreateResponse.class);
+        when(client.create(any(CreateRequest.class))).thenReturn(createResponse);
+        BulkResponse bulkResponse = Mockito.mock(BulkResponse.class);
+        BulkResponseItem item = Mockito.mock(BulkResponseItem.class);
+        when(bulkResponse.items()).thenReturn(List.of(item));
+        when(client.bulk(any(BulkRequest.class))).thenReturn(bulkResponse);
+        Snippet snippet = new Snippet();
+        snippet.setId("https://example.com/test");
+
+        snippetRepository.save(snippet, "{}");
+        snippetRepository.saveAll(List.of(snippet));
+
+        // A single create is searchable on return, a bulk create does not wait for a refresh
+        ArgumentCaptor<CreateRequest> createCaptor = ArgumentCaptor.forClass(CreateRequest.class);
+        verify(client).create(createCaptor.capture());
+        assertEquals(Refresh.WaitFor, createCaptor.getValue().refresh());
+        ArgumentCaptor<BulkRequest> bulkCaptor = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(client).bulk(bulkCaptor.capture());
+        assertEquals(Refresh.False, bulkCaptor.getValue().refresh());
+    }
+
+    @Test
+    public void testSaveCreatesDocumentWithIdAsDocumentId() throws IOException {
+        CreateResponse mockResponse = Mockito.mock(CreateResponse.class);
+        when(mockResponse.id()).thenReturn("https://example.com/test");
+        when(client.create(any(CreateRequest.class))).thenReturn(mockResponse);
+
+        Snippet snippet = new Snippet();
+        snippet.setId("https://example.com/test");
+        snippetRepository.save(snippet, "{}");
+
+        // A create operation keyed by the $id, without a preceding existence search
+        ArgumentCaptor<CreateRequest> requestCaptor = ArgumentCaptor.forClass(CreateRequest.class);
+        verify(client).create(requestCaptor.capture());
+        assertEquals("https://example.com/test", requestCaptor.getValue().id());
+        verify(client, never()).search(any(SearchRequest.class), eq(Snippet.class));
+    }
+
+    @Test
+    public void testSaveConflictThrowsDuplicate() throws IOException {
+        when(client.create(any(CreateRequest.class))).thenThrow(new OpenSearchException(ErrorResponse.of(r -> r
+                .status(409)
+                .error(e -> e.type("version_conflict_engine_exception").reason("document already exists")))));
+
+        Snippet snippet = new Snippet();
+        snippet.setId("https://example.com/test");
+
+        DuplicateSnippetException exception = assertThrows(DuplicateSnippetException.class,
+                () -> snippetRepository.save(snippet, "{}"));
+        assertEquals("https://example.com/test", exception.getId());
+    }
+
+    @Test
+    public void testDeleteGoesDirectlyByDocumentId() throws IOException {
+        DeleteResponse mockResponse = Mockito.mock(DeleteResponse.class);
+        when(mockResponse.result()).thenReturn(Result.Deleted);
+        when(client.delete(any(DeleteRequest.class))).thenReturn(mockResponse);
+
+        snippetRepository.delete("https://example.com/test");
+
+        ArgumentCaptor<DeleteRequest> requestCaptor = ArgumentCaptor.forClass(DeleteRequest.class);
+        verify(client).delete(requestCaptor.capture());
+        assertEquals("https://example.com/test", requestCaptor.getValue().id());
+        verify(client, never()).search(any(SearchRequest.class), eq(Snippet.class));
+    }
+
+    @Test
+    public void testDeleteFallsBackToIdSearchForLegacyDocuments() throws IOException {
+        DeleteResponse notFound = Mockito.mock(DeleteResponse.class);
+        when(notFound.result()).thenReturn(Result.NotFound);
+        DeleteResponse deleted = Mockito.mock(DeleteResponse.class);
+        when(deleted.result()).thenReturn(Result.Deleted);
+        when(client.delete(any(DeleteRequest.class))).thenReturn(notFound, deleted);
+
+        Hit<Snippet> hit = Mockito.mock(Hit.class);
+        when(hit.id()).thenReturn("auto-generated-id");
+        SearchResponse<Snippet> mockResponse = createMockSearchResponse();
+        when(mockResponse.hits().hits()).thenReturn(List.of(hit));
+        when(client.search(any(SearchRequest.class), eq(Snippet.class))).thenReturn(mockResponse);
+
+        snippetRepository.delete("https://example.com/test");
+
+        ArgumentCaptor<DeleteRequest> requestCaptor = ArgumentCaptor.forClass(DeleteRequest.class);
+        verify(client, times(2)).delete(requestCaptor.capture());
+        assertEquals("auto-generated-id", requestCaptor.getAllValues().get(1).id());
+    }
+
+    @Test
+    public void testDocumentIdHashesIdsOverTheLengthLimit() {
+        String longId = "https://example.com/" + "a".repeat(600);
+
+        assertEquals("https://example.com/test", SnippetRepository.documentId("https://example.com/test"));
+        assertTrue(SnippetRepository.documentId(longId).startsWith("sha256:"));
+        assertEquals(SnippetRepository.documentId(longId), SnippetRepository.documentId(longId));
+    }
+
+    @Test
+    public void testOutdatedIndexIsUpgradedWhileHoldingTheLock() throws IOException {
+        OpenSearchIndicesClient indices = mockExistingIndex(3);
+
+        snippetRepository.bootstrapIndex();
+
+        InOrder order = inOrder(client, indices);
+        order.verify(client).create(any(Function.class));
+        order.verify(indices).close(any(Function.class));
+        order.verify(indices).putSettings(any(Function.class));
+        order.verify(indices).open(any(Function.class));
+        order.verify(indices).putMapping(any(Function.class));
+        order.verify(client).delete(any(Function.class));
+    }
+
+    @Test
+    public void testUpgradeFromTemplateVersion3AllowsTheNgramFilter() throws IOException {
+        // Indexes created from template version 3 have neither the n-gram filter nor a max_ngram_diff for it
+        OpenSearchIndicesClient indices = mockExistingIndex(3);
+
+        snippetRepository.bootstrapIndex();
+
+        ArgumentCaptor<Function<PutIndicesSettingsRequest.Builder, ObjectBuilder<PutIndicesSettingsRequest>>> captor =
+                ArgumentCaptor.forClass(Function.class);
+        verify(indices).putSettings(captor.capture());
+        IndexSettings settings = captor.getValue().apply(new PutIndicesSettingsRequest.Builder()).build().settings();
+        assertTrue(settings.analysis().filter().containsKey("substring_ngram"));
+        assertEquals(Constants.NGRAM_MAX_GRAM - Constants.NGRAM_MIN_GRAM, settings.maxNgramDiff());
+        assertEquals(Constants.NGRAM_MAX_GRAM - Constants.NGRAM_MIN_GRAM,
+                SnippetRepository.analysisSettings(IndexTemplate.load(SynonymMode.INDEX, List.of("uri, url")))
+                        .getInt(Constants.MAX_NGRAM_DIFF));
+    }
+
+    @Test
+    public void testOutdatedIndexIsLeftToTheReplicaHoldingTheLock() throws IOException {
+        OpenSearchIndicesClient indices = mockExistingIndex(3);
+        when(client.create(any(Function.class))).thenThrow(conflict());
+        mockUpgradeLock(System.currentTimeMillis());
+
+        IndexUpgradeInProgressException exception = assertThrows(IndexUpgradeInProgressException.class,
+                () -> snippetRepository.bootstrapIndex());
+
+        assertTrue(exception.getMessage().contains("other-replica"));
+        verify(indices, never()).close(any(Function.class));
+        verify(client, never()).delete(any(Function.class));
+    }
+
+    @Test
+    public void testStaleUpgradeLockIsRemovedForTheNextAttempt() throws IOException {
+        OpenSearchIndicesClient indices = mockExistingIndex(3);
+        when(client.create(any(Function.class))).thenThrow(conflict());
+        mockUpgradeLock(System.currentTimeMillis() - Duration.ofMinutes(10).toMillis());
+
+        assertThrows(IndexUpgradeInProgressException.class, () -> snippetRepository.bootstrapIndex());
+
+        verify(indices, never()).close(any(Function.class));
+        verify(client).delete(any(Function.class));
+    }
+
+    @Test
+    public void testCurrentIndexIsNotUpgraded() throws IOException {
+        OpenSearchIndicesClient indices = mockExistingIndex(IndexTemplate.load(SynonymMode.QUERY, List.of()).version());
+
+        snippetRepository.bootstrapIndex();
+
+        verify(client, never()).create(any(Function.class));
+        verify(indices, never()).close(any(Function.class));
+    }
+
+    /**
+     * Mock an existing snippet index whose mapping records the given template version.
+     *
+     * @param templateVersion The template version the index was created from
+     * @return The mocked indices client
+     */
+    private OpenSearchIndicesClient mockExistingIndex(int templateVersion) throws IOException {
+        OpenSearchIndicesClient indices = Mockito.mock(OpenSearchIndicesClient.class);
+        when(client.indices()).thenReturn(indices);
+        OpenSearchTransport transport = Mockito.mock(OpenSearchTransport.class);
+        when(transport.jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        when(client._transport()).thenReturn(transport);
+        when(indices.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(true));
+        GetMappingResponse mapping = GetMappingResponse.of(r -> r.result(Constants.INDEX_NAME,
+                IndexMappingRecord.of(m -> m.mappings(TypeMapping.of(t -> t
+                        .meta(Constants.META_TEMPLATE_VERSION, JsonData.of(templateVersion)))))));
+        when(indices.getMapping(any(Function.class))).thenReturn(mapping);
+        return indices;
+    }
+
+    /**
+     * Mock the catalog index with the given UUID.
+     *
+     * @param uuid The UUID OpenSearch assigned to the catalog index
+     */
+    private void mockCatalogEpoch(String uuid) throws IOException {
+        OpenSearchIndicesClient indices = Mockito.mock(OpenSearchIndicesClient.class);
+        when(client.indices()).thenReturn(indices);
+        GetIndicesSettingsResponse settings = GetIndicesSettingsResponse.of(r -> r.result(Constants.CATALOG_INDEX_NAME,
+                IndexState.of(st -> st.settings(IndexSettings.of(x -> x.index(IndexSettings.of(i -> i.uuid(uuid))))))));
+        when(indices.getSettings(any(Function.class))).thenReturn(settings);
+    }
+
+    private void mockUpgradeLock(long acquiredAt) throws IOException {
+        GetResponse<IndexUpgradeLock> lock = Mockito.mock(GetResponse.class);
+        when(lock.found()).thenReturn(true);
+        when(lock.source()).thenReturn(new IndexUpgradeLock("other-replica", acquiredAt));
+        when(lock.seqNo()).thenReturn(3L);
+        when(lock.primaryTerm()).thenReturn(1L);
+        when(client.get(any(Function.class), eq(IndexUpgradeLock.class))).thenReturn(lock);
+    }
+
+    private static OpenSearchException conflict() {
+        return new OpenSearchException(ErrorResponse.of(r -> r
+                .status(409)
+                .error(e -> e.type("version_conflict_engine_exception").reason("document already exists"))));
+    }
+
+    /**
+     * @param maxOpenCursors The maximum number of open points in time
+     * @return A PointInTimeTracker recording its metrics in a simple registry, shared with the reactive tests
+     */
+    static PointInTimeTracker pointInTimeTracker(int maxOpenCursors) {
+        PointInTimeTracker tracker = new PointInTimeTracker();
+        tracker.maxOpenCursors = maxOpenCursors;
+        tracker.cursorKeepAlive = "1m";
+        tracker.meterRegistry = new SimpleMeterRegistry();
+        tracker.init();
+        return tracker;
+    }
+
+    /**
+     * @return A SynonymService recording its metrics in a simple registry, shared with the Lucene store tests
+     */
+    static SynonymService synonymService() throws ReflectiveOperationException {
+        SynonymService synonymService = new SynonymService();
+        Field meterRegistryField = SynonymService.class.getDeclaredField("meterRegistry");
+        meterRegistryField.setAccessible(true);
+        meterRegistryField.set(synonymService, new SimpleMeterRegistry());
+        Method init = SynonymService.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(synonymService);
+        return synonymService;
+    }
+
     // Helper method to create a mock search response
     private SearchResponse<Snippet> createMockSearchResponse() {
         SearchResponse<Snippet> mockResponse = Mockito.mock(SearchResponse.class);
@@ -0,0 +1,229 @@
+package io.openepcis.snippets.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.openepcis.snippets.model.CatalogVersion;
+import io.openepcis.snippets.repository.SnippetStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opensearch.client.opensearch._types.ErrorResponse;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the CatalogVersionService class with a mocked SnippetStore.
+ */
+public class CatalogVersionServiceTest {
+
+    private CatalogVersionService catalogVersionService;
+    private SnippetStore snippetStore;
+    private SearchResultCache searchResultCache;
+    private SnippetSchemaCache snippetSchemaCache;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        snippetStore = Mockito.mock(SnippetStore.class);
+        when(snippetStore.catalogVersion()).thenReturn(version(3));
+
+        catalogVersionService = new CatalogVersionService();
+        catalogVersionService.snippetStore = snippetStore;
+        searchResultCache = Mockito.mock(SearchResultCache.class);
+        catalogVersionService.searchResultCache = searchResultCache;
+        snippetSchemaCache = Mockito.mock(SnippetSchemaCache.class);
+        catalogVersionService.snippetSchemaCache = snippetSchemaCache;
+        catalogVersionService.meterRegistry = new SimpleMeterRegistry();
+        catalogVersionService.maxStaleness = Duration.ofSeconds(10);
+        catalogVersionService.init();
+        catalogVersionService.poll();
+        clearInvocations(snippetStore, searchResultCache, snippetSchemaCache);
+    }
+
+    @Test
+    public void testFirstPollLoadsPersistedVersion() throws IOException {
+        CatalogVersionService service = new CatalogVersionService();
+        service.snippetStore = snippetStore;
+        service.searchResultCache = searchResultCache;
+        service.snippetSchemaCache = snippetSchemaCache;
+        service.meterRegistry = new SimpleMeterRegistry();
+        service.maxStaleness = Duration.ofSeconds(10);
+        service.init();
+
+        // Startup does not wait for the store
+        verify(snippetStore, never()).catalogVersion();
+        assertNull(service.current());
+
+        service.poll();
+
+        assertEquals(3, service.current().generation());
+    }
+
+    @Test
+    public void testBumpUsesVersionFromStore() throws IOException {
+        when(snippetStore.bumpCatalogVersion()).thenReturn(version(4));
+
+        catalogVersionService.bump();
+
+        assertEquals(4, catalogVersionService.current().generation());
+    }
+
+    @Test
+    public void testBumpOfNextGenerationKeepsCache() throws IOException {
+        when(snippetStore.bumpCatalogVersion()).thenReturn(version(4));
+
+        catalogVersionService.bump();
+
+        verify(searchResultCache, never()).invalidateAll();
+        verify(snippetSchemaCache, never()).invalidateAll();
+    }
+
+    @Test
+    public void testBumpSkippingChangeOfOtherReplicaInvalidatesCache() throws IOException {
+        // Another replica bumped to 4 before this poll saw it, so results cached at 3 may lack its change
+        when(snippetStore.bumpCatalogVersion()).thenReturn(version(5));
+
+        catalogVersionService.bump();
+
+        assertEquals(5, catalogVersionService.current().generation());
+        verify(searchResultCache).invalidateAll();
+        verify(snippetSchemaCache).invalidateAll();
+
+        // A poll finds nothing newer afterwards, so this was the only chance to drop those results
+        when(snippetStore.catalogVersion()).thenReturn(version(5));
+        clearInvocations(searchResultCache, snippetSchemaCache);
+        catalogVersionService.poll();
+        verify(searchResultCache, never()).invalidateAll();
+    }
+
+    @Test
+    public void testBumpIntoNewEpochInvalidatesCache() throws IOException {
+        when(snippetStore.bumpCatalogVersion()).thenReturn(new CatalogVersion("e2", 1, Instant.now()));
+
+        catalogVersionService.bump();
+
+        assertEquals("e2", catalogVersionService.current().epoch());
+        verify(searchResultCache).invalidateAll();
+        verify(snippetSchemaCache).invalidateAll();
+    }
+
+    @Test
+    public void testOlderVersionIsIgnored() {
+        catalogVersionService.advance(version(2));
+
+        assertEquals(3, catalogVersionService.current().generation());
+    }
+
+    @Test
+    public void testFailedBumpDropsVersion() throws IOException {
+        when(snippetStore.bumpCatalogVersion()).thenThrow(new IOException("OpenSearch unavailable"));
+
+        catalogVersionService.bump();
+
+        // A response tagged with the previous version could otherwise be revalidated after the change
+        assertNull(catalogVersionService.current());
+        catalogVersionService.advance(version(5));
+        assertEquals(5, catalogVersionService.current().generation());
+    }
+
+    @Test
+    public void testBumpFailingWithErrorResponseDropsVersion() throws IOException {
+        // The epoch of a bump is read with a getSettings request, which may answer with an error
+        when(snippetStore.bumpCatalogVersion()).thenThrow(new OpenSearchException(ErrorResponse.of(r -> r
+                .status(500)
+                .error(e -> e.type("exception").reason("getSettings failed")))));
+
+        assertDoesNotThrow(() -> catalogVersionService.bump());
+
+        assertNull(catalogVersionService.current());
+    }
+
+    @Test
+    public void testPollPicksUpChangeFromOtherReplica() throws IOException {
+        when(snippetStore.catalogVersion()).thenReturn(new CatalogVersion("e1", 4, Instant.now().minusMillis(500)));
+
+        catalogVersionService.poll();
+
+        assertEquals(4, catalogVersionService.current().generation());
+        verify(searchResultCache).invalidateAll();
+        verify(snippetSchemaCache).invalidateAll();
+        verify(searchResultCache).setSuspended(false);
+        Timer lag = catalogVersionService.meterRegistry.get(CatalogVersionService.INVALIDATION_LAG_METRIC).timer();
+        assertEquals(1, lag.count());
+        assertTrue(lag.totalTime(TimeUnit.MILLISECONDS) >= 500);
+    }
+
+    @Test
+    public void testPollPicksUpRecreatedStore() throws IOException {
+        // The generation of a recreated store starts over, below the one of the previous epoch
+        when(snippetStore.catalogVersion()).thenReturn(new CatalogVersion("e2", 1, Instant.now()));
+
+        catalogVersionService.poll();
+
+        assertEquals("\"e2-1\"", catalogVersionService.current().etag());
+        verify(searchResultCache).invalidateAll();
+        verify(snippetSchemaCache).invalidateAll();
+    }
+
+    @Test
+    public void testPollWithoutChangeKeepsCache() {
+        catalogVersionService.poll();
+
+        assertEquals(3, catalogVersionService.current().generation());
+        verify(searchResultCache, never()).invalidateAll();
+        verify(snippetSchemaCache, never()).invalidateAll();
+        assertEquals(0, catalogVersionService.meterRegistry.get(CatalogVersionService.INVALIDATION_LAG_METRIC).timer().count());
+    }
+
+    @Test
+    public void testFailedPollsBeyondStalenessBoundSuspendCache() throws Exception {
+        catalogVersionService.maxStaleness = Duration.ofMillis(1);
+        when(snippetStore.catalogVersion()).thenThrow(new IOException("OpenSearch unavailable"));
+        Thread.sleep(5);
+
+        catalogVersionService.poll();
+
+        // Changes on other replicas may have been missed, so neither cached results nor validators are served
+        assertNull(catalogVersionService.current());
+        verify(searchResultCache).setSuspended(true);
+    }
+
+    @Test
+    public void testPollFailingWithErrorResponseSuspendsCacheBeyondStalenessBound() throws Exception {
+        catalogVersionService.maxStaleness = Duration.ofMillis(1);
+        when(snippetStore.catalogVersion()).thenThrow(new OpenSearchException(ErrorResponse.of(r -> r
+                .status(503)
+                .error(e -> e.type("cluster_block_exception").reason("no master")))));
+        Thread.sleep(5);
+
+        assertDoesNotThrow(() -> catalogVersionService.poll());
+
+        assertNull(catalogVersionService.current());
+        verify(searchResultCache).setSuspended(true);
+    }
+
+    @Test
+    public void testMatchesIfNoneMatch() {
+        CatalogVersion version = version(7);
+
+        assertEquals("\"e1-7\"", version.etag());
+        assertTrue(version.matches("\"e1-7\""));
+        assertTrue(version.matches("W/\"e1-7\""));
+        assertTrue(version.matches("\"e1-5\", \"e1-7\""));
+        assertTrue(version.matches("*"));
+        assertFalse(version.matches("\"e1-6\""));
+        // Issued before the store was recreated
+        assertFalse(version.matches("\"e0-7\""));
+        assertFalse(version.matches(null));
+    }
+
+    private static CatalogVersion version(long generation) {
+        return new CatalogVersion("e1", generation, Instant.ofEpochSecond(generation));
+    }
+}
@@ -0,0 +1,247 @@
+package io.openepcis.snippets.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.openepcis.snippets.model.SnippetField;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SearchResultCache class.
+ */
+public class SearchResultCacheTest {
+
+    private SearchResultCache searchResultCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        searchResultCache = new SearchResultCache();
+        searchResultCache.enabled = true;
+        searchResultCache.maximumSize = 2;
+        searchResultCache.meterRegistry = new SimpleMeterRegistry();
+        searchResultCache.init();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testNormalizeCollapsesCaseAndWhitespace() {
+        assertEquals("epc uri", SearchResultCache.normalize("  EPC \t URI "));
+        assertEquals("", SearchResultCache.normalize(null));
+    }
+
+    @Test
+    public void testRepeatedSearchIsServedFromCache() throws IOException {
+        SearchResult first = searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        SearchResult second = searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, searchResultCache.stats().hitCount());
+        assertEquals(1, searchResultCache.stats().missCount());
+    }
+
+    @Test
+    public void testLimitIsPartOfTheKey() throws IOException {
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.get("test", 5, SnippetField.SUMMARY, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testProjectionIsPartOfTheKey() throws IOException {
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.get("test", 10, SnippetField.ALL, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidateAllForcesReload() throws IOException {
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.invalidateAll();
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidationDuringLoadIsNotCached() throws IOException {
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, () -> {
+            searchResultCache.invalidateAll();
+            return load();
+        });
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testAsyncSearchSharesCacheWithBlockingSearch() throws IOException {
+        SearchResult first = searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        SearchResult second = searchResultCache.getAsync("test", 10, SnippetField.SUMMARY,
+                () -> Uni.createFrom().item(this::load)).await().indefinitely();
+        searchResultCache.getAsync("other", 10, SnippetField.SUMMARY,
+                () -> Uni.createFrom().item(this::load)).await().indefinitely();
+        SearchResult third = searchResultCache.get("other", 10, SnippetField.SUMMARY, this::load);
+
+        assertSame(first, second);
+        assertNotNull(third);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testConcurrentIdenticalSearchesShareOneLoad() throws Exception {
+        searchResultCache.enabled = false;
+        CountDownLatch release = new CountDownLatch(1);
+        SearchResultCache.Loader blockedLoad = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return load();
+        };
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<SearchResult> leader = executor.submit(() -> searchResultCache.get("test", 10, SnippetField.SUMMARY, blockedLoad));
+            awaitCondition(() -> searchResultCache.inFlightCount() == 1);
+            Future<SearchResult> follower = executor.submit(() -> searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load));
+            awaitCondition(() -> coalesced() == 1);
+
+            release.countDown();
+            assertSame(leader.get(), follower.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, searchResultCache.inFlightCount());
+    }
+
+    @Test
+    public void testCoalescedSearchSharesFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SearchResultCache.Loader failingLoad = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            throw new IOException("OpenSearch unavailable");
+        };
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<SearchResult> leader = executor.submit(() -> searchResultCache.get("test", 10, SnippetField.SUMMARY, failingLoad));
+            awaitCondition(() -> searchResultCache.inFlightCount() == 1);
+            Future<SearchResult> follower = executor.submit(() -> searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load));
+            awaitCondition(() -> coalesced() == 1);
+
+            release.countDown();
+            assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, leader::get).getCause());
+            assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, follower::get).getCause());
+        }
+
+        // The failure is not cached
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testCancelledLeaderLetsWaitingSearchLoadAgain() throws Exception {
+        CompletableFuture<SearchResult> neverLoaded = new CompletableFuture<>();
+        Cancellable leader = searchResultCache.getAsync("test", 10, SnippetField.SUMMARY,
+                () -> Uni.createFrom().completionStage(neverLoaded)).subscribe().with(result -> { }, e -> { });
+        CompletableFuture<SearchResult> follower = searchResultCache.getAsync("test", 10, SnippetField.SUMMARY,
+                () -> Uni.createFrom().item(this::load)).subscribeAsCompletionStage();
+        assertEquals(1, coalesced());
+
+        // The client of the leading search disconnects
+        leader.cancel();
+
+        assertNotNull(follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, searchResultCache.inFlightCount());
+    }
+
+    @Test
+    public void testCancelledFollowerLeavesSharedLoadAlone() throws Exception {
+        CompletableFuture<SearchResult> pending = new CompletableFuture<>();
+        CompletableFuture<SearchResult> leader = searchResultCache.getAsync("test", 10, SnippetField.SUMMARY,
+                () -> Uni.createFrom().completionStage(pending)).subscribeAsCompletionStage();
+        searchResultCache.getAsync("test", 10, SnippetField.SUMMARY, () -> Uni.createFrom().item(this::load))
+                .subscribe().with(result -> { }, e -> { })
+                .cancel();
+
+        SearchResult loaded = load();
+        pending.complete(loaded);
+
+        assertSame(loaded, leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSearchAfterInvalidationDoesNotJoinEarlierLoad() throws IOException {
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, () -> {
+            searchResultCache.invalidateAll();
+            // A search arriving after the write starts its own load
+            searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+            return load();
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(0, coalesced());
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysLoads() throws IOException {
+        searchResultCache.enabled = false;
+
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testSuspendedCacheDropsEntriesAndLoads() throws IOException {
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.setSuspended(true);
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.setSuspended(false);
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+        searchResultCache.get("test", 10, SnippetField.SUMMARY, this::load);
+
+        assertEquals(4, loads.get());
+    }
+
+    private SearchResult load() {
+        return new SearchResult(("[" + loads.incrementAndGet() + "]").getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    private double coalesced() {
+        return searchResultCache.meterRegistry.get(SearchResultCache.COALESCED_METRIC).counter().count();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for concurrent searches");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.openepcis.snippets.service;
+
+import com.networknt.schema.JsonSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SnippetSchemaCache class.
+ */
+public class SnippetSchemaCacheTest {
+
+    private SnippetSchemaCache snippetSchemaCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        snippetSchemaCache = new SnippetSchemaCache();
+        snippetSchemaCache.maximumSize = 10;
+        snippetSchemaCache.meterRegistry = new SimpleMeterRegistry();
+        snippetSchemaCache.init();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testRepeatedGetIsServedFromCache() throws IOException {
+        JsonSchema first = snippetSchemaCache.get("urn:test:a", this::load);
+        JsonSchema second = snippetSchemaCache.get("urn:test:a", this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, snippetSchemaCache.stats().hitCount());
+    }
+
+    @Test
+    public void testMissingSnippetAndFailedLoadAreNotCached() throws IOException {
+        assertNull(snippetSchemaCache.get("urn:test:a", () -> null));
+        assertThrows(IOException.class, () -> snippetSchemaCache.get("urn:test:a", () -> {
+            throw new IOException("OpenSearch unavailable");
+        }));
+
+        assertNotNull(snippetSchemaCache.get("urn:test:a", this::load));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testSlowLoadBlocksNeitherOtherIdsNorInvalidation() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<JsonSchema> slow = executor.submit(() -> snippetSchemaCache.get("urn:test:slow", () -> {
+                loading.countDown();
+                await(release);
+                return load();
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // Neither waits for the load in flight
+            assertNotNull(snippetSchemaCache.get("urn:test:other", this::load));
+            snippetSchemaCache.invalidate("urn:test:slow");
+
+            release.countDown();
+            assertNotNull(slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The result of a load overtaken by an invalidation is not kept
+        snippetSchemaCache.get("urn:test:slow", this::load);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<JsonSchema> leader = executor.submit(() -> snippetSchemaCache.get("urn:test:a", () -> {
+                loading.countDown();
+                await(release);
+                return load();
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<JsonSchema> follower = executor.submit(() -> snippetSchemaCache.get("urn:test:a", this::load));
+
+            release.countDown();
+            assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private JsonSchema load() {
+        loads.incrementAndGet();
+        return Mockito.mock(JsonSchema.class);
+    }
+}
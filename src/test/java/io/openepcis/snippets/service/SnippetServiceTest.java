@@ -0,0 +1,393 @@
+package io.openepcis.snippets.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.openepcis.snippets.model.BulkItemResult;
+import io.openepcis.snippets.model.Snippet;
+import io.openepcis.snippets.model.ValidationResult;
+import io.openepcis.snippets.repository.DuplicateSnippetException;
+import io.openepcis.snippets.repository.SnippetStore;
+import io.openepcis.snippets.util.JsonSchemaValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the SnippetService class, with a mocked SnippetStore and the real schema validation.
+ */
+public class SnippetServiceTest {
+
+    private static final String EXISTING_ID = "https://example.com/existing";
+    private static final String SENSOR_ID = "urn:openepcis:snippet:sensor";
+
+    private SnippetService snippetService;
+    private SnippetStore snippetStore;
+    private SearchResultCache searchResultCache;
+    private CatalogVersionService catalogVersionService;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        snippetStore = Mockito.mock(SnippetStore.class);
+        searchResultCache = Mockito.mock(SearchResultCache.class);
+        catalogVersionService = Mockito.mock(CatalogVersionService.class);
+
+        JsonSchemaValidator jsonSchemaValidator = new JsonSchemaValidator();
+        setField(JsonSchemaValidator.class, jsonSchemaValidator, "objectMapper", objectMapper);
+        setField(JsonSchemaValidator.class, jsonSchemaValidator, "schemaResources", List.of(JsonSchemaValidator.SNIPPET_SCHEMA));
+        jsonSchemaValidator.init();
+
+        snippetService = new SnippetService();
+        setField(SnippetService.class, snippetService, "snippetStore", snippetStore);
+        setField(SnippetService.class, snippetService, "objectMapper", objectMapper);
+        setField(SnippetService.class, snippetService, "jsonSchemaValidator", jsonSchemaValidator);
+        setField(SnippetService.class, snippetService, "searchResultCache", searchResultCache);
+        setField(SnippetService.class, snippetService, "catalogVersionService", catalogVersionService);
+        setField(SnippetService.class, snippetService, "bulkChunkSize", 2);
+        setField(SnippetService.class, snippetService, "maxDocumentSize", 1024L);
+        setField(SnippetService.class, snippetService, "maxNestingDepth", 10);
+        setField(SnippetService.class, snippetService, "maxSuggestSize", 20);
+        meterRegistry = new SimpleMeterRegistry();
+        setField(SnippetService.class, snippetService, "meterRegistry", meterRegistry);
+        SnippetSchemaCache snippetSchemaCache = new SnippetSchemaCache();
+        snippetSchemaCache.maximumSize = 10;
+        snippetSchemaCache.meterRegistry = meterRegistry;
+        snippetSchemaCache.init();
+        setField(SnippetService.class, snippetService, "snippetSchemaCache", snippetSchemaCache);
+        snippetService.init();
+
+        // The store rejects EXISTING_ID as a duplicate, like a create operation on an existing document ID
+        when(snippetStore.saveAll(anyList())).thenAnswer(invocation -> invocation.<List<Snippet>>getArgument(0).stream()
+                .map(snippet -> EXISTING_ID.equals(snippet.getId())
+                        ? BulkItemResult.badRequest(snippet.getId(), DuplicateSnippetException.message(snippet.getId()))
+                        : BulkItemResult.created(snippet.getId()))
+                .toList());
+    }
+
+    @Test
+    public void testCreateSnippetsReportsOneResultPerLine() throws IOException {
+        String ndjson = snippet("https://example.com/a") + "\n"
+                + "{not json\n"
+                + "\n"
+                + snippet(EXISTING_ID) + "\n"
+                + snippet("https://example.com/a") + "\n";
+
+        List<BulkItemResult> results = new ArrayList<>();
+        snippetService.createSnippets(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), results::add);
+
+        assertEquals(4, results.size());
+
+        assertEquals(1, results.get(0).getLine());
+        assertEquals(201, results.get(0).getStatus());
+        assertEquals("https://example.com/a", results.get(0).getId());
+
+        assertEquals(2, results.get(1).getLine());
+        assertEquals(400, results.get(1).getStatus());
+        assertTrue(results.get(1).getError().startsWith("Invalid JSON format"));
+
+        // The blank line 3 is skipped
+        assertEquals(4, results.get(2).getLine());
+        assertEquals(400, results.get(2).getStatus());
+        assertTrue(results.get(2).getError().contains("already exists"));
+
+        assertEquals(5, results.get(3).getLine());
+        assertEquals(400, results.get(3).getStatus());
+        assertTrue(results.get(3).getError().contains("more than once"));
+
+        // Two chunks of two documents, each written with a single bulk request and no separate existence check
+        verify(snippetStore, times(2)).saveAll(anyList());
+        verify(snippetStore, never()).existsById(anyString());
+        verify(searchResultCache, times(1)).invalidateAll();
+    }
+
+    @Test
+    public void testCreateSnippetsStoresSource() throws IOException {
+        String json = snippet("https://example.com/b");
+
+        snippetService.createSnippets(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), result -> {
+        });
+
+        verify(snippetStore).saveAll(argThat(snippets -> snippets.size() == 1
+                && json.equals(snippets.get(0).getSource())));
+    }
+
+    @Test
+    public void testCreateSnippetsReportsWriteFailures() throws IOException {
+        when(snippetStore.saveAll(anyList())).thenThrow(new IOException("Test exception"));
+
+        List<BulkItemResult> results = new ArrayList<>();
+        snippetService.createSnippets(new ByteArrayInputStream(snippet("https://example.com/c")
+                .getBytes(StandardCharsets.UTF_8)), results::add);
+
+        assertEquals(1, results.size());
+        assertEquals(500, results.get(0).getStatus());
+        verify(searchResultCache, never()).invalidateAll();
+    }
+
+    @Test
+    public void testCreateSnippetsLimitsLinesInBytes() throws IOException {
+        // Under the limit in characters, but three bytes per character in UTF-8
+        String multiByte = snippet("https://example.com/h").replace("This is a test snippet", "\u20ac".repeat(340));
+        // A line far over the limit without any newline until the end of the document
+        String huge = snippet("https://example.com/i").replace("This is a test snippet", "x".repeat(1 << 20));
+        String ndjson = multiByte + "\r\n" + huge + "\n" + snippet("https://example.com/j") + "\r\n";
+
+        List<BulkItemResult> results = new ArrayList<>();
+        snippetService.createSnippets(stream(ndjson), results::add);
+
+        assertTrue(multiByte.length() < 1024);
+        assertEquals(3, results.size());
+        for (BulkItemResult result : results.subList(0, 2)) {
+            assertEquals(400, result.getStatus());
+            assertTrue(result.getError().contains("maximum size"));
+        }
+        assertEquals(3, results.get(2).getLine());
+        assertEquals(201, results.get(2).getStatus());
+        verify(snippetStore).saveAll(argThat(snippets -> snippets.size() == 1
+                && snippet("https://example.com/j").equals(snippets.get(0).getSource())));
+    }
+
+    @Test
+    public void testCreateSnippetRelaysDuplicateFromStore() throws IOException {
+        when(snippetStore.save(any(Snippet.class), anyString())).thenThrow(new DuplicateSnippetException(EXISTING_ID));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> snippetService.createSnippet(stream(snippet(EXISTING_ID)), null));
+
+        assertTrue(exception.getMessage().contains("already exists"));
+        verify(snippetStore, never()).existsById(anyString());
+        verify(searchResultCache, never()).invalidateAll();
+    }
+
+    @Test
+    public void testParseSnippetMapsTreeToSnippet() {
+        Snippet snippet = snippetService.parseSnippet("{\"$schema\":\"http://json-schema.org/draft-07/schema#\","
+                + "\"$id\":\"https://example.com/d\",\"title\":\"Test Snippet\",\"description\":\"Test\","
+                + "\"$defs\":{\"value\":{\"type\":\"number\"}}}");
+
+        assertEquals("https://example.com/d", snippet.getId());
+        assertEquals("Test Snippet", snippet.getTitle());
+        assertNotNull(snippet.getDefs());
+    }
+
+    @Test
+    public void testParseSnippetRejectsNonObjectJson() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> snippetService.parseSnippet("[1, 2, 3]"));
+
+        assertTrue(exception.getMessage().startsWith("Invalid JSON format"));
+    }
+
+    @Test
+    public void testCreateSnippetStoresRawBody() throws IOException {
+        String json = "{ \"$schema\": \"http://json-schema.org/draft-07/schema#\", \"$id\": \"https://example.com/e\","
+                + " \"title\": \"Test Snippet\", \"description\": \"This is a test snippet\" }";
+
+        snippetService.createSnippet(stream(json), (long) json.length());
+
+        verify(snippetStore).save(argThat(snippet -> "https://example.com/e".equals(snippet.getId())), eq(json));
+        verify(searchResultCache).invalidateAll();
+        verify(catalogVersionService).bump();
+    }
+
+    @Test
+    public void testCreateSnippetRejectsDeclaredOversizedBody() {
+        InputStream body = Mockito.mock(InputStream.class);
+
+        assertThrows(PayloadTooLargeException.class, () -> snippetService.createSnippet(body, 4096L));
+
+        // Rejected from the Content-Length alone, without reading the body
+        verifyNoInteractions(body, snippetStore);
+    }
+
+    @Test
+    public void testCreateSnippetRejectsOversizedStream() {
+        String json = snippet("https://example.com/f").replace("This is a test snippet", "x".repeat(2048));
+
+        assertThrows(PayloadTooLargeException.class, () -> snippetService.createSnippet(stream(json), null));
+        verifyNoInteractions(snippetStore);
+    }
+
+    @Test
+    public void testCreateSnippetRejectsDeepNesting() {
+        String json = "[".repeat(20) + "]".repeat(20);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> snippetService.createSnippet(stream(json), null));
+
+        assertFalse(exception instanceof PayloadTooLargeException);
+        assertTrue(exception.getMessage().startsWith("Invalid JSON format"));
+    }
+
+    @Test
+    public void testCreateSnippetRejectsTrailingContent() {
+        String json = snippet("https://example.com/g") + " {}";
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> snippetService.createSnippet(stream(json), null));
+
+        assertTrue(exception.getMessage().startsWith("Invalid JSON format"));
+    }
+
+    @Test
+    public void testSuggestCapsSizeAndSkipsBlankPrefix() throws IOException {
+        snippetService.suggest("  epc", null);
+        snippetService.suggest("epc", 100);
+
+        verify(snippetStore).suggest("epc", 5);
+        verify(snippetStore).suggest("epc", 20);
+        assertTrue(snippetService.suggest(" ", null).isEmpty());
+        verifyNoMoreInteractions(snippetStore);
+        assertThrows(IllegalArgumentException.class, () -> snippetService.suggest("epc", 0));
+    }
+
+    @Test
+    public void testCreateRecordsStageMetrics() throws Exception {
+        String json = snippet("https://example.com/metrics");
+
+        snippetService.createSnippet(stream(json), null);
+
+        for (String stage : List.of("parse", "validate", "index")) {
+            assertEquals(1, meterRegistry.get(SnippetService.STAGE_METRIC).tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(json.length(), meterRegistry.get(SnippetService.DOCUMENT_SIZE_METRIC).tag("operation", "create")
+                .summary().totalAmount());
+    }
+
+    @Test
+    public void testValidateDocumentsReportsOneResultPerLine() throws IOException {
+        storeSensorSnippet();
+        String ndjson = "{\"value\": 21.5, \"uom\": \"CEL\"}\n"
+                + "{\"value\": \"warm\", \"uom\": \"CEL\"}\n"
+                + "\n"
+                + "{not json\n"
+                + "{\"value\": 3}\n";
+
+        List<ValidationResult> results = new ArrayList<>();
+        snippetService.validateDocuments(snippetService.snippetSchema(SENSOR_ID), stream(ndjson), results::add);
+
+        assertEquals(4, results.size());
+        assertEquals(List.of(1, 2, 4, 5), results.stream().map(ValidationResult::getLine).toList());
+        assertTrue(results.get(0).isValid());
+        assertFalse(results.get(1).isValid());
+        assertTrue(results.get(1).getErrors().getFirst().contains("$.value"));
+        assertFalse(results.get(2).isValid());
+        assertTrue(results.get(2).getErrors().getFirst().startsWith("Invalid JSON format"));
+        assertFalse(results.get(3).isValid());
+        assertTrue(results.get(3).getErrors().getFirst().contains("uom"));
+    }
+
+    @Test
+    public void testValidateDocumentsLimitsLinesInBytes() throws IOException {
+        storeSensorSnippet();
+        // Under the limit in characters, but three bytes per character in UTF-8
+        String multiByte = "{\"value\": 1, \"uom\": \"CEL\", \"note\": \"" + "\u20ac".repeat(340) + "\"}";
+        String huge = "{\"value\": 1, \"uom\": \"CEL\", \"note\": \"" + "x".repeat(1 << 20) + "\"}";
+        String ndjson = multiByte + "\n" + huge + "\n" + "{\"value\": 21.5, \"uom\": \"CEL\"}";
+
+        List<ValidationResult> results = new ArrayList<>();
+        snippetService.validateDocuments(snippetService.snippetSchema(SENSOR_ID), stream(ndjson), results::add);
+
+        assertEquals(3, results.size());
+        for (ValidationResult result : results.subList(0, 2)) {
+            assertFalse(result.isValid());
+            assertTrue(result.getErrors().getFirst().contains("maximum size"));
+        }
+        assertEquals(3, results.get(2).getLine());
+        assertTrue(results.get(2).isValid());
+    }
+
+    @Test
+    public void testValidateDocumentReadsSingleDocument() throws IOException {
+        storeSensorSnippet();
+
+        ValidationResult result = snippetService.validateDocument(snippetService.snippetSchema(SENSOR_ID),
+                stream("{\"value\": 21.5, \"uom\": \"CEL\"}"), null);
+
+        assertTrue(result.isValid());
+        assertNull(result.getLine());
+        assertThrows(PayloadTooLargeException.class, () -> snippetService.validateDocument(
+                snippetService.snippetSchema(SENSOR_ID), stream("{}"), 2048L));
+    }
+
+    @Test
+    public void testSnippetSchemaIsCompiledOnceUntilDeleted() throws IOException {
+        storeSensorSnippet();
+
+        assertSame(snippetService.snippetSchema(SENSOR_ID), snippetService.snippetSchema(SENSOR_ID));
+        verify(snippetStore, times(1)).findById(SENSOR_ID);
+        assertEquals(1, meterRegistry.get(SnippetService.STAGE_METRIC).tag("stage", "compile_schema").timer().count());
+
+        snippetService.delete(SENSOR_ID);
+        snippetService.snippetSchema(SENSOR_ID);
+        verify(snippetStore, times(2)).findById(SENSOR_ID);
+    }
+
+    @Test
+    public void testSnippetSchemaOfMissingSnippetIsNotCached() throws IOException {
+        when(snippetStore.findById(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(SnippetNotFoundException.class, () -> snippetService.snippetSchema("urn:missing"));
+        assertThrows(SnippetNotFoundException.class, () -> snippetService.snippetSchema("urn:missing"));
+        verify(snippetStore, times(2)).findById("urn:missing");
+    }
+
+    /**
+     * Let the store return a snippet with a URN $id whose root schema references one of its $defs.
+     */
+    private void storeSensorSnippet() throws IOException {
+        Snippet snippet = new Snippet();
+        snippet.setId(SENSOR_ID);
+        snippet.setSource("""
+                {
+                  "$schema": "http://json-schema.org/draft-07/schema#",
+                  "$id": "%s",
+                  "title": "Sensor reading",
+                  "description": "Sensor reading with value and unit of measure",
+                  "$ref": "#/$defs/reading",
+                  "$defs": {
+                    "reading": {
+                      "type": "object",
+                      "properties": {
+                        "value": {"type": "number"},
+                        "uom": {"type": "string", "pattern": "^[A-Z0-9]{2,3}$"}
+                      },
+                      "required": ["value", "uom"]
+                    }
+                  }
+                }
+                """.formatted(SENSOR_ID));
+        when(snippetStore.findById(SENSOR_ID)).thenReturn(Optional.of(snippet));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String snippet(String id) {
+        return "{\"$schema\":\"http://json-schema.org/draft-07/schema#\",\"$id\":\"" + id
+                + "\",\"title\":\"Test Snippet\",\"description\":\"This is a test snippet\"}";
+    }
+
+    private static void setField(Class<?> type, Object target, String name, Object value) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,82 @@
+package io.openepcis.snippets.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SynonymIndex class.
+ * These tests verify bidirectional lookups and that large vocabulary dictionaries can be indexed.
+ */
+public class SynonymIndexTest {
+
+    @Test
+    public void testLookupByKeyAndBySynonym() {
+        SynonymIndex index = SynonymIndex.of(Map.of(
+                "uri", List.of("url", "link"),
+                "url", List.of("uri", "hyperlink")));
+
+        Set<String> byKey = new HashSet<>();
+        index.addSynonyms("uri", byKey);
+        assertEquals(Set.of("uri", "url", "link", "hyperlink"), byKey);
+
+        Set<String> bySynonym = new HashSet<>();
+        index.addSynonyms("hyperlink", bySynonym);
+        assertEquals(Set.of("url", "uri", "hyperlink"), bySynonym);
+    }
+
+    @Test
+    public void testUnknownTermAddsNothing() {
+        Set<String> result = new HashSet<>();
+        SynonymIndex.of(Map.of("uri", List.of("url"))).addSynonyms("nonexistent", result);
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testTermsAreSharedAcrossGroups() {
+        SynonymIndex index = SynonymIndex.of(Map.of(
+                "pharma", List.of("drug", "medicine"),
+                "pharmaceutical", List.of("drug", "medicine")));
+
+        assertEquals(2, index.groupCount());
+        assertEquals(4, index.termCount());
+    }
+
+    @Test
+    public void testLargeDictionary() {
+        // 20,000 entries with 5 synonyms each: 100,000 distinct vocabulary terms
+        int entries = 20_000;
+        int synonymsPerEntry = 5;
+        Map<String, List<String>> dictionary = new HashMap<>(entries * 2);
+        for (int i = 0; i < entries; i++) {
+            List<String> synonyms = new ArrayList<>(synonymsPerEntry);
+            for (int j = 1; j < synonymsPerEntry; j++) {
+                synonyms.add("term-" + i + "-synonym-" + j);
+            }
+            // Link neighbouring entries so that terms belong to more than one group
+            synonyms.add("term-" + ((i + 1) % entries));
+            dictionary.put("term-" + i, synonyms);
+        }
+
+        SynonymIndex index = SynonymIndex.of(dictionary);
+
+        assertEquals(entries, index.groupCount());
+        assertEquals(entries * synonymsPerEntry, index.termCount());
+
+        Set<String> result = new HashSet<>();
+        index.addSynonyms("term-42", result);
+        // Its own group of 6 terms plus the group of term-41, which lists term-42 as a synonym
+        assertEquals(11, result.size());
+        assertTrue(result.contains("term-42-synonym-1"));
+        assertTrue(result.contains("term-41-synonym-4"));
+        assertTrue(result.contains("term-43"));
+
+        Set<String> bySynonym = new HashSet<>();
+        index.addSynonyms("term-19999-synonym-3", bySynonym);
+        assertEquals(6, bySynonym.size());
+        assertTrue(bySynonym.contains("term-0"));
+    }
+}
@@ -1,5 +1,7 @@
 package io.openepcis.snippets.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -19,6 +21,8 @@ public class SynonymServiceTest {
     @BeforeEach
     public void setup() {
         synonymService = new SynonymService();
+        synonymService.meterRegistry = new SimpleMeterRegistry();
+        synonymService.init();
     }
 
     @Test
@@ -148,4 +152,14 @@ public class SynonymServiceTest {
         // Verify that an empty set is returned
         assertTrue(synonyms.isEmpty(), "Should return an empty set for null terms");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExpansionsAreRecorded() {
+        synonymService.getSynonyms("uri");
+        synonymService.getSynonyms("nonexistent");
+
+        DistributionSummary expansions = synonymService.meterRegistry.get(SynonymService.EXPANSIONS_METRIC).summary();
+        assertEquals(2, expansions.count());
+        assertEquals(synonymService.getSynonyms("uri").size() - 1, expansions.max());
+    }
+}
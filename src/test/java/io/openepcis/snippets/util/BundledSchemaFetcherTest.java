@@ -0,0 +1,36 @@
+package io.openepcis.snippets.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the BundledSchemaFetcher class.
+ */
+public class BundledSchemaFetcherTest {
+
+    private final BundledSchemaFetcher fetcher = new BundledSchemaFetcher(JsonSchemaValidator.META_SCHEMAS);
+
+    @Test
+    public void testBundledMetaSchemaIsServedForAnySpelling() throws IOException {
+        for (String uri : List.of("http://json-schema.org/draft-07/schema#", "https://json-schema.org/draft-07/schema",
+                "https://json-schema.org/draft/2020-12/schema#/$defs/nonNegativeInteger")) {
+            try (InputStream in = fetcher.fetch(URI.create(uri))) {
+                assertNotNull(in, uri);
+            }
+        }
+    }
+
+    @Test
+    public void testOtherUrisAreNotFetched() {
+        for (String uri : List.of("http://169.254.169.254/latest/meta-data", "file:///etc/passwd",
+                "jar:file:/app.jar!/application.yaml", "classpath:schema/snippet-schema.json")) {
+            assertThrows(IOException.class, () -> fetcher.fetch(URI.create(uri)), uri);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package io.openepcis.snippets.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.JsonSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the JsonSchemaValidator class.
+ */
+public class JsonSchemaValidatorTest {
+
+    private static final String V2_SCHEMA = "schema/snippet-schema-v2.json";
+    private static final String V2_SCHEMA_URI = "https://example.com/schemas/snippet-schema-v2.json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JsonSchemaValidator jsonSchemaValidator;
+
+    @BeforeEach
+    public void setup() {
+        jsonSchemaValidator = validator(JsonSchemaValidator.SNIPPET_SCHEMA, V2_SCHEMA);
+    }
+
+    @Test
+    public void testSchemasAreKeyedByIdOrResource() {
+        assertEquals(List.of(JsonSchemaValidator.CLASSPATH_SCHEME + JsonSchemaValidator.SNIPPET_SCHEMA, V2_SCHEMA_URI),
+                new ArrayList<>(jsonSchemaValidator.schemaUris()));
+    }
+
+    @Test
+    public void testSnippetsAreValidatedAgainstTheFirstSchema() throws Exception {
+        assertTrue(jsonSchemaValidator.validateSnippet(snippet(false)).isEmpty());
+        assertNull(jsonSchemaValidator.validateSnippetWithErrorMessage(snippet(false)));
+
+        JsonNode missingTitle = objectMapper.readTree("""
+                {"$schema": "http://json-schema.org/draft-07/schema#", "$id": "urn:test:1", "description": "d"}
+                """);
+        assertFalse(jsonSchemaValidator.validateSnippet(missingTitle).isEmpty());
+        assertTrue(jsonSchemaValidator.validateSnippetWithErrorMessage(missingTitle).contains("title"));
+    }
+
+    @Test
+    public void testSchemaVersionsAreHeldSideBySide() throws Exception {
+        assertFalse(jsonSchemaValidator.validate(V2_SCHEMA_URI, snippet(false)).isEmpty());
+        assertTrue(jsonSchemaValidator.validate(V2_SCHEMA_URI, snippet(true)).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> jsonSchemaValidator.validate("urn:unknown", snippet(true)));
+    }
+
+    @Test
+    public void testMissingSchemaFailsInit() {
+        assertThrows(IllegalStateException.class, () -> validator("schema/missing.json"));
+    }
+
+    @Test
+    public void testUninitializedValidatorFails() throws Exception {
+        JsonNode snippet = snippet(false);
+        assertThrows(IllegalStateException.class, () -> new JsonSchemaValidator().validateSnippet(snippet));
+    }
+
+    @Test
+    public void testConcurrentValidationAfterStartup() throws Exception {
+        JsonNode valid = snippet(false);
+        JsonNode invalid = objectMapper.readTree("{\"title\": 1}");
+        List<Callable<Boolean>> validations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            JsonNode document = i % 2 == 0 ? valid : invalid;
+            validations.add(() -> jsonSchemaValidator.validateSnippet(document).isEmpty());
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<Boolean>> results = executor.invokeAll(validations);
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0, results.get(i).get());
+            }
+        }
+    }
+
+    @Test
+    public void testDefsAreValidatedAgainstTheDeclaredMetaSchema() throws Exception {
+        for (String schema : List.of("http://json-schema.org/draft-07/schema#",
+                "https://json-schema.org/draft/2019-09/schema", "https://json-schema.org/draft/2020-12/schema")) {
+            assertTrue(jsonSchemaValidator.validateSnippet(snippet(schema, "{\"quantity\": {\"type\": \"number\"}}")).isEmpty(), schema);
+            assertFalse(jsonSchemaValidator.validateSnippet(snippet(schema, "{\"quantity\": {\"type\": \"numeric\"}}")).isEmpty(), schema);
+            assertFalse(jsonSchemaValidator.validateSnippet(snippet(schema, "{\"quantity\": {\"minLength\": -1}}")).isEmpty(), schema);
+        }
+    }
+
+    @Test
+    public void testBundledMetaSchemasDoNotClaimOfficialIds() throws Exception {
+        for (Map.Entry<String, String> metaSchema : JsonSchemaValidator.META_SCHEMAS.entrySet()) {
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream(metaSchema.getValue())) {
+                String id = objectMapper.readTree(in).path("$id").asText();
+                // The approximations stand in for the official documents but must not pass for them
+                assertFalse(id.contains("json-schema.org"), metaSchema.getValue());
+                assertNotEquals(metaSchema.getKey(), JsonSchemaValidator.normalizeSchemaUri(id), metaSchema.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testSnippetReferencesAreNotFetched() {
+        for (String ref : List.of("http://169.254.169.254/latest/meta-data#", "file:///etc/passwd#",
+                "classpath:application.yaml#")) {
+            assertThrows(IllegalArgumentException.class, () -> jsonSchemaValidator.compile(objectMapper.readTree("""
+                    {"$schema": "http://json-schema.org/draft-07/schema#", "properties": {"a": {"$ref": "%s"}}}
+                    """.formatted(ref))), ref);
+        }
+    }
+
+    @Test
+    public void testSnippetReferenceToMetaSchemaUsesBundledCopy() throws Exception {
+        JsonSchema schemaOfSchemas = jsonSchemaValidator.compile(objectMapper.readTree("""
+                {"$schema": "http://json-schema.org/draft-07/schema#", "$ref": "http://json-schema.org/draft-07/schema#"}
+                """));
+
+        assertTrue(JsonSchemaValidator.validationErrors(schemaOfSchemas, objectMapper.readTree("{\"type\": \"number\"}")).isEmpty());
+        assertFalse(JsonSchemaValidator.validationErrors(schemaOfSchemas, objectMapper.readTree("{\"type\": \"numeric\"}")).isEmpty());
+    }
+
+    @Test
+    public void testMetaSchemaFollowsTheDeclaredDraft() throws Exception {
+        String tupleItems = "{\"pair\": {\"type\": \"array\", \"items\": [{\"type\": \"string\"}]}}";
+        assertTrue(jsonSchemaValidator.validateSnippet(snippet("https://json-schema.org/draft/2019-09/schema", tupleItems)).isEmpty());
+        assertFalse(jsonSchemaValidator.validateSnippet(snippet("https://json-schema.org/draft/2020-12/schema", tupleItems)).isEmpty());
+    }
+
+    @Test
+    public void testCommonSpellingsOfDraftUrisAreRecognized() {
+        assertEquals("http://json-schema.org/draft-07/schema",
+                JsonSchemaValidator.normalizeSchemaUri("https://json-schema.org/draft-07/schema#"));
+        assertEquals("http://json-schema.org/draft/2020-12/schema",
+                JsonSchemaValidator.normalizeSchemaUri(" https://json-schema.org/draft/2020-12/schema "));
+    }
+
+    @Test
+    public void testUnknownMetaSchemaPolicy() throws Exception {
+        JsonNode draft04 = snippet("http://json-schema.org/draft-04/schema#", "{\"quantity\": {\"type\": \"numeric\"}}");
+        assertTrue(jsonSchemaValidator.validateSnippet(draft04).isEmpty());
+
+        jsonSchemaValidator.unknownMetaSchemaPolicy = UnknownMetaSchemaPolicy.REJECT;
+        assertThrows(IllegalArgumentException.class, () -> jsonSchemaValidator.validateSnippet(draft04));
+    }
+
+    @Test
+    public void testSnippetsCompileWithTheirDeclaredDraft() throws Exception {
+        JsonSchema pair = jsonSchemaValidator.compile(objectMapper.readTree("""
+                {"$schema": "https://json-schema.org/draft/2020-12/schema", "$id": "urn:test:pair", "title": "t", "description": "d",
+                 "type": "array", "prefixItems": [{"type": "string"}, {"type": "number"}]}
+                """));
+        assertTrue(JsonSchemaValidator.validationErrors(pair, objectMapper.readTree("[\"a\", 1]")).isEmpty());
+        assertFalse(JsonSchemaValidator.validationErrors(pair, objectMapper.readTree("[1, \"a\"]")).isEmpty());
+
+        // An unrecognized $schema falls back to draft-07
+        JsonSchema quantity = jsonSchemaValidator.compile(objectMapper.readTree("""
+                {"$schema": "urn:unknown", "$id": "urn:test:quantity", "type": "number", "minimum": 0}
+                """));
+        assertFalse(JsonSchemaValidator.validationErrors(quantity, objectMapper.readTree("-1")).isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () -> jsonSchemaValidator.compile(objectMapper.readTree("[]")));
+    }
+
+    private JsonNode snippet(String schema, String defs) throws Exception {
+        return objectMapper.readTree("""
+                {"$schema": "%s", "$id": "urn:test:1", "title": "t", "description": "d", "$defs": %s}
+                """.formatted(schema, defs));
+    }
+
+    private JsonNode snippet(boolean withDefs) throws Exception {
+        String defs = withDefs ? ", \"$defs\": {\"quantity\": {\"type\": \"number\"}}" : "";
+        return objectMapper.readTree("""
+                {"$schema": "http://json-schema.org/draft-07/schema#", "$id": "urn:test:1", "title": "t", "description": "d"%s}
+                """.formatted(defs));
+    }
+
+    private JsonSchemaValidator validator(String... schemaResources) {
+        JsonSchemaValidator validator = new JsonSchemaValidator();
+        validator.objectMapper = objectMapper;
+        validator.schemaResources = List.of(schemaResources);
+        validator.unknownMetaSchemaPolicy = UnknownMetaSchemaPolicy.ACCEPT;
+        validator.init();
+        return validator;
+    }
+}